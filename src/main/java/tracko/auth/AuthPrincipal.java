@@ -0,0 +1,17 @@
+package tracko.auth;
+
+import java.time.Instant;
+
+/**
+ * Immutable identity extracted from a verified JWT. The {@link JwtFilter} parses the
+ * token once per request and stores the result under {@link #REQUEST_ATTRIBUTE}, so
+ * services never have to verify the same signature again.
+ */
+public record AuthPrincipal(String userId, Instant expiresAt) {
+
+    public static final String REQUEST_ATTRIBUTE = AuthPrincipal.class.getName();
+
+    public boolean isExpired() {
+        return expiresAt != null && expiresAt.isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,57 @@
+package tracko.auth;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+@Component
+public class AuthPrincipalResolver {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtUtil jwtUtil;
+
+    public AuthPrincipalResolver(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+
+    public AuthPrincipal resolve(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or invalid Authorization header");
+        }
+
+        // Reuse what the filter already parsed; only fall back to parsing outside of a request
+        AuthPrincipal principal = fromCurrentRequest(authHeader);
+        if (principal == null) {
+            principal = jwtUtil.parsePrincipal(authHeader.substring(BEARER_PREFIX.length()));
+        }
+
+        if (principal == null || principal.isExpired()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired token");
+        }
+        return principal;
+    }
+
+    public String resolveUserId(String authHeader) {
+        return resolve(authHeader).userId();
+    }
+
+    private AuthPrincipal fromCurrentRequest(String authHeader) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object principal = request.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE);
+        if (principal instanceof AuthPrincipal parsed && authHeader.equals(request.getHeader("Authorization"))) {
+            return parsed;
+        }
+        return null;
+    }
+}
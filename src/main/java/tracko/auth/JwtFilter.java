@@ -37,19 +37,22 @@ public class JwtFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
 
-            if (jwtUtil.validateToken(token)) {
-                String userId = jwtUtil.extractUserId(token);
+            AuthPrincipal principal = jwtUtil.parsePrincipal(token);
 
+            if (principal != null) {
                 // Simplified authentication - no authorities needed
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(
-                                userId, 
+                                principal.userId(), 
                                 null,
                                 Collections.singletonList(new SimpleGrantedAuthority("USER"))
                         );
 
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+
+                // Services pick this up through AuthPrincipalResolver instead of re-parsing the header
+                request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
             } 
             else {
                 SecurityContextHolder.clearContext();
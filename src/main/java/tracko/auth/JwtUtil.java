@@ -16,6 +16,7 @@ import java.util.Collections;
 @Component
 public class JwtUtil {
     private final SecretKey secretKey;
+    private final JwtParser jwtParser;
     private final long EXPIRATION_TIME = (long)1000 * 60 * 60 * 3; // 3 hours
 
     public JwtUtil(@Value("${jwt.secret}") String secret) {
@@ -23,6 +24,10 @@ public class JwtUtil {
             String.format("%-32s", secret).replace(' ', 'X') : 
             secret.substring(0, 32);
         this.secretKey = Keys.hmacShaKeyFor(paddedSecret.getBytes(StandardCharsets.UTF_8));
+        // The built parser is immutable and thread-safe, so build it once instead of per call
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
     }
 
     public String generateToken(String userId) {
@@ -35,30 +40,36 @@ public class JwtUtil {
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return parsePrincipal(token) != null;
     }
 
     public String extractUserId(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
+        return jwtParser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
 
+    /**
+     * Verifies the token and extracts everything callers need in a single parse.
+     * Returns null when the token is malformed, badly signed or expired.
+     */
+    public AuthPrincipal parsePrincipal(String token) {
+        try {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            return new AuthPrincipal(claims.getSubject(), expiration != null ? expiration.toInstant() : null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public Authentication getAuthentication(String token) {
-        String userId = extractUserId(token);
+        return getAuthentication(new AuthPrincipal(extractUserId(token), null));
+    }
+
+    public Authentication getAuthentication(AuthPrincipal principal) {
         return new UsernamePasswordAuthenticationToken(
-            userId, 
+            principal.userId(), 
             null,
             Collections.singletonList(new SimpleGrantedAuthority("USER"))
         );
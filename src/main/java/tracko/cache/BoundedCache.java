@@ -0,0 +1,232 @@
+package tracko.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small in-process LRU cache with a size bound, an optional time-to-live and hit/miss counters.
+ * Loaders run outside the lock, and a value loaded while its key was invalidated (or the whole
+ * cache, by clear or invalidateIf) is not stored, so a write-through invalidation can never be
+ * overwritten by a stale read. Invalidating one key leaves loads of other keys alone.
+ *
+ * A weigher and maxWeight additionally bound the total weight (for instance an estimate of the
+ * bytes held): least recently used entries are evicted until the total fits again, and a value
+ * heavier than maxWeight on its own is not stored at all.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Bumped by every invalidation, for snapshot; wideInvalidations only by those of many keys at once
+    private long generation = 0;
+    private long wideInvalidations = 0;
+    private long weight = 0;
+    // Keys with a load in flight, and how often each was invalidated since; dropped when the last load ends
+    private final Map<K, PendingLoad> pendingLoads = new HashMap<>();
+
+    public BoundedCache(int maxEntries, Duration ttl) {
+        this(maxEntries, 0, ttl, value -> 0);
+    }
+
+    /** As above, and also keeps the summed weight of all values at or below maxWeight. */
+    public BoundedCache(int maxEntries, long maxWeight, Duration ttl, ToLongFunction<V> weigher) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttl == null || ttl.isZero() ? 0 : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                boolean evict = size() > BoundedCache.this.maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                    weight -= eldest.getValue().weight();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public V get(K key) {
+        synchronized (entries) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (isExpired(entry)) {
+                remove(key);
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value();
+        }
+    }
+
+    public V computeIfAbsent(K key, Function<K, V> loader) {
+        long loadWideInvalidations;
+        long loadInvalidations;
+        PendingLoad pending;
+        synchronized (entries) {
+            V cached = get(key);
+            if (cached != null) {
+                return cached;
+            }
+            loadWideInvalidations = wideInvalidations;
+            pending = pendingLoads.computeIfAbsent(key, ignored -> new PendingLoad());
+            pending.loaders++;
+            loadInvalidations = pending.invalidations;
+        }
+
+        V loaded = null;
+        try {
+            loaded = loader.apply(key);
+        } finally {
+            synchronized (entries) {
+                if (loaded != null && loadWideInvalidations == wideInvalidations
+                        && loadInvalidations == pending.invalidations) {
+                    store(key, loaded);
+                }
+                if (--pending.loaders == 0) {
+                    pendingLoads.remove(key);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            store(key, value);
+        }
+    }
+
+    /**
+     * A marker for {@link #putIfUnchanged}, taken before reading a value from its source when the
+     * read can't happen inside {@link #computeIfAbsent}. Unlike computeIfAbsent it covers the
+     * whole cache: an invalidation of any key makes it stale.
+     */
+    public long snapshot() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /** Stores the value unless something was invalidated since the snapshot was taken. */
+    public boolean putIfUnchanged(K key, V value, long snapshot) {
+        synchronized (entries) {
+            if (snapshot != generation) {
+                return false;
+            }
+            store(key, value);
+            return true;
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            remove(key);
+            PendingLoad pending = pendingLoads.get(key);
+            if (pending != null) {
+                pending.invalidations++;
+            }
+        }
+    }
+
+    public void invalidateIf(Predicate<K> predicate) {
+        synchronized (entries) {
+            generation++;
+            wideInvalidations++;
+            entries.entrySet().removeIf(entry -> {
+                if (!predicate.test(entry.getKey())) {
+                    return false;
+                }
+                weight -= entry.getValue().weight();
+                return true;
+            });
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation++;
+            wideInvalidations++;
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    public CacheStats stats() {
+        int size;
+        long totalWeight;
+        synchronized (entries) {
+            size = entries.size();
+            totalWeight = weight;
+        }
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), size, totalWeight);
+    }
+
+    // Callers hold the lock
+    private void store(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        if (maxWeight > 0 && valueWeight > maxWeight) {
+            remove(key);
+            return;
+        }
+        CacheEntry<V> previous = entries.put(key, new CacheEntry<>(value, System.nanoTime(), valueWeight));
+        weight += valueWeight - (previous != null ? previous.weight() : 0);
+
+        // Access order puts the entry just stored last, and it fits on its own
+        Iterator<CacheEntry<V>> eldestFirst = entries.values().iterator();
+        while (maxWeight > 0 && weight > maxWeight && eldestFirst.hasNext()) {
+            weight -= eldestFirst.next().weight();
+            eldestFirst.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(K key) {
+        CacheEntry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+
+    private boolean isExpired(CacheEntry<V> entry) {
+        return ttlNanos > 0 && System.nanoTime() - entry.storedAt() > ttlNanos;
+    }
+
+    private record CacheEntry<V>(V value, long storedAt, long weight) {}
+
+    // Guarded by the entries lock
+    private static final class PendingLoad {
+        int loaders;
+        long invalidations;
+    }
+
+    public record CacheStats(long hits, long misses, long evictions, int size, long weight) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -1,46 +1,67 @@
 package tracko.config;
 
 import com.google.genai.Client;
+import tracko.service.AIProvider;
+import tracko.service.GeminiAIProvider;
+import tracko.service.StubAIProvider;
+
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Semaphore;
-
+/**
+ * Picks the AIProvider behind AIService. With ai.enabled=false there is still a provider, one
+ * that refuses every call, so the services that use AI start either way and only the AI
+ * features answer 503. ai.provider=stub answers locally with canned text for load tests.
+ */
 @Configuration
-@ConditionalOnProperty(name = "ai.enabled", havingValue = "true", matchIfMissing = false)
 public class AIConfig {
 
-    @Value("${ai.api-key}")
+    @Value("${ai.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.provider:gemini}")
+    private String provider;
+
+    @Value("${ai.api-key:}")
     private String apiKey;
 
     @Value("${ai.model:gemini-2.0-flash-exp}")
     private String model;
 
-    @Value("${ai.rate-limit:5}")
-    private int rateLimit;
+    @Value("${ai.stub.latency-ms:500}")
+    private long stubLatencyMillis;
 
-    @Bean
-    public Client genAiClient() {
-        return Client.builder()
-                .apiKey(apiKey)
-                .build();
-    }
+    @Value("${ai.stub.chunk-delay-ms:50}")
+    private long stubChunkDelayMillis;
 
-    @Bean
-    public Semaphore aiRateLimiter() {
-        return new Semaphore(rateLimit);
-    }
+    @Value("${ai.stub.answer-words:200}")
+    private int stubAnswerWords;
 
-    @Bean
-    public ScheduledExecutorService scheduledExecutorService() {
-        return Executors.newScheduledThreadPool(1);
-    }
+    @Value("${ai.stub.chunk-words:10}")
+    private int stubChunkWords;
 
-    public String getModel() {
-        return model;
+    @Value("${ai.stub.error-rate:0}")
+    private double stubErrorRate;
+
+    @Value("${ai.stub.seed:42}")
+    private long stubSeed;
+
+    @Bean
+    public AIProvider aiProvider() {
+        if (!enabled) {
+            return AIProvider.disabled();
+        }
+        return switch (provider) {
+            case "gemini" -> {
+                if (apiKey.isBlank()) {
+                    throw new IllegalStateException("ai.api-key is required for the gemini provider");
+                }
+                yield new GeminiAIProvider(Client.builder().apiKey(apiKey).build(), model);
+            }
+            case "stub" -> new StubAIProvider(stubLatencyMillis, stubChunkDelayMillis, stubAnswerWords,
+                stubChunkWords, stubErrorRate, stubSeed);
+            default -> throw new IllegalStateException("Unknown ai.provider: " + provider);
+        };
     }
 }
@@ -11,6 +11,7 @@ import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.stereotype.Component;
+import tracko.auth.AuthPrincipal;
 import tracko.auth.JwtUtil;
 
 @Component
@@ -40,12 +41,13 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
                     throw new AuthenticationCredentialsNotFoundException("No auth token");
                 }
                 
-                if (!jwtUtil.validateToken(token)) {
+                AuthPrincipal principal = jwtUtil.parsePrincipal(token);
+                if (principal == null) {
                     logger.warn("Invalid token provided");
                     throw new AuthenticationCredentialsNotFoundException("Invalid token");
                 }
                 
-                Authentication auth = jwtUtil.getAuthentication(token);
+                Authentication auth = jwtUtil.getAuthentication(principal);
                 accessor.setUser(auth);
                 logger.debug("Authenticated user: {}", auth.getName());
             }
@@ -1,5 +1,6 @@
 package tracko.constant;
 
+// Bucketed change storage persists the ordinal, so new types go at the end
 public enum ChangeType {
     MODIFIED_IDEA("Modified an idea"),
     ADDED_IDEA("Added an idea"),
@@ -0,0 +1,8 @@
+package tracko.constant;
+
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
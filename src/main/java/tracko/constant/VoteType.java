@@ -0,0 +1,12 @@
+package tracko.constant;
+
+import java.util.Locale;
+
+public enum VoteType {
+    UP,
+    DOWN;
+
+    public static VoteType fromString(String value) {
+        return value == null ? null : VoteType.valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
@@ -1,16 +1,27 @@
 package tracko.controller;
 
+import tracko.auth.AuthPrincipalResolver;
+import tracko.service.AIRateLimiterService;
 import tracko.service.AIService;
+import tracko.service.AIStreamService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
+// Repeated actions on the same text are answered from AIService's cache; pass noCache=true to
+// ask the model again. A call that reaches the model takes a token from the caller's rate limit
+// first; cached answers and calls shared with an identical one in flight are free. Each action
+// also has a /stream variant that sends the answer as Server-Sent Events while it is generated.
 @RestController
 @RequestMapping("/api/ai")
 @ConditionalOnProperty(name = "ai.enabled", havingValue = "true", matchIfMissing = false)
@@ -18,46 +29,124 @@ public class AIController {
     
     private final Logger log = LoggerFactory.getLogger(AIController.class);
     private final AIService aiService;
+    private final AIRateLimiterService rateLimiter;
+    private final AIStreamService aiStreamService;
+    private final AuthPrincipalResolver authPrincipalResolver;
     
-    public AIController(AIService aiService) {
+    public AIController(AIService aiService, AIRateLimiterService rateLimiter, AIStreamService aiStreamService,
+                        AuthPrincipalResolver authPrincipalResolver) {
         this.aiService = aiService;
+        this.rateLimiter = rateLimiter;
+        this.aiStreamService = aiStreamService;
+        this.authPrincipalResolver = authPrincipalResolver;
+    }
+
+    // Signed-in callers are limited per user, anonymous ones per address. AIService runs the
+    // permit only when it is about to ask the model
+    private Runnable permit(String authHeader, HttpServletRequest servletRequest) {
+        return () -> {
+            String callerId = authHeader != null
+                ? authPrincipalResolver.resolveUserId(authHeader)
+                : "anonymous@" + servletRequest.getRemoteAddr();
+            rateLimiter.acquire(callerId, null);
+        };
     }
     
     @PostMapping("/refine")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<String> refineIdea(@RequestBody Map<String, String> request) {
+    public ResponseEntity<String> refineIdea(@RequestBody Map<String, String> request,
+                                             @RequestParam(defaultValue = "false") boolean noCache,
+                                             @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                             HttpServletRequest servletRequest) {
         log.info("POST /api/ai/refine - refining idea");
         String ideaContent = request.get("ideaContent");
-        String response = aiService.refineIdea(ideaContent);
+        String response = aiService.refineIdea(ideaContent, noCache, permit(authHeader, servletRequest));
         return ResponseEntity.ok(response);
     }
     
     @PostMapping("/combine")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<String> combineIdeas(@RequestBody Map<String, String> request) {
+    public ResponseEntity<String> combineIdeas(@RequestBody Map<String, String> request,
+                                               @RequestParam(defaultValue = "false") boolean noCache,
+                                               @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                               HttpServletRequest servletRequest) {
         log.info("POST /api/ai/combine - combining ideas");
         String ideaOne = request.get("ideaOne");
         String ideaTwo = request.get("ideaTwo");
-        String response = aiService.combineIdeas(ideaOne, ideaTwo);
+        String response = aiService.combineIdeas(ideaOne, ideaTwo, noCache, permit(authHeader, servletRequest));
         return ResponseEntity.ok(response);
     }
     
     @PostMapping("/template")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<String> generateFromTemplate(@RequestBody Map<String, String> request) {
+    public ResponseEntity<String> generateFromTemplate(@RequestBody Map<String, String> request,
+                                                       @RequestParam(defaultValue = "false") boolean noCache,
+                                                       @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                                       HttpServletRequest servletRequest) {
         log.info("POST /api/ai/template - generating from template");
         String template = request.get("ideaContent");
-        String response = aiService.generateFromTemplate(template);
+        String response = aiService.generateFromTemplate(template, noCache, permit(authHeader, servletRequest));
         return ResponseEntity.ok(response);
     }
     
     @PostMapping("/twist")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<String> suggestWithTwist(@RequestBody Map<String, String> request) {
+    public ResponseEntity<String> suggestWithTwist(@RequestBody Map<String, String> request,
+                                                   @RequestParam(defaultValue = "false") boolean noCache,
+                                                   @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                                   HttpServletRequest servletRequest) {
         log.info("POST /api/ai/twist - suggesting idea with twist");
         String originalIdea = request.get("ideaContent");
         String twist = request.get("ideaTwist");
-        String response = aiService.suggestRelatedIdea(originalIdea, twist);
+        String response = aiService.suggestRelatedIdea(originalIdea, twist, noCache, permit(authHeader, servletRequest));
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping(value = "/refine/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRefineIdea(@RequestBody Map<String, String> request,
+                                       @RequestParam(defaultValue = "false") boolean noCache,
+                                       @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                       HttpServletRequest servletRequest) {
+        log.info("POST /api/ai/refine/stream - streaming refined idea");
+        String ideaContent = request.get("ideaContent");
+        return aiStreamService.stream(aiService.streamRefineIdea(ideaContent, noCache, permit(authHeader, servletRequest)));
+    }
+
+    @PostMapping(value = "/combine/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCombineIdeas(@RequestBody Map<String, String> request,
+                                         @RequestParam(defaultValue = "false") boolean noCache,
+                                         @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                         HttpServletRequest servletRequest) {
+        log.info("POST /api/ai/combine/stream - streaming combined idea");
+        String ideaOne = request.get("ideaOne");
+        String ideaTwo = request.get("ideaTwo");
+        return aiStreamService.stream(aiService.streamCombineIdeas(ideaOne, ideaTwo, noCache, permit(authHeader, servletRequest)));
+    }
+
+    @PostMapping(value = "/template/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFromTemplate(@RequestBody Map<String, String> request,
+                                         @RequestParam(defaultValue = "false") boolean noCache,
+                                         @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                         HttpServletRequest servletRequest) {
+        log.info("POST /api/ai/template/stream - streaming idea from template");
+        String template = request.get("ideaContent");
+        return aiStreamService.stream(aiService.streamFromTemplate(template, noCache, permit(authHeader, servletRequest)));
+    }
+
+    @PostMapping(value = "/twist/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamWithTwist(@RequestBody Map<String, String> request,
+                                      @RequestParam(defaultValue = "false") boolean noCache,
+                                      @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                      HttpServletRequest servletRequest) {
+        log.info("POST /api/ai/twist/stream - streaming idea with twist");
+        String originalIdea = request.get("ideaContent");
+        String twist = request.get("ideaTwist");
+        return aiStreamService.stream(aiService.streamRelatedIdea(originalIdea, twist, noCache, permit(authHeader, servletRequest)));
+    }
+
+    // Provider, circuit breaker, call pool and cache counters; costs no rate limit token
+    @GetMapping("/status")
+    public ResponseEntity<AIService.Status> getStatus() {
+        return ResponseEntity.ok(aiService.getStatus());
+    }
 }
@@ -31,11 +31,17 @@ public class ChangeController {
         this.changeService = changeService;
     }
 
+    // Without a cursor this is the full history; with after or limit it is one ChangeFeed page
     @GetMapping("")
-    public ResponseEntity<List<Change>> getChangesById(
+    public ResponseEntity<Object> getChangesById(
             @PathVariable String projectId,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
             @RequestHeader("Authorization") String authHeader) {
 
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(changeService.getChangeFeed(projectId, after, limit, authHeader));
+        }
         var changes = changeService.getChangesByProject(projectId, authHeader);
         return ResponseEntity.status(HttpStatus.OK).body(changes);
     }
@@ -65,13 +71,10 @@ public class ChangeController {
     public ResponseEntity<Map<String, Long>> getContributionsByDate(
             @PathVariable String projectId,
             @RequestHeader("Authorization") String authHeader) {
-        List<Change> changes = changeService.getChangesByProject(projectId, authHeader);
-        
-        Map<String, Long> contributionsByDate = changes.stream()
-            .collect(Collectors.groupingBy(
-                change -> change.getCreatedAt().toLocalDate().toString(),
-                Collectors.counting()
-            ));
+
+        Map<String, Long> contributionsByDate = changeService.getContributionsByDate(projectId, authHeader)
+            .entrySet().stream()
+            .collect(Collectors.toMap(entry -> entry.getKey().toString(), Map.Entry::getValue));
             
         return ResponseEntity.ok(contributionsByDate);
     }
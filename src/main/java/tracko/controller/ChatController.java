@@ -0,0 +1,69 @@
+package tracko.controller;
+
+import java.security.Principal;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.server.ResponseStatusException;
+
+import tracko.models.messages.MessageRegister;
+import tracko.models.user.User;
+import tracko.service.ProjectService;
+import tracko.service.UserService;
+
+/**
+ * Chat over the STOMP connection: SEND to /app/projects/{projectId}/chat, receive on
+ * /topic/projects/{projectId}/chat. The user is the principal set on CONNECT, so no token is
+ * parsed per message; the username is looked up once per session.
+ */
+@Controller
+public class ChatController {
+
+    private static final String USERNAME_ATTRIBUTE = "tracko.chat.username";
+
+    private final ProjectService projectService;
+    private final UserService userService;
+
+    public ChatController(ProjectService projectService, UserService userService) {
+        this.projectService = projectService;
+        this.userService = userService;
+    }
+
+    @MessageMapping("/projects/{projectId}/chat")
+    public void sendChat(@DestinationVariable String projectId,
+                         @Payload MessageRegister message,
+                         Principal principal,
+                         SimpMessageHeaderAccessor accessor) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
+        }
+        projectService.postChatMessage(projectId, principal.getName(), username(principal.getName(), accessor), message);
+    }
+
+    private String username(String userId, SimpMessageHeaderAccessor accessor) {
+        Map<String, Object> session = accessor.getSessionAttributes();
+        if (session == null) {
+            return lookupUsername(userId);
+        }
+        return (String) session.computeIfAbsent(USERNAME_ATTRIBUTE, key -> lookupUsername(userId));
+    }
+
+    private String lookupUsername(String userId) {
+        User user = userService.getUserById(userId);
+        return user != null ? user.getUsername() : null;
+    }
+
+    // Rejections go back to the sender only, on /user/queue/errors
+    @MessageExceptionHandler(ResponseStatusException.class)
+    @SendToUser("/queue/errors")
+    public Map<String, Object> handleRejection(ResponseStatusException e) {
+        return Map.of("status", e.getStatusCode().value(), "message", String.valueOf(e.getReason()));
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import tracko.models.comment.Comment;
 import tracko.models.comment.CommentRegister;
+import tracko.models.comment.CommentThread;
 import tracko.service.CommentService;
 
 import java.util.List;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 
 @RestController
@@ -40,6 +42,19 @@ public class CommentController {
     
     }
 
+    @GetMapping("/thread")
+    public ResponseEntity<CommentThread> getCommentThread(
+            @PathVariable String projectId,
+            @PathVariable String ideaId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "10") int maxDepth,
+            @RequestHeader("Authorization") String authHeader) {
+
+        CommentThread thread = commentService.getCommentThread(projectId, ideaId, after, limit, maxDepth, authHeader);
+        return ResponseEntity.status(HttpStatus.OK).body(thread);
+    }
+
     @PostMapping("")
     public ResponseEntity<Comment> createRootComment(
             @PathVariable String projectId,
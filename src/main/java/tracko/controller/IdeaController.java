@@ -8,8 +8,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import tracko.models.idea.Idea;
+import tracko.models.idea.IdeaPosition;
 import tracko.models.idea.IdeaRegister;
 import tracko.models.idea.IdeaUpdate;
+import tracko.models.idea.VoteTally;
 import tracko.service.IdeaService;
 
 
@@ -37,9 +39,26 @@ public class IdeaController {
     @GetMapping("")
     public ResponseEntity<List<Idea>> getIdeasByProject(
             @PathVariable String projectId,
+            @RequestParam(required = false) Float minX,
+            @RequestParam(required = false) Float minY,
+            @RequestParam(required = false) Float maxX,
+            @RequestParam(required = false) Float maxY,
             @RequestHeader("Authorization") String authHeader) {
 
-        List<Idea> ideas = ideaService.getIdeasByProject(projectId, authHeader);
+        boolean viewport = minX != null || minY != null || maxX != null || maxY != null;
+        List<Idea> ideas = viewport
+            ? ideaService.getIdeasInViewport(projectId, minX, minY, maxX, maxY, authHeader)
+            : ideaService.getIdeasByProject(projectId, authHeader);
+        return ResponseEntity.status(HttpStatus.OK).body(ideas);
+    }
+
+    @GetMapping("/top")
+    public ResponseEntity<List<Idea>> getTopIdeas(
+            @PathVariable String projectId,
+            @RequestParam(defaultValue = "10") int n,
+            @RequestHeader("Authorization") String authHeader) {
+
+        List<Idea> ideas = ideaService.getTopIdeas(projectId, n, authHeader);
         return ResponseEntity.status(HttpStatus.OK).body(ideas);
     }
 
@@ -64,6 +83,17 @@ public class IdeaController {
         return ResponseEntity.status(HttpStatus.OK).body(updatedIdeaObj);
     }
 
+    @PutMapping("/{ideaId}/position")
+    public ResponseEntity<IdeaPosition> moveIdea(
+            @PathVariable String projectId,
+            @PathVariable String ideaId,
+            @RequestBody IdeaPosition position,
+            @RequestHeader("Authorization") String authHeader) {
+
+        IdeaPosition accepted = ideaService.moveIdea(projectId, ideaId, position, authHeader);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(accepted);
+    }
+
     @DeleteMapping("/{ideaId}")
     public ResponseEntity<Void> deleteIdea(
             @PathVariable String projectId,
@@ -73,5 +103,25 @@ public class IdeaController {
         ideaService.deleteIdea(projectId, ideaId, authHeader);
         return ResponseEntity.noContent().build(); // 204 No Content
     }
-    
+
+    @PostMapping("/{ideaId}/votes/{voteType}")
+    public ResponseEntity<VoteTally> vote(
+            @PathVariable String projectId,
+            @PathVariable String ideaId,
+            @PathVariable String voteType,
+            @RequestHeader("Authorization") String authHeader) {
+
+        VoteTally tally = ideaService.vote(projectId, ideaId, voteType, authHeader);
+        return ResponseEntity.status(HttpStatus.OK).body(tally);
+    }
+
+    @DeleteMapping("/{ideaId}/votes")
+    public ResponseEntity<VoteTally> unvote(
+            @PathVariable String projectId,
+            @PathVariable String ideaId,
+            @RequestHeader("Authorization") String authHeader) {
+
+        VoteTally tally = ideaService.unvote(projectId, ideaId, authHeader);
+        return ResponseEntity.status(HttpStatus.OK).body(tally);
+    }
 }
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import tracko.models.messages.Message;
@@ -19,9 +20,11 @@ import tracko.models.messages.MessageRegister;
 import tracko.models.project.Project;
 import tracko.models.project.ProjectRegister;
 import tracko.models.project.ProjectUpdate;
+import tracko.models.report.ReportJob;
 import tracko.models.user.User;
 import tracko.service.ProjectAuthorizationService;
 import tracko.service.ProjectService;
+import tracko.service.ReportJobService;
 
 
 
@@ -31,9 +34,12 @@ public class ProjectController {
     
     private final ProjectAuthorizationService projectAuthorizationService;
     private final ProjectService projectService;
+    private final ReportJobService reportJobService;
 
-    ProjectController(ProjectAuthorizationService projectAuthorizationService, ProjectService projectService) {
+    ProjectController(ProjectAuthorizationService projectAuthorizationService, ProjectService projectService,
+                      ReportJobService reportJobService) {
         this.projectService = projectService;
+        this.reportJobService = reportJobService;
         this.projectAuthorizationService = projectAuthorizationService;
     }
 
@@ -86,6 +92,21 @@ public class ProjectController {
         String report = projectService.generateReport(projectId, authHeader);
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(report);
     }
+
+    // Queues the report instead of holding the request for the whole model round trip
+    @PostMapping("/{projectId}/report")
+    public ResponseEntity<ReportJob> submitReport(@PathVariable String projectId, @RequestHeader("Authorization") String authHeader) {
+        ReportJob job = reportJobService.submit(projectId, authHeader);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    // 202 while the job is queued or running, 200 once it has finished
+    @GetMapping("/{projectId}/report/jobs/{jobId}")
+    public ResponseEntity<ReportJob> getReportJob(@PathVariable String projectId, @PathVariable String jobId,
+                                                  @RequestHeader("Authorization") String authHeader) {
+        ReportJob job = reportJobService.getJob(projectId, jobId, authHeader);
+        return ResponseEntity.status(job.isFinished() ? HttpStatus.OK : HttpStatus.ACCEPTED).body(job);
+    }
     
 
     @PostMapping("/{projectId}/messages")    
@@ -97,8 +118,11 @@ public class ProjectController {
     }
 
     @GetMapping("/{projectId}/messages")    
-    public ResponseEntity<List<Message>> getMessages(@PathVariable String projectId, @RequestHeader("Authorization") String authHeader) {
-        List<Message> messages = projectService.getMessages(projectId, authHeader);
+    public ResponseEntity<List<Message>> getMessages(@PathVariable String projectId,
+                                                     @RequestParam(required = false) String before,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestHeader("Authorization") String authHeader) {
+        List<Message> messages = projectService.getMessages(projectId, before, limit, authHeader);
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(messages);
     }
 }
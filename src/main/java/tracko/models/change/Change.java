@@ -2,11 +2,15 @@ package tracko.models.change;
 
 import java.time.LocalDateTime;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import tracko.constant.ChangeType;
 
 @Document(collection = "Changes")
+// Prefixes serve project-wide and per-user lookups; createdAt bounds the analytics window
+@CompoundIndex(name = "project_owner_created", def = "{'projectId': 1, 'ownerId': 1, 'createdAt': 1}")
+@CompoundIndex(name = "project_seq", def = "{'projectId': 1, 'seq': 1}")
 public class Change {
     
     @Id
@@ -16,6 +20,7 @@ public class Change {
     private ChangeType changeType;
     private String changeDescription;
     private LocalDateTime createdAt;
+    private long seq; // per-project, increasing in write order; 0 for user changes and older data
 
     public String getChangeId() { return changeId; }
     public void setChangeId(String changeId) { this.changeId = changeId; }
@@ -34,4 +39,7 @@ public class Change {
 
     public String getOwnerId() { return ownerId; }
     public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
 }
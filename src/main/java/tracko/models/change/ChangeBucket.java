@@ -0,0 +1,85 @@
+package tracko.models.change;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import tracko.constant.ChangeType;
+
+// One document per (project, hour) holding that hour's changes as compact entries: the type
+// ordinal, the owner and the offset from the start of the hour. Descriptions are not stored;
+// expand() derives them from the type. Changes outside a project are bucketed per owner.
+@Document(collection = "ChangeBuckets")
+@CompoundIndex(name = "project_start", def = "{'projectId': 1, 'start': 1}")
+// Sequence range of the bucket's entries, so the change feed skips buckets it has already seen
+@CompoundIndex(name = "project_seq", def = "{'projectId': 1, 'firstSeq': 1, 'lastSeq': 1}")
+public class ChangeBucket {
+
+    public record Entry(@Field("i") String changeId,
+                        @Field("t") int type,
+                        @Field("o") String ownerId,
+                        @Field("s") long offsetMillis,
+                        @Field("n") long seq) {}
+
+    @Id
+    private String id;
+    private String projectId;
+    private String ownerId; // only set on buckets of changes outside a project
+    private LocalDateTime start;
+    private long firstSeq;
+    private long lastSeq;
+    private List<Entry> events = new ArrayList<>();
+
+    public static LocalDateTime startOf(LocalDateTime createdAt) {
+        return createdAt.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    public static String idOf(String projectId, String ownerId, LocalDateTime start) {
+        return (projectId != null ? projectId : "user-" + ownerId) + ":" + start;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getProjectId() { return projectId; }
+    public void setProjectId(String projectId) { this.projectId = projectId; }
+
+    public String getOwnerId() { return ownerId; }
+    public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+
+    public LocalDateTime getStart() { return start; }
+    public void setStart(LocalDateTime start) { this.start = start; }
+
+    public long getFirstSeq() { return firstSeq; }
+    public void setFirstSeq(long firstSeq) { this.firstSeq = firstSeq; }
+
+    public long getLastSeq() { return lastSeq; }
+    public void setLastSeq(long lastSeq) { this.lastSeq = lastSeq; }
+
+    public List<Entry> getEvents() { return events; }
+    public void setEvents(List<Entry> events) { this.events = events; }
+
+    public List<Change> expand() {
+        ChangeType[] types = ChangeType.values();
+        List<Change> changes = new ArrayList<>(events.size());
+        for (Entry entry : events) {
+            ChangeType type = types[entry.type()];
+            Change change = new Change();
+            change.setChangeId(entry.changeId());
+            change.setProjectId(projectId);
+            change.setOwnerId(entry.ownerId());
+            change.setChangeType(type);
+            change.setChangeDescription(type.getDescription());
+            change.setCreatedAt(start.plus(entry.offsetMillis(), ChronoUnit.MILLIS));
+            change.setSeq(entry.seq());
+            changes.add(change);
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,9 @@
+package tracko.models.change;
+
+import java.util.List;
+
+/**
+ * A page of a project's changes in sequence order. nextCursor is the sequence number to pass as
+ * "after" for the next page; hasMore is false once the client is caught up.
+ */
+public record ChangeFeed(List<Change> changes, long nextCursor, boolean hasMore) {}
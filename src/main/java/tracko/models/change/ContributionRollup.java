@@ -0,0 +1,55 @@
+package tracko.models.change;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import tracko.constant.ChangeType;
+
+// Per (project, user, day) counters of project changes, maintained with $inc on every change
+// so the analytics endpoints read O(days) documents instead of every Change.
+@Document(collection = "ContributionRollups")
+@CompoundIndex(name = "project_day", def = "{'projectId': 1, 'day': 1}")
+@CompoundIndex(name = "project_owner_day", def = "{'projectId': 1, 'ownerId': 1, 'day': 1}")
+public class ContributionRollup {
+
+    @Id
+    private String id;
+    private String projectId;
+    private String ownerId;
+    private String day; // ISO yyyy-MM-dd, so string order is date order
+    private Map<String, Long> counts = new HashMap<>(); // ChangeType name -> count
+    private long total;
+
+    public static String idOf(String projectId, String ownerId, LocalDate day) {
+        return projectId + ":" + ownerId + ":" + day;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getProjectId() { return projectId; }
+    public void setProjectId(String projectId) { this.projectId = projectId; }
+
+    public String getOwnerId() { return ownerId; }
+    public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+
+    public String getDay() { return day; }
+    public void setDay(String day) { this.day = day; }
+
+    public Map<String, Long> getCounts() { return counts; }
+    public void setCounts(Map<String, Long> counts) { this.counts = counts; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public LocalDate getDate() { return LocalDate.parse(day); }
+
+    public long count(ChangeType type) {
+        return counts != null ? counts.getOrDefault(type.name(), 0L) : 0L;
+    }
+}
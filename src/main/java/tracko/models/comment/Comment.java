@@ -3,9 +3,14 @@ package tracko.models.comment;
 import java.time.LocalDateTime;
 import java.util.List;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "Comments")
+// A whole thread, in display order, is one range scan over this index
+@CompoundIndex(name = "idea_path", def = "{'ideaId': 1, 'path': 1}")
+// A project's comments newest first, as the report prompt reads them, without an in-memory sort
+@CompoundIndex(name = "project_created", def = "{'projectId': 1, 'createdAt': -1, '_id': -1}")
 public class Comment {
 
     @Id
@@ -16,6 +21,11 @@ public class Comment {
     private String projectId;
     private List<String> replies; 
     private LocalDateTime createdAt;
+    private String parentId; // null for a root comment
+    // Materialized path: the ids of all ancestors and the comment itself, each followed by '/'.
+    // Sorting by it yields the thread depth-first, with siblings in creation order.
+    private String path;
+    private int depth; // 0 for a root comment
 
 
 
@@ -40,4 +50,13 @@ public class Comment {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
+    public String getParentId() { return parentId; }
+    public void setParentId(String parentId) { this.parentId = parentId; }
+
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+
+    public int getDepth() { return depth; }
+    public void setDepth(int depth) { this.depth = depth; }
+
 }
@@ -0,0 +1,5 @@
+package tracko.models.comment;
+
+import java.util.List;
+
+public record CommentNode(Comment comment, List<CommentNode> replies) {}
@@ -0,0 +1,10 @@
+package tracko.models.comment;
+
+import java.util.List;
+
+/**
+ * One page of an idea's discussion, nested and in display order. Replies whose parent was on an
+ * earlier page appear at the top level (their parentId says where they belong). nextCursor is
+ * null on the last page.
+ */
+public record CommentThread(List<CommentNode> comments, String nextCursor) {}
@@ -4,18 +4,21 @@ package tracko.models.idea;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 
 
 @Document(collection = "Ideas")
+// Serves both project lookups (prefix) and viewport range queries over the board
+@CompoundIndex(name = "project_position", def = "{'projectId': 1, 'x': 1, 'y': 1}")
+// Matches findTopByScore's sort, tie-breaker included, so the top N are read off the index
+@CompoundIndex(name = "project_score_upvotes", def = "{'projectId': 1, 'score': -1, 'upVoteCount': -1}")
 public class Idea {
     @Id
     private String ideaId;
     private String ideaName;
     private String ideaDescription;
-    @Indexed
     private String projectId;
     private String ownerId;
     private Float x;
@@ -26,6 +29,12 @@ public class Idea {
     private List<String> upVotes;
     private List<String> downVotes;
     private List<String> comments;
+    // Denormalized from upVotes/downVotes and the Comments collection, so rankings need no arrays.
+    // Boxed so ideas stored before the counters existed keep them absent until the backfill runs
+    private Integer upVoteCount;
+    private Integer downVoteCount;
+    private Integer commentCount;
+    private Integer score; // upVoteCount - downVoteCount
 
     public String getIdeaId() { return ideaId; }
     public void setIdeaId(String ideaId) { this.ideaId = ideaId; }
@@ -66,4 +75,26 @@ public class Idea {
     public Float gety() { return y; }
     public void sety(Float y) { this.y = y; }
 
+    public int getUpVoteCount() { return upVoteCount != null ? upVoteCount : 0; }
+    public void setUpVoteCount(int upVoteCount) { this.upVoteCount = upVoteCount; }
+
+    public int getDownVoteCount() { return downVoteCount != null ? downVoteCount : 0; }
+    public void setDownVoteCount(int downVoteCount) { this.downVoteCount = downVoteCount; }
+
+    public int getCommentCount() { return commentCount != null ? commentCount : 0; }
+    public void setCommentCount(int commentCount) { this.commentCount = commentCount; }
+
+    public int getScore() { return score != null ? score : 0; }
+    public void setScore(int score) { this.score = score; }
+
+    /** False for ideas the counter backfill has not reached yet. */
+    public boolean hasCounters() { return score != null; }
+
+    public void initCounters() {
+        upVoteCount = 0;
+        downVoteCount = 0;
+        commentCount = 0;
+        score = 0;
+    }
+
 }
@@ -0,0 +1,3 @@
+package tracko.models.idea;
+
+public record IdeaCoordinates(String projectId, String ideaId, Float x, Float y) {}
@@ -0,0 +1,13 @@
+package tracko.models.idea;
+
+public class IdeaPosition {
+
+    private Float x;
+    private Float y;
+
+    public Float getX() { return x; }
+    public void setX(Float x) { this.x = x; }
+
+    public Float getY() { return y; }
+    public void setY(Float y) { this.y = y; }
+}
@@ -0,0 +1,32 @@
+package tracko.models.idea;
+
+import tracko.constant.VoteType;
+
+public class VoteTally {
+
+    private String ideaId;
+    private int upVoteCount;
+    private int downVoteCount;
+    private VoteType userVote; // null when the caller has no vote on the idea
+
+    public VoteTally() {}
+
+    public VoteTally(String ideaId, int upVoteCount, int downVoteCount, VoteType userVote) {
+        this.ideaId = ideaId;
+        this.upVoteCount = upVoteCount;
+        this.downVoteCount = downVoteCount;
+        this.userVote = userVote;
+    }
+
+    public String getIdeaId() { return ideaId; }
+    public void setIdeaId(String ideaId) { this.ideaId = ideaId; }
+
+    public int getUpVoteCount() { return upVoteCount; }
+    public void setUpVoteCount(int upVoteCount) { this.upVoteCount = upVoteCount; }
+
+    public int getDownVoteCount() { return downVoteCount; }
+    public void setDownVoteCount(int downVoteCount) { this.downVoteCount = downVoteCount; }
+
+    public VoteType getUserVote() { return userVote; }
+    public void setUserVote(VoteType userVote) { this.userVote = userVote; }
+}
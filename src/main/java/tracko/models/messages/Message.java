@@ -2,9 +2,12 @@ package tracko.models.messages;
 
 import java.time.LocalDateTime;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "Messages")
+// Serves the newest-first chat pages and their (createdAt, _id) keyset
+@CompoundIndex(name = "project_created_id", def = "{'projectId': 1, 'createdAt': -1, '_id': -1}")
 public class Message {
  
     @Id
@@ -0,0 +1,31 @@
+package tracko.models.project;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Lightweight view of a project holding only what authorization checks need.
+ * Member ids are kept in a set so membership tests are constant time.
+ */
+public record ProjectHeader(String projectId, String projectName, String ownerId, Set<String> memberIds) {
+
+    public static ProjectHeader of(Project project) {
+        return new ProjectHeader(
+            project.getProjectId(),
+            project.getProjectName(),
+            project.getOwnerId(),
+            project.getProjectMembers() != null
+                ? Collections.unmodifiableSet(new HashSet<>(project.getProjectMembers()))
+                : Set.of()
+        );
+    }
+
+    public boolean isOwner(String userId) {
+        return ownerId != null && ownerId.equals(userId);
+    }
+
+    public boolean hasAccess(String userId) {
+        return isOwner(userId) || memberIds.contains(userId);
+    }
+}
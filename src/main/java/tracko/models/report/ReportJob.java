@@ -0,0 +1,44 @@
+package tracko.models.report;
+
+import java.time.LocalDateTime;
+
+import tracko.constant.ReportJobStatus;
+
+/**
+ * State of one report generation. Each transition returns a new job; once DONE it carries the
+ * stored report, once FAILED the reason.
+ */
+public record ReportJob(String jobId,
+                        String projectId,
+                        String requestedBy,
+                        ReportJobStatus status,
+                        String reportId,
+                        String reportContent,
+                        String error,
+                        LocalDateTime createdAt,
+                        LocalDateTime finishedAt) {
+
+    public static ReportJob queued(String jobId, String projectId, String requestedBy) {
+        return new ReportJob(jobId, projectId, requestedBy, ReportJobStatus.QUEUED,
+            null, null, null, LocalDateTime.now(), null);
+    }
+
+    public ReportJob running() {
+        return new ReportJob(jobId, projectId, requestedBy, ReportJobStatus.RUNNING,
+            null, null, null, createdAt, null);
+    }
+
+    public ReportJob done(Report report) {
+        return new ReportJob(jobId, projectId, requestedBy, ReportJobStatus.DONE,
+            report.getReportId(), report.getReportContent(), null, createdAt, LocalDateTime.now());
+    }
+
+    public ReportJob failed(String error) {
+        return new ReportJob(jobId, projectId, requestedBy, ReportJobStatus.FAILED,
+            null, null, error, createdAt, LocalDateTime.now());
+    }
+
+    public boolean isFinished() {
+        return status == ReportJobStatus.DONE || status == ReportJobStatus.FAILED;
+    }
+}
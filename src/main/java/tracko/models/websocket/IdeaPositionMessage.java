@@ -0,0 +1,39 @@
+package tracko.models.websocket;
+
+// Compact delta broadcast on the idea topic while an idea is being dragged.
+public class IdeaPositionMessage {
+    private String action = "MOVE";
+    private String projectId;
+    private String ideaId;
+    private Float x;
+    private Float y;
+    private long sequence; // shared with the other messages on the idea topic
+
+    public IdeaPositionMessage() {}
+
+    public IdeaPositionMessage(String projectId, String ideaId, Float x, Float y, long sequence) {
+        this.projectId = projectId;
+        this.ideaId = ideaId;
+        this.x = x;
+        this.y = y;
+        this.sequence = sequence;
+    }
+
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+
+    public String getProjectId() { return projectId; }
+    public void setProjectId(String projectId) { this.projectId = projectId; }
+
+    public String getIdeaId() { return ideaId; }
+    public void setIdeaId(String ideaId) { this.ideaId = ideaId; }
+
+    public Float getX() { return x; }
+    public void setX(Float x) { this.x = x; }
+
+    public Float getY() { return y; }
+    public void setY(Float y) { this.y = y; }
+
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+}
@@ -4,17 +4,30 @@
 // Data Transfer Object (DTO): It carries information about idea changes from your server to connected clients.
 // Event Classification: The action field helps clients understand what happened (was an idea created, updated, or deleted?).
 // Context Information: It provides the necessary context (projectId, ideaId) so clients know which specific entity changed.
-// Payload: The idea field contains the actual data that changed, allowing clients to update their local state.
+// Payload: CREATE carries the full idea, UPDATE only the fields that changed (keyed by their Idea property name), DELETE nothing.
+// Ordering: sequence increases by one per message within a project, counting VOTE and MOVE messages too,
+// so clients can spot a gap and refetch the board.
 
 package tracko.models.websocket;
 
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import tracko.models.idea.Idea;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class IdeaUpdateMessage {
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
     private String ideaId;
     private String projectId;
     private String action; // "CREATE", "UPDATE", "DELETE"
+    private long sequence;
     private Idea idea;
+    private Map<String, Object> changes;
     
     // Constructors
     public IdeaUpdateMessage() {}
@@ -25,6 +38,25 @@ public class IdeaUpdateMessage {
         this.ideaId = ideaId;
         this.idea = idea;
     }
+
+    public static IdeaUpdateMessage created(String projectId, long sequence, Idea idea) {
+        IdeaUpdateMessage message = new IdeaUpdateMessage(CREATE, projectId, idea.getIdeaId(), idea);
+        message.setSequence(sequence);
+        return message;
+    }
+
+    public static IdeaUpdateMessage updated(String projectId, String ideaId, long sequence, Map<String, Object> changes) {
+        IdeaUpdateMessage message = new IdeaUpdateMessage(UPDATE, projectId, ideaId, null);
+        message.setSequence(sequence);
+        message.setChanges(changes);
+        return message;
+    }
+
+    public static IdeaUpdateMessage deleted(String projectId, String ideaId, long sequence) {
+        IdeaUpdateMessage message = new IdeaUpdateMessage(DELETE, projectId, ideaId, null);
+        message.setSequence(sequence);
+        return message;
+    }
     
     // Getters and setters
     public String getIdeaId() {
@@ -58,4 +90,20 @@ public class IdeaUpdateMessage {
     public void setIdea(Idea idea) {
         this.idea = idea;
     }
-}
\ No newline at end of file
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(Map<String, Object> changes) {
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,53 @@
+package tracko.models.websocket;
+
+import tracko.constant.VoteType;
+
+// Compact delta broadcast on the idea topic when someone votes, so clients
+// can update the counters without receiving the voter lists.
+public class IdeaVoteMessage {
+    private String action = "VOTE";
+    private String projectId;
+    private String ideaId;
+    private String userId;
+    private VoteType vote; // null means the user removed their vote
+    private int upVoteCount;
+    private int downVoteCount;
+    private long sequence; // shared with the other messages on the idea topic
+
+    public IdeaVoteMessage() {}
+
+    public IdeaVoteMessage(String projectId, String ideaId, String userId, VoteType vote, int upVoteCount, int downVoteCount,
+                           long sequence) {
+        this.projectId = projectId;
+        this.ideaId = ideaId;
+        this.userId = userId;
+        this.vote = vote;
+        this.upVoteCount = upVoteCount;
+        this.downVoteCount = downVoteCount;
+        this.sequence = sequence;
+    }
+
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+
+    public String getProjectId() { return projectId; }
+    public void setProjectId(String projectId) { this.projectId = projectId; }
+
+    public String getIdeaId() { return ideaId; }
+    public void setIdeaId(String ideaId) { this.ideaId = ideaId; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public VoteType getVote() { return vote; }
+    public void setVote(VoteType vote) { this.vote = vote; }
+
+    public int getUpVoteCount() { return upVoteCount; }
+    public void setUpVoteCount(int upVoteCount) { this.upVoteCount = upVoteCount; }
+
+    public int getDownVoteCount() { return downVoteCount; }
+    public void setDownVoteCount(int downVoteCount) { this.downVoteCount = downVoteCount; }
+
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+}
@@ -7,10 +7,9 @@ import tracko.models.change.Change;
 import java.util.List;
 
 
-public interface ChangeRepository extends MongoRepository<Change, String> {
+public interface ChangeRepository extends MongoRepository<Change, String>, ChangeRepositoryCustom {
     List<Change> findByProjectId(String projectId);
     List<Change> findByOwnerId(String ownerId);  
     void deleteByProjectId(String projectId);  
-    List<Change> findByProjectId(String projectId, String ownerId);
     List<Change> findByOwnerIdAndProjectId(String ownerId, String projectId);
 }
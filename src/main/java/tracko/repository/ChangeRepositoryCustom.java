@@ -0,0 +1,39 @@
+package tracko.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import tracko.models.change.Change;
+
+public interface ChangeRepositoryCustom {
+
+    /**
+     * Stores new changes in the configured storage mode (changes.storage.mode): one document
+     * per change, or appended to per-(project, hour) buckets. Ids and per-project sequence
+     * numbers are assigned in place, in list order. Calling it again with the same, already
+     * numbered list stores only the changes the earlier call did not.
+     */
+    List<Change> storeAll(List<Change> changes);
+
+    /** Up to limit of a project's changes with a sequence number above afterSeq, in sequence order. */
+    List<Change> findProjectFeed(String projectId, long afterSeq, int limit);
+
+    /** The sequence number of one of a project's changes, if it exists. */
+    Optional<Long> findSeq(String projectId, String changeId);
+
+    /** A project's changes in creation order, from both the buckets and per-change documents. */
+    List<Change> findProjectHistory(String projectId);
+
+    /** How many of a project's changes were created after from and before to, in buckets and documents. */
+    long countProjectChanges(String projectId, LocalDateTime from, LocalDateTime to);
+
+    void deleteProjectHistory(String projectId);
+
+    /**
+     * Moves up to batchSize per-change documents into buckets and deletes them. Entries are
+     * added with $addToSet, so a batch interrupted before the delete can be redone safely.
+     * Returns how many documents were moved.
+     */
+    int migrateToBuckets(int batchSize);
+}
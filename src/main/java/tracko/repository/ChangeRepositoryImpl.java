@@ -0,0 +1,259 @@
+package tracko.repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import tracko.models.change.Change;
+import tracko.models.change.ChangeBucket;
+
+public class ChangeRepositoryImpl implements ChangeRepositoryCustom {
+
+    private static final String SEQUENCE_COLLECTION = "ChangeSequences";
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean bucketed;
+
+    public ChangeRepositoryImpl(MongoTemplate mongoTemplate,
+                                @Value("${changes.storage.mode:documents}") String storageMode) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketed = "buckets".equalsIgnoreCase(storageMode);
+    }
+
+    @Override
+    public List<Change> storeAll(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return changes;
+        }
+        // Ids are handed out before the first attempt, so one set on entry means this batch was
+        // tried before and may be partly stored already
+        boolean retried = changes.stream().anyMatch(change -> change.getChangeId() != null);
+        assignSequences(changes);
+        for (Change change : changes) {
+            if (change.getChangeId() == null) {
+                change.setChangeId(new ObjectId().toHexString());
+            }
+        }
+
+        if (!bucketed) {
+            List<Change> missing = retried ? notStored(changes) : changes;
+            if (!missing.isEmpty()) {
+                mongoTemplate.insertAll(missing);
+            }
+            return changes;
+        }
+        // $addToSet on a retry, so entries that made it the first time are not appended twice
+        appendToBuckets(changes, retried);
+        return changes;
+    }
+
+    private List<Change> notStored(List<Change> changes) {
+        Query query = new Query(Criteria.where("_id").in(changes.stream().map(Change::getChangeId).toList()));
+        query.fields().include("_id");
+        Set<String> stored = new HashSet<>();
+        mongoTemplate.find(query, Change.class).forEach(change -> stored.add(change.getChangeId()));
+        return changes.stream().filter(change -> !stored.contains(change.getChangeId())).toList();
+    }
+
+    private void assignSequences(List<Change> changes) {
+        // Already numbered if this is a retry of a failed write
+        Map<String, List<Change>> byProject = new LinkedHashMap<>();
+        for (Change change : changes) {
+            if (change.getProjectId() != null && change.getSeq() == 0) {
+                byProject.computeIfAbsent(change.getProjectId(), id -> new ArrayList<>()).add(change);
+            }
+        }
+
+        // One $inc per project reserves a block of numbers for the whole batch
+        byProject.forEach((projectId, projectChanges) -> {
+            Document counter = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(projectId)),
+                new Update().inc("seq", projectChanges.size()),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class,
+                SEQUENCE_COLLECTION);
+            long next = ((Number) counter.get("seq")).longValue() - projectChanges.size();
+            for (Change change : projectChanges) {
+                change.setSeq(++next);
+            }
+        });
+    }
+
+    private void appendToBuckets(List<Change> changes, boolean idempotent) {
+        // Fold the batch so each bucket gets a single $push/$addToSet with all of its entries
+        Map<String, List<Document>> entries = new LinkedHashMap<>();
+        Map<String, Update> updates = new LinkedHashMap<>();
+        for (Change change : changes) {
+            LocalDateTime start = ChangeBucket.startOf(change.getCreatedAt());
+            String id = ChangeBucket.idOf(change.getProjectId(), change.getOwnerId(), start);
+            Update update = updates.computeIfAbsent(id, key -> {
+                Update insert = new Update()
+                    .setOnInsert("projectId", change.getProjectId())
+                    .setOnInsert("start", start);
+                if (change.getProjectId() == null) {
+                    insert.setOnInsert("ownerId", change.getOwnerId());
+                }
+                return insert;
+            });
+            if (change.getSeq() > 0) {
+                update.min("firstSeq", change.getSeq()).max("lastSeq", change.getSeq());
+            }
+            entries.computeIfAbsent(id, key -> new ArrayList<>()).add(new Document("i", change.getChangeId())
+                .append("t", change.getChangeType().ordinal())
+                .append("o", change.getOwnerId())
+                .append("s", Duration.between(start, change.getCreatedAt()).toMillis())
+                .append("n", change.getSeq()));
+        }
+
+        // Ordered, so buckets are written in the order of their first entry and a failure leaves
+        // only a prefix stored; the feed waits out the short window where a later bucket shows first
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ChangeBucket.class);
+        updates.forEach((id, update) -> {
+            Object[] values = entries.get(id).toArray();
+            if (idempotent) {
+                update.addToSet("events").each(values);
+            } else {
+                update.push("events").each(values);
+            }
+            bulk.upsert(new Query(Criteria.where("_id").is(id)), update);
+        });
+        bulk.execute();
+    }
+
+    @Override
+    public List<Change> findProjectHistory(String projectId) {
+        Query documents = new Query(Criteria.where("projectId").is(projectId));
+        if (!bucketed) {
+            return mongoTemplate.find(documents, Change.class);
+        }
+
+        List<Change> changes = new ArrayList<>();
+        Query buckets = new Query(Criteria.where("projectId").is(projectId)).with(Sort.by("start"));
+        for (ChangeBucket bucket : mongoTemplate.find(buckets, ChangeBucket.class)) {
+            changes.addAll(bucket.expand());
+        }
+        // Documents not migrated yet
+        changes.addAll(mongoTemplate.find(documents, Change.class));
+        changes.sort(Comparator.comparing(Change::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return changes;
+    }
+
+    @Override
+    public long countProjectChanges(String projectId, LocalDateTime from, LocalDateTime to) {
+        long count = mongoTemplate.count(new Query(Criteria.where("projectId").is(projectId)
+            .and("createdAt").gt(from).lt(to)), Change.class);
+        if (!bucketed) {
+            return count;
+        }
+
+        // Buckets cover whole hours, so the first one may start before from; filter its entries
+        Query buckets = new Query(Criteria.where("projectId").is(projectId)
+            .and("start").gte(ChangeBucket.startOf(from)).lt(to));
+        for (ChangeBucket bucket : mongoTemplate.find(buckets, ChangeBucket.class)) {
+            count += bucket.expand().stream()
+                .filter(change -> change.getCreatedAt().isAfter(from) && change.getCreatedAt().isBefore(to))
+                .count();
+        }
+        return count;
+    }
+
+    @Override
+    public List<Change> findProjectFeed(String projectId, long afterSeq, int limit) {
+        Query documents = new Query(Criteria.where("projectId").is(projectId).and("seq").gt(afterSeq))
+            .with(Sort.by("seq"))
+            .limit(limit);
+        List<Change> feed = new ArrayList<>(mongoTemplate.find(documents, Change.class));
+        if (!bucketed) {
+            return feed;
+        }
+
+        // Buckets come in order of their lowest number. Once one starts above the limit-th change
+        // collected so far, no later bucket can contribute to this page.
+        Query buckets = new Query(Criteria.where("projectId").is(projectId).and("lastSeq").gt(afterSeq))
+            .with(Sort.by("firstSeq"));
+        try (Stream<ChangeBucket> stream = mongoTemplate.stream(buckets, ChangeBucket.class)) {
+            Iterator<ChangeBucket> it = stream.iterator();
+            while (it.hasNext()) {
+                ChangeBucket bucket = it.next();
+                if (feed.size() >= limit && bucket.getFirstSeq() > feed.get(limit - 1).getSeq()) {
+                    break;
+                }
+                for (Change change : bucket.expand()) {
+                    if (change.getSeq() > afterSeq) {
+                        feed.add(change);
+                    }
+                }
+                feed.sort(Comparator.comparingLong(Change::getSeq));
+            }
+        }
+        return feed.size() > limit ? new ArrayList<>(feed.subList(0, limit)) : feed;
+    }
+
+    @Override
+    public Optional<Long> findSeq(String projectId, String changeId) {
+        Change change = mongoTemplate.findOne(
+            new Query(Criteria.where("_id").is(changeId).and("projectId").is(projectId)), Change.class);
+        if (change != null) {
+            return Optional.of(change.getSeq());
+        }
+        if (!bucketed) {
+            return Optional.empty();
+        }
+
+        // Entry ids aren't indexed, to keep buckets small; numeric cursors are the cheap path
+        ChangeBucket bucket = mongoTemplate.findOne(
+            new Query(Criteria.where("projectId").is(projectId).and("events.i").is(changeId)), ChangeBucket.class);
+        if (bucket == null) {
+            return Optional.empty();
+        }
+        return bucket.getEvents().stream()
+            .filter(entry -> changeId.equals(entry.changeId()))
+            .map(ChangeBucket.Entry::seq)
+            .findFirst();
+    }
+
+    @Override
+    public void deleteProjectHistory(String projectId) {
+        Query query = new Query(Criteria.where("projectId").is(projectId));
+        mongoTemplate.remove(query, Change.class);
+        mongoTemplate.remove(query, ChangeBucket.class);
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(projectId)), SEQUENCE_COLLECTION);
+    }
+
+    @Override
+    public int migrateToBuckets(int batchSize) {
+        // Documents without a time or type can't be placed in a bucket and are left where they are
+        Query query = new Query(Criteria.where("createdAt").ne(null).and("changeType").ne(null))
+            .with(Sort.by("_id"))
+            .limit(batchSize);
+        List<Change> batch = mongoTemplate.find(query, Change.class);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        appendToBuckets(batch, true);
+        List<String> ids = batch.stream().map(Change::getChangeId).toList();
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), Change.class);
+        return batch.size();
+    }
+}
@@ -1,16 +1,28 @@
 package tracko.repository;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import tracko.models.comment.Comment;
 
 
-public interface CommentRepository extends MongoRepository<Comment, String> {
+public interface CommentRepository extends MongoRepository<Comment, String>, CommentRepositoryCustom {
     //List<Comment> findByParentCommentId(String parentCommentId);
     List<Comment> findByIdeaId(String ideaId);
     List<Comment> findByOwnerId(String ownerId);
     void deleteByIdeaId(String ideaId);
 
+    @Query(value = "{ 'ideaId': ?0, 'path': { $gt: ?1 }, 'depth': { $lte: ?2 } }", sort = "{ 'path': 1 }")
+    List<Comment> findThread(String ideaId, String afterPath, int maxDepth, Pageable page);
 
-}
\ No newline at end of file
+    List<Comment> findByPathIsNull(Pageable page);
+
+    boolean existsByIdeaIdAndPathIsNull(String ideaId);
+
+    // A project's comments newest first, read along the project_created index; close the stream when done
+    Stream<Comment> streamByProjectIdOrderByCreatedAtDescCommentIdDesc(String projectId);
+
+}
@@ -0,0 +1,29 @@
+package tracko.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import tracko.models.comment.Comment;
+
+public interface CommentRepositoryCustom {
+    /** Ids of the comments of the idea whose path starts with the given prefix, i.e. a comment and its descendants. */
+    List<String> findSubtreeIds(String ideaId, String pathPrefix);
+
+    /**
+     * Deletes the same subtree with one deleteMany on the path prefix, so replies added after
+     * {@link #findSubtreeIds} are removed too. Returns how many comments were removed.
+     */
+    long deleteSubtree(String ideaId, String pathPrefix);
+
+    /** Deletes the given comments with one deleteMany and returns how many were removed. */
+    long deleteAllByIds(List<String> commentIds);
+
+    /**
+     * Writes only parentId, path and depth of the given comments, in one bulk, and only to those
+     * that still have no path, so replies appended since they were read are kept.
+     */
+    void setPaths(Collection<Comment> comments);
+
+    /** Removes a reply id from its parent's replies list. */
+    void pullReply(String parentId, String replyId);
+}
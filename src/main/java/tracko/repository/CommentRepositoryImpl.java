@@ -0,0 +1,78 @@
+package tracko.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import tracko.models.comment.Comment;
+
+public class CommentRepositoryImpl implements CommentRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public CommentRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<String> findSubtreeIds(String ideaId, String pathPrefix) {
+        Query query = subtree(ideaId, pathPrefix);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Comment.class).stream()
+            .map(Comment::getCommentId)
+            .toList();
+    }
+
+    @Override
+    public long deleteSubtree(String ideaId, String pathPrefix) {
+        return mongoTemplate.remove(subtree(ideaId, pathPrefix), Comment.class).getDeletedCount();
+    }
+
+    private static Query subtree(String ideaId, String pathPrefix) {
+        // Anchored prefix regex, so the {ideaId, path} index bounds the scan
+        return new Query(Criteria.where("ideaId").is(ideaId)
+            .and("path").regex("^" + Pattern.quote(pathPrefix)));
+    }
+
+    @Override
+    public long deleteAllByIds(List<String> commentIds) {
+        if (commentIds.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.remove(new Query(Criteria.where("_id").in(commentIds)), Comment.class).getDeletedCount();
+    }
+
+    @Override
+    public void setPaths(Collection<Comment> comments) {
+        if (comments.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Comment.class);
+        for (Comment comment : comments) {
+            bulk.updateOne(
+                new Query(Criteria.where("_id").is(comment.getCommentId()).and("path").is(null)),
+                new Update()
+                    .set("parentId", comment.getParentId())
+                    .set("path", comment.getPath())
+                    .set("depth", comment.getDepth())
+            );
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public void pullReply(String parentId, String replyId) {
+        mongoTemplate.updateFirst(
+            new Query(Criteria.where("_id").is(parentId)),
+            new Update().pull("replies", replyId),
+            Comment.class
+        );
+    }
+}
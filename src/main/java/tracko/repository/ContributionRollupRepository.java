@@ -0,0 +1,14 @@
+package tracko.repository;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import tracko.models.change.ContributionRollup;
+
+public interface ContributionRollupRepository extends MongoRepository<ContributionRollup, String>, ContributionRollupRepositoryCustom {
+    List<ContributionRollup> findByProjectId(String projectId);
+    List<ContributionRollup> findByProjectIdAndDayGreaterThanEqual(String projectId, String day);
+    List<ContributionRollup> findByProjectIdAndOwnerIdAndDayGreaterThanEqual(String projectId, String ownerId, String day);
+    void deleteByProjectId(String projectId);
+}
@@ -0,0 +1,34 @@
+package tracko.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import tracko.constant.ChangeType;
+import tracko.models.change.Change;
+import tracko.models.change.ContributionRollup;
+
+public interface ContributionRollupRepositoryCustom {
+    /** Atomically counts one change of the given type, creating the day's document if needed. */
+    void increment(String projectId, String ownerId, LocalDate day, ChangeType type);
+
+    /** Counts many project changes with one bulk write of upserts, one per (project, user, day). */
+    void incrementAll(Collection<Change> changes);
+
+    /**
+     * Computes a project's rollups from its changes inside Mongo: $match on the project,
+     * then $group by owner, day and change type. Nothing is written.
+     */
+    List<ContributionRollup> aggregateFromChanges(String projectId);
+
+    /**
+     * Upserts recomputed rollups, raising each count with $max rather than replacing the document,
+     * so $incs that land while the recomputation runs are not overwritten.
+     */
+    void mergeMax(Collection<ContributionRollup> rollups);
+
+    /** Projects that have changes but whose rollups were not rebuilt from them yet. */
+    List<String> findProjectsPendingBackfill();
+
+    void markBackfilled(String projectId);
+}
@@ -0,0 +1,155 @@
+package tracko.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import tracko.constant.ChangeType;
+import tracko.models.change.Change;
+import tracko.models.change.ContributionRollup;
+
+public class ContributionRollupRepositoryImpl implements ContributionRollupRepositoryCustom {
+
+    private static final String BACKFILL_COLLECTION = "ContributionRollupBackfill";
+
+    private final MongoTemplate mongoTemplate;
+
+    public ContributionRollupRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void increment(String projectId, String ownerId, LocalDate day, ChangeType type) {
+        Query query = new Query(Criteria.where("_id").is(ContributionRollup.idOf(projectId, ownerId, day)));
+        Update update = new Update()
+            .setOnInsert("projectId", projectId)
+            .setOnInsert("ownerId", ownerId)
+            .setOnInsert("day", day.toString())
+            .inc("counts." + type.name(), 1)
+            .inc("total", 1);
+        mongoTemplate.upsert(query, update, ContributionRollup.class);
+    }
+
+    @Override
+    public void incrementAll(Collection<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // Fold the batch first so each rollup document is touched once
+        Map<String, Update> updates = new LinkedHashMap<>();
+        for (Change change : changes) {
+            LocalDate day = change.getCreatedAt().toLocalDate();
+            Update update = updates.computeIfAbsent(ContributionRollup.idOf(change.getProjectId(), change.getOwnerId(), day),
+                id -> new Update()
+                    .setOnInsert("projectId", change.getProjectId())
+                    .setOnInsert("ownerId", change.getOwnerId())
+                    .setOnInsert("day", day.toString()));
+            update.inc("counts." + change.getChangeType().name(), 1).inc("total", 1);
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ContributionRollup.class);
+        updates.forEach((id, update) -> bulk.upsert(new Query(Criteria.where("_id").is(id)), update));
+        bulk.execute();
+    }
+
+    @Override
+    public List<ContributionRollup> aggregateFromChanges(String projectId) {
+        // Days are cut in the server's zone, the same way LocalDateTime.toLocalDate() does
+        DateOperators.DateOperatorFactory createdAt = DateOperators.dateOf("createdAt");
+        ZoneId zone = ZoneId.systemDefault();
+        if (!zone.getRules().equals(ZoneOffset.UTC.getRules())) {
+            createdAt = createdAt.withTimezone(DateOperators.Timezone.valueOf(zone.getId()));
+        }
+
+        Aggregation pipeline = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("projectId").is(projectId)
+                .and("createdAt").ne(null)
+                .and("changeType").ne(null)),
+            Aggregation.project("ownerId", "changeType")
+                .and(createdAt.toString("%Y-%m-%d")).as("day"),
+            Aggregation.group("ownerId", "day", "changeType").count().as("count")
+        );
+
+        Map<String, ContributionRollup> rollups = new LinkedHashMap<>();
+        for (Document row : mongoTemplate.aggregate(pipeline, Change.class, Document.class)) {
+            Document key = row.get("_id", Document.class);
+            String ownerId = key.getString("ownerId");
+            LocalDate day = LocalDate.parse(key.getString("day"));
+            long count = ((Number) row.get("count")).longValue();
+
+            ContributionRollup rollup = rollups.computeIfAbsent(
+                ContributionRollup.idOf(projectId, ownerId, day),
+                id -> newRollup(id, projectId, ownerId, day));
+            rollup.getCounts().merge(key.getString("changeType"), count, Long::sum);
+            rollup.setTotal(rollup.getTotal() + count);
+        }
+        return new ArrayList<>(rollups.values());
+    }
+
+    @Override
+    public void mergeMax(Collection<ContributionRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ContributionRollup.class);
+        for (ContributionRollup rollup : rollups) {
+            Update update = new Update()
+                .setOnInsert("projectId", rollup.getProjectId())
+                .setOnInsert("ownerId", rollup.getOwnerId())
+                .setOnInsert("day", rollup.getDay())
+                .max("total", rollup.getTotal());
+            rollup.getCounts().forEach((type, count) -> update.max("counts." + type, count));
+            bulk.upsert(new Query(Criteria.where("_id").is(rollup.getId())), update);
+        }
+        bulk.execute();
+    }
+
+    private static ContributionRollup newRollup(String id, String projectId, String ownerId, LocalDate day) {
+        ContributionRollup rollup = new ContributionRollup();
+        rollup.setId(id);
+        rollup.setProjectId(projectId);
+        rollup.setOwnerId(ownerId);
+        rollup.setDay(day.toString());
+        return rollup;
+    }
+
+    @Override
+    public List<String> findProjectsPendingBackfill() {
+        Set<String> done = new HashSet<>();
+        for (Document marker : mongoTemplate.findAll(Document.class, BACKFILL_COLLECTION)) {
+            done.add(marker.getString("_id"));
+        }
+        return mongoTemplate.findDistinct(new Query(Criteria.where("projectId").ne(null)), "projectId", Change.class, String.class)
+            .stream()
+            .filter(projectId -> !done.contains(projectId))
+            .toList();
+    }
+
+    @Override
+    public void markBackfilled(String projectId) {
+        mongoTemplate.upsert(
+            new Query(Criteria.where("_id").is(projectId)),
+            new Update().set("backfilledAt", LocalDateTime.now()),
+            BACKFILL_COLLECTION
+        );
+    }
+}
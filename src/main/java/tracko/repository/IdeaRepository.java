@@ -5,10 +5,11 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import tracko.models.idea.Idea;
 
-public interface IdeaRepository extends MongoRepository<Idea, String> {
+public interface IdeaRepository extends MongoRepository<Idea, String>, IdeaRepositoryCustom {
     List<Idea> findByOwnerId(String ownerId);
     List<Idea> findByProjectId(String projectId);
     void deleteByProjectId(String projectId);
+    boolean existsByIdeaIdAndProjectId(String ideaId, String projectId);
 }
 
 
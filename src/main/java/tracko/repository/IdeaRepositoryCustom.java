@@ -0,0 +1,45 @@
+package tracko.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import tracko.constant.VoteType;
+import tracko.models.idea.Idea;
+import tracko.models.idea.IdeaCoordinates;
+
+public interface IdeaRepositoryCustom {
+    /**
+     * Atomically records the user's vote on an idea of the given project: the user is added to the
+     * chosen list with $addToSet and pulled from the other one. A null vote pulls the user from both.
+     * Returns the idea as it was before the update (only ids and vote lists), or null if not found.
+     */
+    Idea applyVote(String projectId, String ideaId, String userId, VoteType vote);
+
+    /**
+     * Sets only the given fields (keyed by document field name) on an idea of the given project,
+     * leaving everything else, such as concurrently applied votes and counters, as it is. When a
+     * vote list is among them, the vote counters and score are re-derived from the stored lists in
+     * the same update. Returns the idea after the update, or null if not found.
+     */
+    Idea updateFields(String projectId, String ideaId, Map<String, Object> fields);
+
+    /** Adds the given deltas to the vote/comment counters of an idea and keeps score in step; no-op before the backfill. */
+    void incrementCounters(String ideaId, int upVoteDelta, int downVoteDelta, int commentDelta);
+
+    /** Highest-scoring ideas of a project, without the voter and comment id lists. */
+    List<Idea> findTopByScore(String projectId, int limit);
+
+    /**
+     * Fills the counters of up to batchSize ideas that do not have them yet, in _id order after
+     * afterId (null to start from the beginning). Returns the last id processed, or null when
+     * nothing was left. Safe to stop and re-run at any point.
+     */
+    String backfillCounters(String afterId, int batchSize);
+
+    /** Returns the ideas of a project whose position lies inside the given box, bounds included. */
+    List<Idea> findInViewport(String projectId, float minX, float minY, float maxX, float maxY);
+
+    /** Writes the coordinates of many ideas in a single unordered bulk operation. */
+    void updatePositions(Collection<IdeaCoordinates> positions);
+}
@@ -0,0 +1,204 @@
+package tracko.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DataTypeOperators;
+import org.springframework.data.mongodb.core.aggregation.LiteralOperators;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import tracko.constant.VoteType;
+import tracko.models.comment.Comment;
+import tracko.models.idea.Idea;
+import tracko.models.idea.IdeaCoordinates;
+
+public class IdeaRepositoryImpl implements IdeaRepositoryCustom {
+
+    private static final String UP_VOTES = "upVotes";
+    private static final String DOWN_VOTES = "downVotes";
+    private static final String UP_VOTE_COUNT = "upVoteCount";
+    private static final String DOWN_VOTE_COUNT = "downVoteCount";
+    private static final String COMMENT_COUNT = "commentCount";
+    private static final String SCORE = "score";
+
+    private final MongoTemplate mongoTemplate;
+
+    public IdeaRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Idea applyVote(String projectId, String ideaId, String userId, VoteType vote) {
+        Query query = new Query(Criteria.where("_id").is(ideaId).and("projectId").is(projectId));
+        query.fields().include(UP_VOTES, DOWN_VOTES, "projectId");
+
+        Update update = new Update();
+        if (vote == VoteType.UP) {
+            update.addToSet(UP_VOTES, userId).pull(DOWN_VOTES, userId);
+        } else if (vote == VoteType.DOWN) {
+            update.addToSet(DOWN_VOTES, userId).pull(UP_VOTES, userId);
+        } else {
+            update.pull(UP_VOTES, userId).pull(DOWN_VOTES, userId);
+        }
+
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Idea.class);
+    }
+
+    @Override
+    public Idea updateFields(String projectId, String ideaId, Map<String, Object> fields) {
+        Query query = new Query(Criteria.where("_id").is(ideaId).and("projectId").is(projectId));
+        if (fields.isEmpty()) {
+            return mongoTemplate.findOne(query, Idea.class);
+        }
+
+        FindAndModifyOptions returnNew = FindAndModifyOptions.options().returnNew(true);
+        if (!fields.containsKey(UP_VOTES) && !fields.containsKey(DOWN_VOTES)) {
+            Update update = new Update();
+            fields.forEach(update::set);
+            return mongoTemplate.findAndModify(query, update, returnNew, Idea.class);
+        }
+
+        // A replaced vote list re-derives the counters from the stored lists in the same update, so
+        // they can't fall out of step with it or with votes applied since the caller's read
+        Map<Object, Object> values = new LinkedHashMap<>();
+        fields.forEach((field, value) -> values.put(field, LiteralOperators.valueOf(value).asLiteral()));
+        AggregationExpression hasCounters = ComparisonOperators.valueOf(DataTypeOperators.Type.typeOf(SCORE))
+            .notEqualToValue("missing");
+        Map<Object, Object> counts = new LinkedHashMap<>();
+        counts.put(UP_VOTE_COUNT, unlessMissing(hasCounters, listSize(UP_VOTES), UP_VOTE_COUNT));
+        counts.put(DOWN_VOTE_COUNT, unlessMissing(hasCounters, listSize(DOWN_VOTES), DOWN_VOTE_COUNT));
+        AggregationExpression score = unlessMissing(hasCounters,
+            ArithmeticOperators.valueOf(UP_VOTE_COUNT).subtract(DOWN_VOTE_COUNT), SCORE);
+        AggregationUpdate update = AggregationUpdate.from(List.of(
+            new SetOperation(values), new SetOperation(counts), new SetOperation(SCORE, score)));
+        return mongoTemplate.findAndModify(query, update, returnNew, Idea.class);
+    }
+
+    private static AggregationExpression listSize(String list) {
+        return ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull(list).then(List.of()));
+    }
+
+    // Ideas without counters keep them absent; the backfill derives them later
+    private static AggregationExpression unlessMissing(AggregationExpression hasCounters, AggregationExpression value,
+                                                       String field) {
+        return ConditionalOperators.when(hasCounters).thenValueOf(value).otherwiseValueOf(field);
+    }
+
+    @Override
+    public void incrementCounters(String ideaId, int upVoteDelta, int downVoteDelta, int commentDelta) {
+        Update update = new Update();
+        if (upVoteDelta != 0) {
+            update.inc(UP_VOTE_COUNT, upVoteDelta);
+        }
+        if (downVoteDelta != 0) {
+            update.inc(DOWN_VOTE_COUNT, downVoteDelta);
+        }
+        if (upVoteDelta != downVoteDelta) {
+            update.inc(SCORE, upVoteDelta - downVoteDelta);
+        }
+        if (commentDelta != 0) {
+            update.inc(COMMENT_COUNT, commentDelta);
+        }
+        if (update.getUpdateObject().isEmpty()) {
+            return;
+        }
+        // Ideas without counters are left alone; the backfill derives them from the lists later
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(ideaId).and(SCORE).exists(true)), update, Idea.class);
+    }
+
+    @Override
+    public List<Idea> findTopByScore(String projectId, int limit) {
+        Query query = new Query(Criteria.where("projectId").is(projectId))
+            .with(Sort.by(Sort.Order.desc(SCORE), Sort.Order.desc(UP_VOTE_COUNT)))
+            .limit(limit);
+        query.fields().exclude(UP_VOTES, DOWN_VOTES, "comments");
+        return mongoTemplate.find(query, Idea.class);
+    }
+
+    @Override
+    public String backfillCounters(String afterId, int batchSize) {
+        Criteria criteria = Criteria.where(SCORE).exists(false);
+        if (afterId != null) {
+            criteria = criteria.and("_id").gt(ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId);
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        query.fields().include("_id");
+        List<Idea> ideas = mongoTemplate.find(query, Idea.class);
+        if (ideas.isEmpty()) {
+            return null;
+        }
+
+        List<String> ideaIds = ideas.stream().map(Idea::getIdeaId).toList();
+        Map<String, Integer> commentCounts = new HashMap<>();
+        Aggregation countComments = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("ideaId").in(ideaIds)),
+            Aggregation.group("ideaId").count().as("count")
+        );
+        for (Document row : mongoTemplate.aggregate(countComments, Comment.class, Document.class)) {
+            commentCounts.put(row.getString("_id"), ((Number) row.get("count")).intValue());
+        }
+
+        // Vote counters are taken from the lists as stored when the update applies, not as read
+        // above: votes landing in between skip the idea's counters, so a stale count would stick.
+        // Comments live in their own collection, so their count is the one aggregated just now
+        AggregationExpression up = listSize(UP_VOTES);
+        AggregationExpression down = listSize(DOWN_VOTES);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Idea.class);
+        for (String ideaId : ideaIds) {
+            Map<Object, Object> counters = new LinkedHashMap<>();
+            counters.put(UP_VOTE_COUNT, up);
+            counters.put(DOWN_VOTE_COUNT, down);
+            counters.put(SCORE, ArithmeticOperators.valueOf(up).subtract(down));
+            counters.put(COMMENT_COUNT, commentCounts.getOrDefault(ideaId, 0));
+            bulk.updateOne(
+                new Query(Criteria.where("_id").is(ideaId).and(SCORE).exists(false)),
+                AggregationUpdate.from(List.of(new SetOperation(counters)))
+            );
+        }
+        bulk.execute();
+        return ideaIds.get(ideaIds.size() - 1);
+    }
+
+    @Override
+    public List<Idea> findInViewport(String projectId, float minX, float minY, float maxX, float maxY) {
+        Query query = new Query(Criteria.where("projectId").is(projectId)
+            .and("x").gte(minX).lte(maxX)
+            .and("y").gte(minY).lte(maxY));
+        return mongoTemplate.find(query, Idea.class);
+    }
+
+    @Override
+    public void updatePositions(Collection<IdeaCoordinates> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Idea.class);
+        for (IdeaCoordinates position : positions) {
+            bulk.updateOne(
+                new Query(Criteria.where("_id").is(position.ideaId())),
+                new Update().set("x", position.x()).set("y", position.y())
+            );
+        }
+        bulk.execute();
+    }
+}
@@ -1,12 +1,28 @@
 package tracko.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import tracko.models.messages.Message;
 
 public interface MessageRepository extends MongoRepository<Message, String> {
     List<Message> findByProjectId(String projectId);
     void deleteByProjectId(String projectId);
-    List<Message> findByProjectIdOrderByCreatedAtAsc(String projectId);
+
+    // Newest first; page through with findPageBefore using the oldest message returned
+    @Query(value = "{ 'projectId': ?0 }", sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Message> findLatest(String projectId, Pageable page);
+
+    // Keyset on (createdAt, _id), so messages sharing a timestamp are neither skipped nor repeated
+    @Query(value = "{ 'projectId': ?0, $or: [ { 'createdAt': { $lt: ?1 } }, { 'createdAt': ?1, '_id': { $lt: ?2 } } ] }",
+           sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<Message> findPageBefore(String projectId, LocalDateTime createdAt, String id, Pageable page);
+
+    // Whole chat newest first without loading it at once; close the stream when done
+    Stream<Message> streamByProjectIdOrderByCreatedAtDescIdDesc(String projectId);
 }
@@ -1,6 +1,7 @@
 package tracko.repository;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import tracko.models.project.Project;
 
@@ -16,4 +17,8 @@ public interface ProjectRepository extends MongoRepository<Project, String> {
     List<Project> findByProjectMembers(String userId);
     void deleteById(String id);
     Project findByOwnerIdAndProjectName(String ownerId, String projectName);
+
+    // Only the fields needed for authorization, used to build a ProjectHeader
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'projectName': 1, 'ownerId': 1, 'projectMembers': 1 }")
+    Optional<Project> findHeaderById(String id);
 }
\ No newline at end of file
@@ -0,0 +1,315 @@
+package tracko.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Keeps a slow or failing AI provider from taking the rest of the server with it.
+ *
+ * Provider calls run on their own small pool (ai.bulkhead.max-concurrent threads, with
+ * ai.bulkhead.queue-capacity waiting), and callers wait at most ai.call-timeout-ms for an answer
+ * before giving up with 504. When the pool and its queue are full, callers get 503 right away
+ * instead of holding a request thread. Streams already run on a thread of their own from
+ * AIStreamService, which caps how many there are, so they stay on that thread instead of taking
+ * one from this pool; they get ai.stream.timeout-ms for the whole stream, after which no more
+ * chunks are taken and the thread is interrupted.
+ *
+ * A circuit breaker counts the calls that fail or time out. After ai.circuit.failure-threshold
+ * of them in a row it opens and refuses calls with 503 for ai.circuit.open-ms. Then one probe
+ * call is let through: if it succeeds the circuit closes again, otherwise it stays open for
+ * another round. Only the probe decides; calls started before the circuit opened don't. Calls
+ * refused by the pool or the breaker don't count as failures.
+ */
+@Service
+public class AICallGuard {
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    public record Stats(CircuitState circuit, long succeeded, long failed, long timedOut,
+                        long shortCircuited, long rejected, int activeCalls, int queuedCalls) {}
+
+    private final Logger log = LoggerFactory.getLogger(AICallGuard.class);
+
+    private final ThreadPoolExecutor bulkhead;
+    private final ScheduledThreadPoolExecutor streamDeadlines;
+    private final CircuitBreaker breaker;
+    private final long callTimeoutMillis;
+    private final long streamTimeoutMillis;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public AICallGuard(@Value("${ai.bulkhead.max-concurrent:8}") int maxConcurrent,
+                       @Value("${ai.bulkhead.queue-capacity:8}") int queueCapacity,
+                       @Value("${ai.call-timeout-ms:30000}") long callTimeoutMillis,
+                       @Value("${ai.stream.timeout-ms:120000}") long streamTimeoutMillis,
+                       @Value("${ai.circuit.failure-threshold:5}") int failureThreshold,
+                       @Value("${ai.circuit.open-ms:30000}") long openMillis) {
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.breaker = new CircuitBreaker(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openMillis));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.bulkhead = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            task -> {
+                Thread thread = new Thread(task, "ai-call-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.bulkhead.allowCoreThreadTimeOut(true);
+
+        this.streamDeadlines = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "ai-stream-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.streamDeadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    /** Runs a blocking provider call. */
+    public <T> T call(Callable<T> providerCall) {
+        return run(providerCall);
+    }
+
+    /**
+     * Runs a streaming provider call on the calling thread. providerStream is handed a sink that
+     * passes chunks on to onChunk until the stream timeout, and returns false from then on; a
+     * thread still blocked in the provider at that point is interrupted. Returns what
+     * providerStream returned.
+     */
+    public boolean callStream(Predicate<String> onChunk, Predicate<Predicate<String>> providerStream) {
+        CircuitBreaker.Permit permit = acquire();
+        StreamDeadline deadline = new StreamDeadline(Thread.currentThread());
+        deadline.timer = streamDeadlines.schedule(deadline::expire, streamTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        boolean complete;
+        try {
+            complete = providerStream.test(chunk -> !deadline.expired() && onChunk.test(chunk));
+        } catch (ResponseStatusException e) {
+            if (deadline.finish()) {
+                throw streamTimedOut(permit);
+            }
+            breaker.release(permit);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            if (deadline.finish()) {
+                throw streamTimedOut(permit);
+            }
+            onFailure(permit);
+            throw e;
+        }
+        if (deadline.finish()) {
+            throw streamTimedOut(permit);
+        }
+        breaker.onSuccess(permit);
+        succeeded.incrementAndGet();
+        return complete;
+    }
+
+    public Stats stats() {
+        return new Stats(breaker.state(), succeeded.get(), failed.get(), timedOut.get(),
+            shortCircuited.get(), rejected.get(), bulkhead.getActiveCount(), bulkhead.getQueue().size());
+    }
+
+    private CircuitBreaker.Permit acquire() {
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            shortCircuited.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The AI service is unavailable, try again later");
+        }
+        return permit;
+    }
+
+    private ResponseStatusException streamTimedOut(CircuitBreaker.Permit permit) {
+        onFailure(permit);
+        timedOut.incrementAndGet();
+        return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "The AI service took too long to answer");
+    }
+
+    private <T> T run(Callable<T> providerCall) {
+        CircuitBreaker.Permit permit = acquire();
+
+        Future<T> future;
+        try {
+            future = bulkhead.submit(providerCall);
+        } catch (RejectedExecutionException e) {
+            breaker.release(permit);
+            rejected.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many AI requests in progress, try again later");
+        }
+
+        try {
+            T result = future.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            breaker.onSuccess(permit);
+            succeeded.incrementAndGet();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            onFailure(permit);
+            timedOut.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "The AI service took too long to answer");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ResponseStatusException refused) {
+                // The provider turned the call down on purpose; that says nothing about its health
+                breaker.release(permit);
+                throw refused;
+            }
+            onFailure(permit);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            breaker.release(permit);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the AI service");
+        }
+    }
+
+    private void onFailure(CircuitBreaker.Permit permit) {
+        failed.incrementAndGet();
+        if (breaker.onFailure(permit)) {
+            log.warn("AI circuit opened; calls are refused for the next {} ms", TimeUnit.NANOSECONDS.toMillis(breaker.openNanos));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkhead.shutdownNow();
+        streamDeadlines.shutdownNow();
+    }
+
+    /** The timeout of one stream. Once expired, the stream's thread is interrupted until finish clears it. */
+    private static final class StreamDeadline {
+
+        private final Thread thread;
+        private ScheduledFuture<?> timer;
+        private boolean expired;
+        private boolean finished;
+
+        StreamDeadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void expire() {
+            if (!finished) {
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        synchronized boolean expired() {
+            return expired;
+        }
+
+        /** Ends the stream's time and returns whether it ran out first. */
+        synchronized boolean finish() {
+            finished = true;
+            timer.cancel(false);
+            if (expired) {
+                // Drop the interrupt meant for the provider before the thread moves on
+                Thread.interrupted();
+            }
+            return expired;
+        }
+    }
+
+    private static final class CircuitBreaker {
+
+        /** Leave to make one call. Identity matters: the probe is known by its permit. */
+        static final class Permit { }
+
+        private final int failureThreshold;
+        private final long openNanos;
+
+        private CircuitState state = CircuitState.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private Permit probe;
+
+        CircuitBreaker(int failureThreshold, long openNanos) {
+            this.failureThreshold = Math.max(1, failureThreshold);
+            this.openNanos = openNanos;
+        }
+
+        /**
+         * A permit for a call that may go ahead, or null. Every permit must be handed back to one
+         * of the other three.
+         */
+        synchronized Permit tryAcquire() {
+            if (state == CircuitState.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = CircuitState.HALF_OPEN;
+            }
+            if (state == CircuitState.CLOSED) {
+                return new Permit();
+            }
+            if (state == CircuitState.HALF_OPEN && probe == null) {
+                probe = new Permit();
+                return probe;
+            }
+            return null;
+        }
+
+        synchronized void onSuccess(Permit permit) {
+            if (state != CircuitState.CLOSED && permit != probe) {
+                // A call that started before the circuit opened proves little
+                return;
+            }
+            consecutiveFailures = 0;
+            probe = null;
+            state = CircuitState.CLOSED;
+        }
+
+        /** Records a failed call and returns whether it opened the circuit. */
+        synchronized boolean onFailure(Permit permit) {
+            if (permit == probe) {
+                probe = null;
+            } else if (state != CircuitState.CLOSED || ++consecutiveFailures < failureThreshold) {
+                // Once open, or while the probe runs, only the probe decides
+                return false;
+            }
+            state = CircuitState.OPEN;
+            openedAt = System.nanoTime();
+            return true;
+        }
+
+        /** Gives back a permit whose call never reached the provider. */
+        synchronized void release(Permit permit) {
+            if (permit == probe) {
+                probe = null;
+            }
+        }
+
+        synchronized CircuitState state() {
+            if (state == CircuitState.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                return CircuitState.HALF_OPEN;
+            }
+            return state;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package tracko.service;
+
+import java.util.function.Predicate;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A model AIService can ask. The implementation is picked by ai.provider in AIConfig: "gemini"
+ * for the real thing, "stub" for canned answers without network access.
+ */
+public interface AIProvider {
+
+    /** Short provider name for logs. */
+    String name();
+
+    /** The model answers come from; part of the response cache key. */
+    String model();
+
+    String generate(String prompt);
+
+    /**
+     * Hands the answer to onChunk piece by piece and stops as soon as it returns false. Returns
+     * whether the whole answer was delivered.
+     */
+    boolean stream(String prompt, Predicate<String> onChunk);
+
+    /** Used when ai.enabled is false: every call is refused with 503. */
+    static AIProvider disabled() {
+        return new AIProvider() {
+            @Override
+            public String name() {
+                return "disabled";
+            }
+
+            @Override
+            public String model() {
+                return "none";
+            }
+
+            @Override
+            public String generate(String prompt) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "AI features are disabled");
+            }
+
+            @Override
+            public boolean stream(String prompt, Predicate<String> onChunk) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "AI features are disabled");
+            }
+        };
+    }
+}
@@ -1,53 +1,131 @@
 package tracko.service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
+import tracko.exceptions.RateLimitedException;
 
+/**
+ * Token buckets in front of every model call: one per user, one per project (for calls made on
+ * behalf of a project) and one shared by everybody, so a single user can't drain the provider
+ * quota. Each bucket holds up to its per-minute limit and refills continuously. A call takes
+ * a token from each of its buckets or, if any of them is empty, gives back what it took and is
+ * refused with 429 and the seconds until that bucket has a token again.
+ *
+ * Buckets are updated with compare-and-set, so concurrent requests never wait on each other.
+ * Full buckets carry no state and are dropped every minute.
+ */
 @Service
-@ConditionalOnProperty(name = "ai.enabled", havingValue = "true", matchIfMissing = false)
 public class AIRateLimiterService {
-    
-    private final Semaphore rateLimiter;
-    private final ScheduledExecutorService scheduler;
-    private final int rateLimit;
-
-    public AIRateLimiterService(Semaphore aiRateLimiter, 
-                                       ScheduledExecutorService scheduledExecutorService,
-                                        @Value("${ai.rate-limit:5}") int rateLimit) {
-        this.rateLimiter = aiRateLimiter;
-        this.scheduler = scheduledExecutorService;
-        this.rateLimit = rateLimit;
+
+    private final TokenBucket global;
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> projectBuckets = new ConcurrentHashMap<>();
+    private final int userLimit;
+    private final int projectLimit;
+
+    public AIRateLimiterService(@Value("${ai.rate-limit:5}") int globalLimit,
+                                @Value("${ai.user-rate-limit:3}") int userLimit,
+                                @Value("${ai.project-rate-limit:4}") int projectLimit) {
+        this.global = new TokenBucket(globalLimit);
+        this.userLimit = userLimit;
+        this.projectLimit = projectLimit;
     }
-    
-    @PostConstruct
-    public void init() {
-        // Replenish permits every minute
-        this.scheduler.scheduleAtFixedRate(() -> {
-            int permitsToRelease = rateLimit - rateLimiter.availablePermits();
-            if (permitsToRelease > 0) {
-                rateLimiter.release(permitsToRelease);
+
+    /**
+     * Takes a token for one model call by callerId, counted against projectId too when it is
+     * not null. Throws a 429 when any of the limits is reached.
+     */
+    public void acquire(String callerId, String projectId) {
+        long now = System.nanoTime();
+        TokenBucket user = userBuckets.computeIfAbsent(callerId, ignored -> new TokenBucket(userLimit));
+        TokenBucket project = projectId == null ? null
+            : projectBuckets.computeIfAbsent(projectId, ignored -> new TokenBucket(projectLimit));
+
+        long waitNanos = user.tryTake(now);
+        if (waitNanos > 0) {
+            throw limited("You are sending AI requests too quickly", waitNanos);
+        }
+        if (project != null) {
+            waitNanos = project.tryTake(now);
+            if (waitNanos > 0) {
+                user.giveBack(now);
+                throw limited("This project is sending AI requests too quickly", waitNanos);
             }
-        }, 1, 1, TimeUnit.MINUTES);
-    }
-    
-    public boolean acquirePermit() {
-        try {
-            return rateLimiter.tryAcquire(10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
         }
+        waitNanos = global.tryTake(now);
+        if (waitNanos > 0) {
+            user.giveBack(now);
+            if (project != null) {
+                project.giveBack(now);
+            }
+            throw limited("The AI service is busy", waitNanos);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ai.rate-limit-cleanup-ms:60000}")
+    public void dropFullBuckets() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        projectBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private static RateLimitedException limited(String reason, long waitNanos) {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        return new RateLimitedException(reason + ", retry in " + seconds + "s", seconds);
     }
-    
-    @PreDestroy
-    public void cleanup() {
-        scheduler.shutdown();
+
+    private static final class TokenBucket {
+
+        private record State(double tokens, long updatedAt) {}
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private final AtomicReference<State> state;
+
+        TokenBucket(int perMinute) {
+            this.capacity = perMinute;
+            this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.state = new AtomicReference<>(new State(perMinute, System.nanoTime()));
+        }
+
+        /** Takes a token and returns 0, or returns the nanos until one will be there. */
+        long tryTake(long now) {
+            while (true) {
+                State current = state.get();
+                double tokens = refilled(current, now);
+                if (tokens < 1) {
+                    return (long) Math.ceil((1 - tokens) / tokensPerNano);
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, Math.max(now, current.updatedAt())))) {
+                    return 0;
+                }
+            }
+        }
+
+        void giveBack(long now) {
+            while (true) {
+                State current = state.get();
+                double tokens = Math.min(capacity, refilled(current, now) + 1);
+                if (state.compareAndSet(current, new State(tokens, Math.max(now, current.updatedAt())))) {
+                    return;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return refilled(state.get(), now) >= capacity;
+        }
+
+        private double refilled(State current, long now) {
+            long elapsed = Math.max(0, now - current.updatedAt());
+            return Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package tracko.service;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Relays a model answer to the client as Server-Sent Events: a "chunk" event per piece as it
+ * arrives, then "done", or "error" with a message. Each stream runs on its own thread from a
+ * fixed pool (ai.stream.max-concurrent); when all are busy the request gets 503 instead of
+ * queueing. Chunks are written as they are read, so a slow client slows the read from the model
+ * instead of piling up text, and once the client is gone the next write fails and the model
+ * stream is closed.
+ */
+@Service
+public class AIStreamService {
+
+    private final Logger log = LoggerFactory.getLogger(AIStreamService.class);
+
+    private final ThreadPoolExecutor streams;
+    private final long timeoutMillis;
+
+    public AIStreamService(@Value("${ai.stream.max-concurrent:16}") int maxConcurrent,
+                           @Value("${ai.stream.timeout-ms:120000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.streams = new ThreadPoolExecutor(0, maxConcurrent, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            task -> {
+                Thread thread = new Thread(task, "ai-stream-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Starts producer on a stream thread and returns the emitter its chunks go to. The producer
+     * hands each chunk to the sink it is given and must stop once the sink returns false.
+     */
+    public SseEmitter stream(Consumer<Predicate<String>> producer) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(error -> open.set(false));
+
+        Predicate<String> sink = chunk -> open.get() && send(emitter, open, "chunk", chunk);
+        try {
+            streams.execute(() -> {
+                try {
+                    producer.accept(sink);
+                    if (open.get() && send(emitter, open, "done", "")) {
+                        emitter.complete();
+                    }
+                } catch (ResponseStatusException e) {
+                    fail(emitter, open, e.getReason());
+                } catch (RuntimeException e) {
+                    log.error("AI stream failed: {}", e.getMessage());
+                    fail(emitter, open, "AI generation failed");
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many AI streams open, try again later");
+        }
+        return emitter;
+    }
+
+    private static boolean send(SseEmitter emitter, AtomicBoolean open, String event, String data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter timed out
+            open.set(false);
+            return false;
+        }
+    }
+
+    private static void fail(SseEmitter emitter, AtomicBoolean open, String message) {
+        if (open.get() && send(emitter, open, "error", message)) {
+            emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streams.shutdownNow();
+    }
+}
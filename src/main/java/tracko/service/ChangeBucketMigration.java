@@ -0,0 +1,55 @@
+package tracko.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import tracko.repository.ChangeRepository;
+
+/**
+ * Converts per-change documents into hourly buckets when changes.storage.mode is "buckets".
+ * Runs after the rollup backfill, which still aggregates over the per-change documents. Each
+ * batch is deleted once it is in its buckets, so an interrupted run resumes where it stopped.
+ */
+@Component
+@Order(2)
+public class ChangeBucketMigration implements ApplicationRunner {
+
+    private final Logger log = LoggerFactory.getLogger(ChangeBucketMigration.class);
+
+    private final ChangeRepository changeRepository;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public ChangeBucketMigration(ChangeRepository changeRepository,
+                                 @Value("${changes.storage.mode:documents}") String storageMode,
+                                 @Value("${changes.buckets.migrate-on-startup:true}") boolean migrate,
+                                 @Value("${changes.buckets.migrate-batch-size:1000}") int batchSize) {
+        this.changeRepository = changeRepository;
+        this.enabled = migrate && "buckets".equalsIgnoreCase(storageMode);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            migrate();
+        }
+    }
+
+    public long migrate() {
+        long moved = 0;
+        int batch;
+        while ((batch = changeRepository.migrateToBuckets(batchSize)) > 0) {
+            moved += batch;
+        }
+        if (moved > 0) {
+            log.info("Moved {} change(s) into hourly buckets", moved);
+        }
+        return moved;
+    }
+}
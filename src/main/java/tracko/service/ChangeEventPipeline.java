@@ -0,0 +1,241 @@
+package tracko.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tracko.models.change.Change;
+import tracko.repository.ChangeRepository;
+import tracko.repository.ContributionRollupRepository;
+
+/**
+ * Takes change events off the request thread. Events wait in a bounded queue and a single
+ * consumer stores each batch with one write (an insertMany, or one bulk append to the hourly
+ * buckets), updates the rollups in one bulk write and then sends the notifications in queue
+ * order, so each project sees its changes in the order they happened. When the queue is full
+ * the caller writes its own event synchronously.
+ * A batch whose write fails is retried before anything newer, up to max-attempts times; after
+ * that its events are written as JSON to the tracko.changes.dead-letter log and dropped.
+ * Pending events are flushed on shutdown; if that fails and a spill file is configured they
+ * are written there and replayed on the next start.
+ */
+@Component
+public class ChangeEventPipeline {
+
+    public record ChangeEvent(Change change, String notifyUserId) {}
+
+    private final Logger log = LoggerFactory.getLogger(ChangeEventPipeline.class);
+    private final Logger deadLetters = LoggerFactory.getLogger("tracko.changes.dead-letter");
+
+    private final ChangeRepository changeRepository;
+    private final ContributionRollupRepository rollupRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<ChangeEvent> queue;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Path spillFile;
+
+    // A batch whose write failed; retried before anything newer so order is kept
+    private List<ChangeEvent> retry = new ArrayList<>();
+    private int failedAttempts;
+
+    public ChangeEventPipeline(ChangeRepository changeRepository,
+                               ContributionRollupRepository rollupRepository,
+                               SimpMessagingTemplate messagingTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${changes.pipeline.capacity:10000}") int capacity,
+                               @Value("${changes.pipeline.batch-size:500}") int batchSize,
+                               @Value("${changes.pipeline.spill-file:}") String spillFile,
+                               @Value("${changes.pipeline.max-attempts:5}") int maxAttempts) {
+        this.changeRepository = changeRepository;
+        this.rollupRepository = rollupRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.spillFile = spillFile.isBlank() ? null : Path.of(spillFile);
+    }
+
+    public void submit(Change change, String notifyUserId) {
+        if (!queue.offer(new ChangeEvent(change, notifyUserId))) {
+            // Backpressure instead of loss: the caller pays for its own write
+            log.warn("Change queue full, writing {} synchronously", change.getChangeType());
+            writeNow(change, notifyUserId);
+        }
+    }
+
+    /**
+     * Stores and broadcasts one change on the caller's thread. Goes through the same lock as the
+     * consumer, so sequence numbers are handed out in the order changes become visible. A batch
+     * waiting for a retry holds lower numbers and is written first; if it still fails, this change
+     * waits behind it instead of overtaking it.
+     */
+    public synchronized Change writeNow(Change change, String notifyUserId) {
+        ChangeEvent event = new ChangeEvent(change, notifyUserId);
+        if (!retry.isEmpty()) {
+            retryPending();
+            if (!retry.isEmpty()) {
+                retry.add(event);
+                return change;
+            }
+        }
+        write(List.of(event));
+        return change;
+    }
+
+    // One attempt at the batch waiting for a retry, counted like the consumer's own attempts
+    private void retryPending() {
+        List<ChangeEvent> batch = retry;
+        retry = new ArrayList<>();
+        if (!attempt(batch)) {
+            retry = batch;
+        }
+    }
+
+    /** Drops queued events of a project whose changes are being deleted. */
+    public void discardProject(String projectId) {
+        queue.removeIf(event -> projectId.equals(event.change().getProjectId()));
+    }
+
+    public int pending() {
+        return queue.size() + retry.size();
+    }
+
+    @Scheduled(fixedDelayString = "${changes.pipeline.flush-interval-ms:100}")
+    public synchronized void drain() {
+        while (true) {
+            List<ChangeEvent> batch = retry;
+            retry = new ArrayList<>();
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (!attempt(batch)) {
+                retry = batch;
+                return;
+            }
+        }
+    }
+
+    /** Writes a batch; false if it failed and should be retried, true once written or dead-lettered. */
+    private boolean attempt(List<ChangeEvent> batch) {
+        try {
+            write(batch);
+            failedAttempts = 0;
+            return true;
+        } catch (RuntimeException e) {
+            if (++failedAttempts >= maxAttempts) {
+                log.error("Failed to write {} change events {} times, moving them to the dead-letter log: {}",
+                    batch.size(), failedAttempts, e.getMessage());
+                deadLetter(batch);
+                failedAttempts = 0;
+                return true;
+            }
+            log.error("Failed to write {} change events, retrying on the next tick: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void write(List<ChangeEvent> batch) {
+        List<Change> changes = batch.stream().map(ChangeEvent::change).toList();
+        // Idempotent for a batch it has seen before, so a retry only adds what is still missing
+        changeRepository.storeAll(changes);
+
+        // From here on the batch is stored; nothing below may make the caller retry it
+        try {
+            rollupRepository.incrementAll(changes.stream().filter(change -> change.getProjectId() != null).toList());
+        } catch (RuntimeException e) {
+            log.error("Failed to update contribution rollups for {} changes: {}", changes.size(), e.getMessage());
+        }
+
+        for (ChangeEvent event : batch) {
+            Change change = event.change();
+            try {
+                if (change.getProjectId() != null) {
+                    messagingTemplate.convertAndSend("/topic/projects/" + change.getProjectId() + "/changes", change);
+                } else if (event.notifyUserId() != null) {
+                    messagingTemplate.convertAndSend("/queue/user-" + event.notifyUserId() + "-notifications", change);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to broadcast change {}: {}", change.getChangeId(), e.getMessage());
+            }
+        }
+    }
+
+    private void deadLetter(List<ChangeEvent> batch) {
+        for (ChangeEvent event : batch) {
+            try {
+                deadLetters.error(objectMapper.writeValueAsString(event));
+            } catch (IOException e) {
+                deadLetters.error("{} (not serializable: {})", event, e.getMessage());
+            }
+        }
+    }
+
+    @PostConstruct
+    public void replaySpill() {
+        if (spillFile == null || !Files.exists(spillFile)) {
+            return;
+        }
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    retry.add(objectMapper.readValue(line, ChangeEvent.class));
+                    replayed++;
+                }
+            }
+            Files.delete(spillFile);
+        } catch (IOException e) {
+            log.error("Could not replay change spill file {}: {}", spillFile, e.getMessage());
+            return;
+        }
+        log.info("Replaying {} spilled change events", replayed);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        drain();
+        if (pending() == 0) {
+            return;
+        }
+
+        List<ChangeEvent> left = new ArrayList<>(retry);
+        queue.drainTo(left);
+        if (spillFile == null) {
+            log.error("Dropping {} change events that could not be written", left.size());
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8)) {
+            for (ChangeEvent event : left) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.newLine();
+            }
+            log.warn("Spilled {} change events to {}", left.size(), spillFile);
+        } catch (IOException e) {
+            log.error("Could not spill {} change events to {}: {}", left.size(), spillFile, e.getMessage());
+        }
+    }
+}
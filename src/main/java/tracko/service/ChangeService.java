@@ -2,34 +2,51 @@ package tracko.service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.lang.Nullable;
+import org.springframework.web.server.ResponseStatusException;
 
 import tracko.repository.ChangeRepository;
+import tracko.repository.ContributionRollupRepository;
 import tracko.constant.ChangeType;
 import tracko.models.change.Change;
+import tracko.models.change.ChangeFeed;
 import tracko.models.change.ChangeRegister;
+import tracko.models.change.ContributionRollup;
 
 @Service
 @Transactional
 public class ChangeService {
+    private static final int DEFAULT_FEED_PAGE = 100;
+    private static final int MAX_FEED_PAGE = 500;
+
     private final ChangeRepository changeRepository;
     private final UserService userService;
     private final ProjectAuthorizationService projectAuthorizationService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ContributionRollupRepository rollupRepository;
+    private final ChangeEventPipeline changeEventPipeline;
+    private final long feedGapGraceMillis;
 
     public ChangeService(ChangeRepository changeRepository, 
-                        @Lazy ProjectService projectService, @Lazy UserService userService,
+                        @Lazy UserService userService,
                         ProjectAuthorizationService projectAuthorizationService,
-                        SimpMessagingTemplate messagingTemplate) {
-        this.messagingTemplate = messagingTemplate;
+                        ContributionRollupRepository rollupRepository,
+                        ChangeEventPipeline changeEventPipeline,
+                        @Value("${changes.feed.gap-grace-ms:5000}") long feedGapGraceMillis) {
+        this.feedGapGraceMillis = feedGapGraceMillis;
+        this.rollupRepository = rollupRepository;
+        this.changeEventPipeline = changeEventPipeline;
         this.projectAuthorizationService = projectAuthorizationService;
         this.userService = userService;
         this.changeRepository = changeRepository;
@@ -46,88 +63,145 @@ public class ChangeService {
     }
     
     public Change createChange(String projectId, ChangeRegister newChange, String authHeader) {
-        projectAuthorizationService.authenticateProject(projectId, authHeader);
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
         String userId = userService.getUserIdByToken(authHeader);
-        Change change = buildChange(projectId, userId, newChange);
-        sendNotificationProject(projectId, change);
-        return changeRepository.save(change);
+        return changeEventPipeline.writeNow(buildChange(projectId, userId, newChange), null);
     }
     
     public Change createChangeUser(String userId, ChangeRegister newChange, String authHeader, @Nullable String friendId) {
         String requestingUserId = userService.getUserIdByToken(authHeader);
-        Change change = buildChange(null, requestingUserId, newChange);
-        
-        // Conditionally notify the friend if provided
-        if (friendId != null) {
-            sendNotificationUser(friendId, change);
-        }
-        
-        return changeRepository.save(change);
+        // The friend is notified if provided
+        return changeEventPipeline.writeNow(buildChange(null, requestingUserId, newChange), friendId);
     }
 
+    /**
+     * Records a change as a side effect of another operation. The caller has already authorized
+     * the request, so the change is only built here and handed to the pipeline, which stores and
+     * broadcasts it in the background.
+     */
     public void markChange(String id, ChangeType changeType, String authHeader, boolean isUserChange, @Nullable String friendId) {
         ChangeRegister changeRegister = new ChangeRegister();
         changeRegister.setChangeType(changeType);
-        
+        String userId = userService.getUserIdByToken(authHeader);
+
         if (isUserChange) {
-            createChangeUser(id, changeRegister, authHeader, friendId);
+            changeEventPipeline.submit(buildChange(null, userId, changeRegister), friendId);
         } else {
-            createChange(id, changeRegister, authHeader);
+            changeEventPipeline.submit(buildChange(id, userId, changeRegister), null);
         }
     }
 
-    private void sendNotificationProject(String projectId, Change change) {
-            messagingTemplate.convertAndSend(
-            "/topic/projects/" + projectId + "/changes",
-            change
-        );
+    public List<Change> getChangesByProject(String projectId, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+        return changeRepository.findProjectHistory(projectId);
     }
 
-    private void sendNotificationUser(String userId, Change change) {
-        System.out.println("Attempting to send notification to user: " + userId);
-        messagingTemplate.convertAndSend(
-            "/queue/user-" + userId + "-notifications",
-            change
-        );
+    /**
+     * The changes after a cursor, for clients catching up after a reconnect. The cursor is a
+     * sequence number or the id of the last change the client has; nextCursor is where to
+     * continue from, also when the page is empty.
+     *
+     * Numbers are reserved before their changes are stored, so a higher one can become visible
+     * first (another instance, another bucket of the same batch). The page therefore ends before
+     * a gap in the numbers until the change after it is older than changes.feed.gap-grace-ms;
+     * after that the missing numbers are taken as lost. Changes stored before sequence numbers
+     * existed have seq 0 and are not part of the feed; the project history still has them.
+     */
+    public ChangeFeed getChangeFeed(String projectId, String after, Integer limit, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+
+        int pageSize = limit == null ? DEFAULT_FEED_PAGE : limit;
+        if (pageSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+        pageSize = Math.min(pageSize, MAX_FEED_PAGE);
+
+        long afterSeq = resolveCursor(projectId, after);
+        // One extra tells whether there is more to fetch
+        List<Change> changes = changeRepository.findProjectFeed(projectId, afterSeq, pageSize + 1);
+        int settled = settledPrefix(changes, afterSeq);
+        boolean hasMore = settled == changes.size() && changes.size() > pageSize;
+        changes = changes.subList(0, Math.min(settled, pageSize));
+        long nextCursor = changes.isEmpty() ? afterSeq : changes.get(changes.size() - 1).getSeq();
+        return new ChangeFeed(changes, nextCursor, hasMore);
     }
 
-    public List<Change> getChangesByProject(String projectId, String authHeader) {
-        projectAuthorizationService.authenticateProject(projectId, authHeader);
-        return changeRepository.findByProjectId(projectId);
+    // How many of the changes can be handed out without skipping one that is still being stored
+    private int settledPrefix(List<Change> changes, long afterSeq) {
+        LocalDateTime graceStart = LocalDateTime.now().minusNanos(feedGapGraceMillis * 1_000_000);
+        long expected = afterSeq + 1;
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            if (change.getSeq() != expected && change.getCreatedAt() != null && change.getCreatedAt().isAfter(graceStart)) {
+                return i;
+            }
+            expected = change.getSeq() + 1;
+        }
+        return changes.size();
+    }
+
+    private long resolveCursor(String projectId, String after) {
+        if (after == null || after.isBlank()) {
+            return 0;
+        }
+        // A change id can be all digits too; a sequence number never has the 24 characters of an ObjectId
+        if (!ObjectId.isValid(after) && after.chars().allMatch(Character::isDigit)) {
+            try {
+                return Long.parseLong(after);
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+        return changeRepository.findSeq(projectId, after)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown change cursor"));
     }
 
 
     public void deleteChangesByProjectId(String projectId) {
-        changeRepository.deleteByProjectId(projectId);
+        changeEventPipeline.discardProject(projectId);
+        changeRepository.deleteProjectHistory(projectId);
+        rollupRepository.deleteByProjectId(projectId);
     }
 
     public Map<LocalDate, Long> getContributionsByDate(String projectId, String authHeader) {
-        List<Change> changes = getChangesByProject(projectId, authHeader);
-        return changes.stream()
-            .collect(Collectors.groupingBy(
-                change -> change.getCreatedAt().toLocalDate(),
-                Collectors.counting()
-            ));
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+        return totalsByDay(rollupRepository.findByProjectId(projectId));
     }
 
     public record DailyContribution(LocalDate date, Long count) {}
     
     public List<DailyContribution> getDailyContributions(String projectId, String authHeader, Integer days) {
-        List<Change> changes = getChangesByProject(projectId, authHeader);
-        
-        return changes.stream()
-            .filter(change -> days == null || 
-                   change.getCreatedAt().isAfter(LocalDateTime.now().minusDays(days)))
-            .collect(Collectors.groupingBy(
-                change -> change.getCreatedAt().toLocalDate(),
-                Collectors.counting()
-            ))
-            .entrySet().stream()
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+
+        Map<LocalDate, Long> totals;
+        if (days == null) {
+            totals = totalsByDay(rollupRepository.findByProjectId(projectId));
+        } else {
+            // The window starts at "now - days", part way into its first day. Rollups cover whole days,
+            // so they serve the days after it and that first day is counted from the changes themselves
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(days);
+            LocalDate firstDay = cutoff.toLocalDate();
+            totals = totalsByDay(
+                rollupRepository.findByProjectIdAndDayGreaterThanEqual(projectId, firstDay.plusDays(1).toString()));
+            long firstDayCount = changeRepository.countProjectChanges(projectId, cutoff, firstDay.plusDays(1).atStartOfDay());
+            if (firstDayCount > 0) {
+                totals.put(firstDay, firstDayCount);
+            }
+        }
+
+        return totals.entrySet().stream()
             .map(entry -> new DailyContribution(entry.getKey(), entry.getValue()))
-            .sorted((a, b) -> a.date().compareTo(b.date()))
             .collect(Collectors.toList());
     }
 
+    private static Map<LocalDate, Long> totalsByDay(List<ContributionRollup> rollups) {
+        Map<LocalDate, Long> totals = new TreeMap<>();
+        for (ContributionRollup rollup : rollups) {
+            totals.merge(rollup.getDate(), rollup.getTotal(), Long::sum);
+        }
+        return totals;
+    }
+
     public record Contributions(LocalDateTime date, 
                                 Long addIdea, Long editIdea, Long closeIdea, 
                                 Long addComment, Long deleteComment,
@@ -137,58 +211,51 @@ public class ChangeService {
     public List<Contributions> getAnalytics(String projectId, String authHeader, Integer days) {
         String userId = userService.getUserIdByToken(authHeader);
         LocalDate cutoffDate = LocalDate.now().minusDays(days); // Last 90 days
-        
-        // Fetch changes and filter by date
-        List<Change> userChanges = changeRepository.findByProjectId(projectId, userId)
-            .stream()
-            .filter(change -> !change.getCreatedAt().toLocalDate().isBefore(cutoffDate))
-            .collect(Collectors.toList());
 
-        return buildAnalytics(userChanges);
+        return buildAnalyticsFromRollups(
+            rollupRepository.findByProjectIdAndOwnerIdAndDayGreaterThanEqual(projectId, userId, cutoffDate.toString()));
     }
 
     public List<Contributions> getAnalyticsByUserId(String projectId, String userId, String authHeader, Integer days) {
-        projectAuthorizationService.authenticateProject(projectId, authHeader);
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
         LocalDate cutoffDate = LocalDate.now().minusDays(days); // Last 90 days
-        
-        // Fetch changes and filter by date
-        List<Change> userChanges = changeRepository.findByOwnerIdAndProjectId(userId, projectId)
-            .stream()
-            .filter(change -> !change.getCreatedAt().toLocalDate().isBefore(cutoffDate))
-            .collect(Collectors.toList());
 
-        return buildAnalytics(userChanges);
+        return buildAnalyticsFromRollups(
+            rollupRepository.findByProjectIdAndOwnerIdAndDayGreaterThanEqual(projectId, userId, cutoffDate.toString()));
     }
-    
-    public List<Contributions> buildAnalytics(List<Change> userChanges) {
-        // Group by day (truncate time portion)
-        Map<LocalDate, List<Change>> groupedChanges = userChanges.stream()
-            .collect(Collectors.groupingBy(change -> change.getCreatedAt().toLocalDate()));
-    
-        // Then map to Contributions
-        return groupedChanges.entrySet().stream()
+
+    public List<Contributions> buildAnalyticsFromRollups(List<ContributionRollup> rollups) {
+        // One rollup per user and day; merge in case several users are passed in
+        Map<LocalDate, List<ContributionRollup>> byDay = rollups.stream()
+            .collect(Collectors.groupingBy(ContributionRollup::getDate, TreeMap::new, Collectors.toList()));
+
+        return byDay.entrySet().stream()
             .map(entry -> {
-                LocalDate date = entry.getKey();
-                List<Change> changes = entry.getValue();
-    
-                long add = changes.stream().filter(c -> c.getChangeType() == ChangeType.ADDED_IDEA).count();
-                long edit = changes.stream().filter(c -> c.getChangeType() == ChangeType.MODIFIED_IDEA).count();
-                long close = changes.stream().filter(c -> c.getChangeType() == ChangeType.CLOSED_IDEA).count();
-                long upvote = changes.stream().filter(c -> c.getChangeType() == ChangeType.UPVOTE).count();
-                long downvote = changes.stream().filter(c -> c.getChangeType() == ChangeType.DOWNVOTE).count();
-                long addComment = changes.stream().filter(c -> c.getChangeType() == ChangeType.ADDED_COMMENT).count();
-                long deleteComment = changes.stream().filter(c -> c.getChangeType() == ChangeType.DELETED_COMMENT).count();
-    
-                long settings = changes.stream().filter(c -> c.getChangeType() == ChangeType.CHANGED_PROJECT_SETTINGS).count();
-                settings += changes.stream().filter(c -> c.getChangeType() == ChangeType.LEFT_PROJECT).count();
-                settings += changes.stream().filter(c -> c.getChangeType() == ChangeType.ADDED_MEMBER).count();
-    
-                return new Contributions(date.atStartOfDay(), add, edit, close, addComment, deleteComment, upvote, downvote, settings);
+                List<ContributionRollup> day = entry.getValue();
+                return new Contributions(entry.getKey().atStartOfDay(),
+                    sum(day, ChangeType.ADDED_IDEA), sum(day, ChangeType.MODIFIED_IDEA), sum(day, ChangeType.CLOSED_IDEA),
+                    sum(day, ChangeType.ADDED_COMMENT), sum(day, ChangeType.DELETED_COMMENT),
+                    sum(day, ChangeType.UPVOTE), sum(day, ChangeType.DOWNVOTE),
+                    sum(day, ChangeType.CHANGED_PROJECT_SETTINGS) + sum(day, ChangeType.LEFT_PROJECT) + sum(day, ChangeType.ADDED_MEMBER));
             })
-            .sorted((c1, c2) -> c1.date().compareTo(c2.date())) 
             .collect(Collectors.toList());
     }
 
+    private static long sum(List<ContributionRollup> rollups, ChangeType type) {
+        return rollups.stream().mapToLong(rollup -> rollup.count(type)).sum();
+    }
     
-
+    public List<Contributions> buildAnalytics(List<Change> userChanges) {
+        // Single pass: count per day and type, then shape like the rollups
+        Map<LocalDate, ContributionRollup> byDay = new TreeMap<>();
+        for (Change change : userChanges) {
+            ContributionRollup day = byDay.computeIfAbsent(change.getCreatedAt().toLocalDate(), date -> {
+                ContributionRollup rollup = new ContributionRollup();
+                rollup.setDay(date.toString());
+                return rollup;
+            });
+            day.getCounts().merge(change.getChangeType().name(), 1L, Long::sum);
+        }
+        return buildAnalyticsFromRollups(new ArrayList<>(byDay.values()));
+    }
 }
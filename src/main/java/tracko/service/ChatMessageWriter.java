@@ -0,0 +1,96 @@
+package tracko.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import tracko.models.messages.Message;
+import tracko.repository.MessageRepository;
+
+/**
+ * Persists chat messages that were already broadcast. Messages arrive with their id assigned,
+ * wait in a bounded queue and are stored with one insertMany per batch. When the queue is full
+ * the sender stores its own message. A failed batch is retried with per-message upserts, since
+ * part of it may have been written.
+ */
+@Component
+public class ChatMessageWriter {
+
+    private final Logger log = LoggerFactory.getLogger(ChatMessageWriter.class);
+
+    private final MessageRepository messageRepository;
+    private final BlockingQueue<Message> queue;
+    private final int batchSize;
+
+    private List<Message> retry = new ArrayList<>();
+
+    public ChatMessageWriter(MessageRepository messageRepository,
+                             @Value("${chat.writer.capacity:10000}") int capacity,
+                             @Value("${chat.writer.batch-size:500}") int batchSize) {
+        this.messageRepository = messageRepository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+    }
+
+    public void submit(Message message) {
+        if (!queue.offer(message)) {
+            log.warn("Chat write queue full, storing message for project {} synchronously", message.getProjectId());
+            messageRepository.save(message);
+        }
+    }
+
+    /** Messages of a project that are not stored yet, oldest first. */
+    public synchronized List<Message> pending(String projectId) {
+        List<Message> pending = new ArrayList<>();
+        retry.stream().filter(message -> projectId.equals(message.getProjectId())).forEach(pending::add);
+        queue.stream().filter(message -> projectId.equals(message.getProjectId())).forEach(pending::add);
+        return pending;
+    }
+
+    public synchronized int pendingCount() {
+        return queue.size() + retry.size();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.writer.flush-interval-ms:100}")
+    public synchronized void drain() {
+        if (!retry.isEmpty()) {
+            try {
+                messageRepository.saveAll(retry);
+                retry = new ArrayList<>();
+            } catch (RuntimeException e) {
+                log.error("Failed to store {} chat messages, retrying on the next tick: {}", retry.size(), e.getMessage());
+                return;
+            }
+        }
+
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                messageRepository.insert(batch);
+            } catch (RuntimeException e) {
+                log.error("Failed to store {} chat messages, retrying on the next tick: {}", batch.size(), e.getMessage());
+                retry = batch;
+                return;
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drain();
+        int left = pendingCount();
+        if (left > 0) {
+            log.error("Dropping {} chat messages that could not be stored", left);
+        }
+    }
+}
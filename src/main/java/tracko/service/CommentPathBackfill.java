@@ -0,0 +1,115 @@
+package tracko.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import tracko.models.comment.Comment;
+import tracko.repository.CommentRepository;
+
+/**
+ * Derives parentId, path and depth for comments stored before threads were materialized,
+ * using the replies lists. Works one idea at a time and only picks ideas that still have
+ * comments without a path, so an interrupted run continues on the next start.
+ */
+@Component
+public class CommentPathBackfill implements ApplicationRunner {
+
+    private final Logger log = LoggerFactory.getLogger(CommentPathBackfill.class);
+
+    private final CommentRepository commentRepository;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public CommentPathBackfill(CommentRepository commentRepository,
+                               @Value("${comment.paths.backfill-on-startup:true}") boolean enabled,
+                               @Value("${comment.paths.backfill-batch-size:500}") int batchSize) {
+        this.commentRepository = commentRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    public int backfill() {
+        int ideas = 0;
+        List<Comment> batch = commentRepository.findByPathIsNull(PageRequest.of(0, batchSize));
+        while (!batch.isEmpty()) {
+            Set<String> ideaIds = new LinkedHashSet<>();
+            batch.forEach(comment -> ideaIds.add(comment.getIdeaId()));
+            for (String ideaId : ideaIds) {
+                backfillIdea(ideaId);
+                ideas++;
+            }
+            batch = commentRepository.findByPathIsNull(PageRequest.of(0, batchSize));
+        }
+        if (ideas > 0) {
+            log.info("Backfilled comment paths for {} idea(s)", ideas);
+        }
+        return ideas;
+    }
+
+    /** Whether some of the idea's comments still have no path. */
+    public boolean needsBackfill(String ideaId) {
+        return commentRepository.existsByIdeaIdAndPathIsNull(ideaId);
+    }
+
+    /** Derives and stores the missing paths of one idea's comments. */
+    public void backfillIdea(String ideaId) {
+        List<Comment> comments = commentRepository.findByIdeaId(ideaId);
+        Map<String, Comment> byId = new HashMap<>();
+        Map<String, String> parentOf = new HashMap<>();
+        for (Comment comment : comments) {
+            byId.put(comment.getCommentId(), comment);
+        }
+        for (Comment comment : comments) {
+            if (comment.getReplies() != null) {
+                for (String replyId : comment.getReplies()) {
+                    parentOf.putIfAbsent(replyId, comment.getCommentId());
+                }
+            }
+        }
+
+        List<Comment> missing = comments.stream().filter(comment -> comment.getPath() == null).toList();
+        for (Comment comment : missing) {
+            assignPath(comment, byId, parentOf, new HashSet<>());
+        }
+        commentRepository.setPaths(missing);
+    }
+
+    private void assignPath(Comment comment, Map<String, Comment> byId, Map<String, String> parentOf, Set<String> visiting) {
+        if (comment.getPath() != null) {
+            return;
+        }
+        visiting.add(comment.getCommentId());
+
+        // A missing parent or a cycle in the replies lists makes the comment a root
+        Comment parent = byId.get(parentOf.get(comment.getCommentId()));
+        if (parent != null && !visiting.contains(parent.getCommentId())) {
+            assignPath(parent, byId, parentOf, visiting);
+            comment.setParentId(parent.getCommentId());
+            comment.setPath(parent.getPath() + comment.getCommentId() + "/");
+            comment.setDepth(parent.getDepth() + 1);
+        } else {
+            comment.setParentId(null);
+            comment.setPath(comment.getCommentId() + "/");
+            comment.setDepth(0);
+        }
+    }
+}
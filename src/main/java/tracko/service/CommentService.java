@@ -5,8 +5,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,7 +19,9 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import tracko.repository.CommentRepository;
 import tracko.constant.ChangeType;
 import tracko.models.comment.Comment;
+import tracko.models.comment.CommentNode;
 import tracko.models.comment.CommentRegister;
+import tracko.models.comment.CommentThread;
 
 @Service
 @Transactional
@@ -27,6 +32,9 @@ public class CommentService {
     private final SimpMessagingTemplate messagingTemplate;
     private IdeaService ideaService; // No final
     private final ChangeService changesService;
+    private final CommentPathBackfill pathBackfill;
+
+    private static final int MAX_THREAD_PAGE = 200;
 
     @Autowired
     public void setIdeaService(IdeaService ideaService) {
@@ -37,8 +45,10 @@ public class CommentService {
                             IdeaService ideaService, 
                             UserService userService, 
                             SimpMessagingTemplate messagingTemplate,
-                            ChangeService changesService) {
+                            ChangeService changesService,
+                            CommentPathBackfill pathBackfill) {
         this.changesService = changesService;
+        this.pathBackfill = pathBackfill;
         this.commentRepository = commentRepository;
         // this.ideaService = ideaService;
         this.userService = userService;
@@ -57,13 +67,36 @@ public class CommentService {
         return commentRepository.findByIdeaId(ideaId);
     }
 
+    /** Comments of all of a project's ideas, newest first, read lazily; the caller closes the stream. */
+    public Stream<Comment> streamNewestByProjectId(String projectId) {
+        return commentRepository.streamByProjectIdOrderByCreatedAtDescCommentIdDesc(projectId);
+    }
+
 public Comment createComment(String projectId, String ideaId, String parentCommentId, String authHeader, CommentRegister comment) {
     // Authenticate project and idea
     ideaService.getIdeaById(projectId, ideaId, authHeader);
     String userId = userService.getUserIdByToken(authHeader);
 
-    // Create new comment
+    // Resolve the parent first, its path is the prefix of ours
+    Comment parent = null;
+    if (parentCommentId != null) {
+        parent = commentRepository.findById(parentCommentId)
+            .filter(candidate -> ideaId.equals(candidate.getIdeaId()))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Parent comment not found"));
+        if (parent.getPath() == null) {
+            // Stored before paths existed and not reached by the backfill yet: derive the idea's
+            // paths now, or the reply would hang under a made-up path the subtree queries miss
+            pathBackfill.backfillIdea(ideaId);
+            parent = commentRepository.findById(parentCommentId).orElse(parent);
+        }
+    }
+
+    // Create new comment; the id is assigned up front so it can be part of the path
     Comment newComment = new Comment();
+    newComment.setCommentId(new ObjectId().toHexString());
+    newComment.setParentId(parentCommentId);
+    newComment.setPath(childPath(parent, newComment.getCommentId()));
+    newComment.setDepth(parent != null ? parent.getDepth() + 1 : 0);
     newComment.setCommentText(comment.getCommentText());
     newComment.setIdeaId(ideaId);
     newComment.setOwnerId(userId);
@@ -73,11 +106,10 @@ public Comment createComment(String projectId, String ideaId, String parentComme
 
     // Save comment to get the new ID
     Comment savedComment = commentRepository.save(newComment);
+    ideaService.adjustCommentCount(ideaId, 1);
 
     // If this is a reply, attach it to parent
-    if (parentCommentId != null) {
-        Comment parent = commentRepository.findById(parentCommentId)
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Parent comment not found"));
+    if (parent != null) {
         List<String> replies = parent.getReplies();
         replies.add(savedComment.getCommentId());
         parent.setReplies(replies);
@@ -99,6 +131,52 @@ public Comment createComment(String projectId, String ideaId, String parentComme
     return savedComment;
 }
 
+    public CommentThread getCommentThread(String projectId, String ideaId, String after, int limit, int maxDepth, String authHeader) {
+        ideaService.getIdeaById(projectId, ideaId, authHeader);
+
+        if (limit < 1 || maxDepth < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive and maxDepth not negative");
+        }
+        int pageSize = Math.min(limit, MAX_THREAD_PAGE);
+
+        // The thread query skips comments without a path; derive them first for an idea the
+        // startup backfill has not reached
+        if (pathBackfill.needsBackfill(ideaId)) {
+            pathBackfill.backfillIdea(ideaId);
+        }
+
+        // One extra row tells us whether there is a next page
+        List<Comment> page = commentRepository.findThread(
+            ideaId, after != null ? after : "", maxDepth, PageRequest.of(0, pageSize + 1));
+        String nextCursor = null;
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            nextCursor = page.get(pageSize - 1).getPath();
+        }
+
+        // Path order guarantees a parent is seen before its replies
+        Map<String, CommentNode> nodes = new HashMap<>();
+        List<CommentNode> roots = new ArrayList<>();
+        for (Comment comment : page) {
+            CommentNode node = new CommentNode(comment, new ArrayList<>());
+            nodes.put(comment.getCommentId(), node);
+            CommentNode parent = comment.getParentId() != null ? nodes.get(comment.getParentId()) : null;
+            if (parent != null) {
+                parent.replies().add(node);
+            } else {
+                roots.add(node);
+            }
+        }
+        return new CommentThread(roots, nextCursor);
+    }
+
+    static String childPath(Comment parent, String commentId) {
+        if (parent == null) {
+            return commentId + "/";
+        }
+        return parent.getPath() + commentId + "/";
+    }
+
     public Comment getCommentById(String projectId, String ideaId, String commentId, String authHeader) {
     ideaService.getIdeaById(projectId, ideaId, authHeader);
 
@@ -114,19 +192,33 @@ public Comment createComment(String projectId, String ideaId, String parentComme
         if (!comment.getOwnerId().equals(userId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not the owner of this comment");
         }
-        deleteReplies(commentId, comment, authHeader);
-        commentRepository.delete(comment);
-        messagingTemplate.convertAndSend("/topic/comments/" + comment.getIdeaId(), Map.of("deletedId", comment.getCommentId()));
+        List<String> deletedIds;
+        long deleted;
+        if (comment.getPath() != null) {
+            // The ids are only for the event; the delete goes by path, so replies added meanwhile go too
+            deletedIds = commentRepository.findSubtreeIds(comment.getIdeaId(), comment.getPath());
+            deleted = commentRepository.deleteSubtree(comment.getIdeaId(), comment.getPath());
+        } else {
+            // Not backfilled yet: only the replies list is known, so go one level deep
+            deletedIds = new ArrayList<>();
+            deletedIds.add(comment.getCommentId());
+            if (comment.getReplies() != null) {
+                deletedIds.addAll(comment.getReplies());
+            }
+            deleted = commentRepository.deleteAllByIds(deletedIds);
+        }
+        if (comment.getParentId() != null) {
+            commentRepository.pullReply(comment.getParentId(), commentId);
+        }
+        ideaService.adjustCommentCount(comment.getIdeaId(), (int) -deleted);
+        // One event for the whole subtree; deletedId stays for clients that only know the single form
+        messagingTemplate.convertAndSend(
+            "/topic/comments/" + comment.getIdeaId(),
+            Map.of("deletedId", comment.getCommentId(), "deletedIds", deletedIds)
+        );
 
 
         changesService.markChange(comment.getProjectId(), ChangeType.DELETED_COMMENT, authHeader, false, null);
-    }   
-
-    private void deleteReplies(String commentId, Comment comment, String authHeader) {
-        List<String> replies = comment.getReplies();
-        for (String replyId : replies) {
-            commentRepository.deleteById(replyId);
-        }
     }
 
 }
@@ -0,0 +1,54 @@
+package tracko.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import tracko.repository.ContributionRollupRepository;
+
+/**
+ * Rebuilds the contribution rollups of projects whose changes predate them. Each project is
+ * recomputed by one aggregation over its changes and then marked, so an interrupted run
+ * redoes at most the project it was working on.
+ */
+@Component
+@Order(1)
+public class ContributionRollupBackfill implements ApplicationRunner {
+
+    private final Logger log = LoggerFactory.getLogger(ContributionRollupBackfill.class);
+
+    private final ContributionRollupRepository rollupRepository;
+    private final boolean enabled;
+
+    public ContributionRollupBackfill(ContributionRollupRepository rollupRepository,
+                                      @Value("${changes.rollups.backfill-on-startup:true}") boolean enabled) {
+        this.rollupRepository = rollupRepository;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    public int backfill() {
+        int projects = 0;
+        for (String projectId : rollupRepository.findProjectsPendingBackfill()) {
+            // Same ids as the live $inc path. The aggregate already includes what was counted live,
+            // so each count is raised to it instead of overwritten, which would drop concurrent $incs
+            rollupRepository.mergeMax(rollupRepository.aggregateFromChanges(projectId));
+            rollupRepository.markBackfilled(projectId);
+            projects++;
+        }
+        if (projects > 0) {
+            log.info("Rebuilt contribution rollups for {} project(s)", projects);
+        }
+        return projects;
+    }
+}
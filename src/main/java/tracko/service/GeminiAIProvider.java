@@ -0,0 +1,52 @@
+package tracko.service;
+
+import java.util.function.Predicate;
+
+import com.google.genai.Client;
+import com.google.genai.ResponseStream;
+import com.google.genai.types.GenerateContentResponse;
+
+public class GeminiAIProvider implements AIProvider {
+
+    private final Client genAiClient;
+    private final String model;
+
+    public GeminiAIProvider(Client genAiClient, String model) {
+        this.genAiClient = genAiClient;
+        this.model = model;
+    }
+
+    @Override
+    public String name() {
+        return "gemini";
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public String generate(String prompt) {
+        GenerateContentResponse response = genAiClient.models.generateContent(model, prompt, null);
+        return response.text();
+    }
+
+    @Override
+    public boolean stream(String prompt, Predicate<String> onChunk) {
+        try (ResponseStream<GenerateContentResponse> stream =
+                 genAiClient.models.generateContentStream(model, prompt, null)) {
+            for (GenerateContentResponse response : stream) {
+                String text = response.text();
+                if (text != null && !text.isEmpty() && !onChunk.test(text)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+}
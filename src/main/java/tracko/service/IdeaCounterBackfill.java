@@ -0,0 +1,53 @@
+package tracko.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import tracko.repository.IdeaRepository;
+
+/**
+ * Fills the denormalized vote/comment counters of ideas stored before they existed.
+ * Works in batches and only touches ideas without a score, so an interrupted run
+ * simply continues where it stopped on the next start.
+ */
+@Component
+public class IdeaCounterBackfill implements ApplicationRunner {
+
+    private final Logger log = LoggerFactory.getLogger(IdeaCounterBackfill.class);
+
+    private final IdeaRepository ideaRepository;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public IdeaCounterBackfill(IdeaRepository ideaRepository,
+                               @Value("${idea.counters.backfill-on-startup:true}") boolean enabled,
+                               @Value("${idea.counters.backfill-batch-size:500}") int batchSize) {
+        this.ideaRepository = ideaRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    public int backfill() {
+        int batches = 0;
+        String lastId = ideaRepository.backfillCounters(null, batchSize);
+        while (lastId != null) {
+            batches++;
+            lastId = ideaRepository.backfillCounters(lastId, batchSize);
+        }
+        if (batches > 0) {
+            log.info("Backfilled idea counters in {} batch(es) of up to {}", batches, batchSize);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,145 @@
+package tracko.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import tracko.cache.BoundedCache;
+import tracko.models.idea.Idea;
+import tracko.models.idea.IdeaCoordinates;
+import tracko.models.websocket.IdeaPositionMessage;
+import tracko.repository.IdeaRepository;
+
+/**
+ * Write-behind buffer for idea drag updates. Only the latest coordinates per idea are kept;
+ * they are broadcast at most once per broadcast tick and written to Mongo in one bulk
+ * operation per flush tick, when a WebSocket session ends and on shutdown.
+ * Entries stay visible to readers until their write has completed.
+ */
+@Component
+public class IdeaPositionBuffer {
+
+    private final Logger log = LoggerFactory.getLogger(IdeaPositionBuffer.class);
+
+    private final IdeaRepository ideaRepository;
+    private final IdeaTopicPublisher ideaTopic;
+
+    private final Map<String, IdeaCoordinates> pending = new ConcurrentHashMap<>();
+    private final Map<String, IdeaCoordinates> unsent = new ConcurrentHashMap<>();
+    // ideaId -> projectId for ideas we already checked, so repeated moves skip the lookup
+    private final BoundedCache<String, String> knownIdeas = new BoundedCache<>(10000, Duration.ofMinutes(30));
+
+    public IdeaPositionBuffer(IdeaRepository ideaRepository, IdeaTopicPublisher ideaTopic) {
+        this.ideaRepository = ideaRepository;
+        this.ideaTopic = ideaTopic;
+    }
+
+    public boolean isKnown(String projectId, String ideaId) {
+        return projectId.equals(knownIdeas.get(ideaId));
+    }
+
+    public void record(String projectId, String ideaId, Float x, Float y) {
+        IdeaCoordinates position = new IdeaCoordinates(projectId, ideaId, x, y);
+        knownIdeas.put(ideaId, projectId);
+        pending.put(ideaId, position);
+        unsent.put(ideaId, position);
+    }
+
+    public Idea overlay(Idea idea) {
+        if (idea != null) {
+            IdeaCoordinates position = pending.get(idea.getIdeaId());
+            if (position != null) {
+                idea.setx(position.x());
+                idea.sety(position.y());
+            }
+        }
+        return idea;
+    }
+
+    public List<Idea> overlayAll(List<Idea> ideas) {
+        if (!pending.isEmpty()) {
+            ideas.forEach(this::overlay);
+        }
+        return ideas;
+    }
+
+    public List<String> pendingIdeaIds(String projectId) {
+        List<String> ideaIds = new ArrayList<>();
+        for (IdeaCoordinates position : pending.values()) {
+            if (position.projectId().equals(projectId)) {
+                ideaIds.add(position.ideaId());
+            }
+        }
+        return ideaIds;
+    }
+
+    public void discard(String ideaId) {
+        pending.remove(ideaId);
+        unsent.remove(ideaId);
+        knownIdeas.invalidate(ideaId);
+    }
+
+    /**
+     * Drops the buffered position of an idea and runs write, which stores a new one, while no
+     * flush is running. A flush that already took the old position can then only write it
+     * before the new one, never after.
+     */
+    public synchronized <T> T replace(String ideaId, Supplier<T> write) {
+        discard(ideaId);
+        return write.get();
+    }
+
+    @Scheduled(fixedDelayString = "${idea.position.broadcast-interval-ms:50}")
+    public void broadcastPending() {
+        for (IdeaCoordinates position : unsent.values()) {
+            if (unsent.remove(position.ideaId(), position)) {
+                ideaTopic.publish(position.projectId(), sequence -> new IdeaPositionMessage(
+                    position.projectId(), position.ideaId(), position.x(), position.y(), sequence));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idea.position.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<IdeaCoordinates> batch = new ArrayList<>(pending.values());
+        try {
+            ideaRepository.updatePositions(batch);
+        } catch (RuntimeException e) {
+            // Keep the entries; the next tick retries them
+            log.error("Failed to flush {} idea positions: {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        // Only drop what we wrote; newer moves that arrived meanwhile stay pending
+        for (IdeaCoordinates position : batch) {
+            pending.remove(position.ideaId(), position);
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        broadcastPending();
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -1,9 +1,12 @@
 package tracko.service;
 
 import java.util.ArrayList;
-
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,18 +15,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import tracko.constant.ChangeType;
+import tracko.constant.VoteType;
 import tracko.models.idea.Idea;
+import tracko.models.idea.IdeaPosition;
 import tracko.models.idea.IdeaRegister;
 import tracko.models.idea.IdeaUpdate;
-import tracko.models.project.Project;
-import tracko.models.user.User;
+import tracko.models.idea.VoteTally;
+import tracko.models.project.ProjectHeader;
+import tracko.models.websocket.IdeaUpdateMessage;
+import tracko.models.websocket.IdeaVoteMessage;
 import tracko.repository.CommentRepository;
 import tracko.repository.IdeaRepository;
 
-// WebSocket related
-
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-
 @Service
 @Transactional
 public class IdeaService {
@@ -32,51 +35,61 @@ public class IdeaService {
     private final UserService userService;
     private final CommentRepository commentRepository;
     private final ProjectAuthorizationService projectAuthorizationService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final IdeaTopicPublisher ideaTopic;
     private final ProjectService projectService;
     private final ChangeService changeService; 
+    private final IdeaPositionBuffer positionBuffer;
 
     // For sonarqube, so we don't use the same constant multiple times
     private static final String IDEA_NOT_FOUND = "Idea not found";
+    private static final int MAX_TOP_IDEAS = 100;
 
     public IdeaService(IdeaRepository ideaRepository, 
                      UserService userService,
-                     SimpMessagingTemplate messagingTemplate, 
+                     IdeaTopicPublisher ideaTopic, 
                      ProjectAuthorizationService projectAuthorizationService,
                      CommentRepository commentRepository,
                      ProjectService projectService,
-                     ChangeService changeService) {
+                     ChangeService changeService,
+                     IdeaPositionBuffer positionBuffer) {
         this.changeService = changeService;
+        this.positionBuffer = positionBuffer;
         this.ideaRepository = ideaRepository;
         this.userService = userService;
-        this.messagingTemplate = messagingTemplate;
+        this.ideaTopic = ideaTopic;
         this.projectAuthorizationService = projectAuthorizationService;
         this.commentRepository = commentRepository;
         this.projectService = projectService; 
     }
 
-    private void broadcastIdeaUpdate(String projectId, Idea idea) {
-        messagingTemplate.convertAndSend(
-            "/topic/projects/" + projectId + "/ideas", 
-            idea
-        );
+    private void broadcastIdeaCreation(String projectId, Idea idea) {
+        ideaTopic.publish(projectId, sequence -> IdeaUpdateMessage.created(projectId, sequence, idea));
+    }
+
+    private void broadcastIdeaUpdate(String projectId, String ideaId, Map<String, Object> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        ideaTopic.publish(projectId, sequence -> IdeaUpdateMessage.updated(projectId, ideaId, sequence, changes));
     }
 
     private void broadcastIdeaDeletion(String projectId, String ideaId) {
-        messagingTemplate.convertAndSend(
-            "/topic/projects/" + projectId + "/ideas",
-            Map.of("deletedId", ideaId)
-        );
+        ideaTopic.publish(projectId, sequence -> IdeaUpdateMessage.deleted(projectId, ideaId, sequence));
+    }
+
+    private void broadcastVote(String projectId, String userId, VoteTally tally) {
+        ideaTopic.publish(projectId, sequence -> new IdeaVoteMessage(projectId, tally.getIdeaId(), userId,
+            tally.getUserVote(), tally.getUpVoteCount(), tally.getDownVoteCount(), sequence));
     }
 
     public Idea createIdea(String projectId, IdeaRegister inputIdea, String authHeader, ArrayList<String> subIdeas) {
         String userId = userService.getUserIdByToken(authHeader);    
-        Project project = projectAuthorizationService.authenticateProject(projectId, authHeader);
+        ProjectHeader project = projectAuthorizationService.authorizeMember(projectId, authHeader);
     
         //  creates idea
         Idea newIdea = new Idea();
         newIdea.setOwnerId(userId);
-        newIdea.setProjectId(project.getProjectId());  
+        newIdea.setProjectId(project.projectId());  
         newIdea.setIdeaName(inputIdea.getIdeaName());
         newIdea.setIdeaDescription(inputIdea.getIdeaDescription());
         newIdea.setx(inputIdea.getX()); 
@@ -84,79 +97,171 @@ public class IdeaService {
         newIdea.setUpVotes(new ArrayList<>());  
         newIdea.setDownVotes(new ArrayList<>());  
         newIdea.setComments(subIdeas);
+        newIdea.initCounters();
     
         // Saves idea
         newIdea = ideaRepository.save(newIdea);
-        broadcastIdeaUpdate(projectId, newIdea);
+        broadcastIdeaCreation(projectId, newIdea);
         changeService.markChange(projectId, ChangeType.ADDED_IDEA, authHeader, false, null);
         return newIdea;
     }
     
 
     public List<Idea> getIdeasByProject(String projectId, String authHeader) {
-        projectAuthorizationService.authenticateProject(projectId, authHeader);
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
 
-        // Fetch ideas linked to the provided projectId
-        return ideaRepository.findByProjectId(projectId);
+        // Fetch ideas linked to the provided projectId, with positions that are not flushed yet
+        return positionBuffer.overlayAll(ideaRepository.findByProjectId(projectId));
+    }
+
+    public List<Idea> getIdeasInViewport(String projectId, Float minX, Float minY, Float maxX, Float maxY, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+
+        if (minX == null || minY == null || maxX == null || maxY == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minX, minY, maxX and maxY must be given together");
+        }
+        if (minX > maxX || minY > maxY) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Viewport minimum must not exceed maximum");
+        }
+
+        List<Idea> ideas = new ArrayList<>(ideaRepository.findInViewport(projectId, minX, minY, maxX, maxY));
+
+        // Ideas dragged into the viewport may not be flushed yet, so fetch those too
+        Set<String> found = new HashSet<>();
+        ideas.forEach(idea -> found.add(idea.getIdeaId()));
+        List<String> moved = positionBuffer.pendingIdeaIds(projectId).stream()
+            .filter(ideaId -> !found.contains(ideaId))
+            .toList();
+        if (!moved.isEmpty()) {
+            ideaRepository.findAllById(moved).forEach(ideas::add);
+        }
+
+        // ... and ideas dragged out of it must be dropped
+        return positionBuffer.overlayAll(ideas).stream()
+            .filter(idea -> idea.getX() != null && idea.gety() != null
+                && idea.getX() >= minX && idea.getX() <= maxX
+                && idea.gety() >= minY && idea.gety() <= maxY)
+            .toList();
+    }
+
+    public List<Idea> getTopIdeas(String projectId, int n, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+
+        if (n < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "n must be at least 1");
+        }
+        return positionBuffer.overlayAll(ideaRepository.findTopByScore(projectId, Math.min(n, MAX_TOP_IDEAS)));
+    }
+
+    public void adjustCommentCount(String ideaId, int delta) {
+        ideaRepository.incrementCounters(ideaId, 0, 0, delta);
     }
 
     public Idea getIdeaById(String projectId, String ideaId, String authHeader) {
-        projectAuthorizationService.authenticateProject(projectId, authHeader);
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
 
         return ideaRepository.findById(ideaId)
+                .map(positionBuffer::overlay)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, IDEA_NOT_FOUND));
     }
 
+    public IdeaPosition moveIdea(String projectId, String ideaId, IdeaPosition position, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+
+        if (position.getX() == null || position.getY() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Both x and y are required");
+        }
+        if (!positionBuffer.isKnown(projectId, ideaId) && !ideaRepository.existsByIdeaIdAndProjectId(ideaId, projectId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, IDEA_NOT_FOUND);
+        }
+
+        // Coalesced in memory; broadcast and persisted by the buffer's scheduled ticks
+        positionBuffer.record(projectId, ideaId, position.getX(), position.getY());
+        return position;
+    }
+
     public Idea updateIdea(String projectId, String ideaId, IdeaUpdate inputIdea, String authHeader) {
         Idea idea = ideaRepository.findById(ideaId)
+            .map(positionBuffer::overlay)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, IDEA_NOT_FOUND));
     
-        Project project = projectAuthorizationService.authenticateProject(projectId, authHeader);
+        ProjectHeader project = projectAuthorizationService.authorizeMember(projectId, authHeader);
 
-        User user = userService.getUserByToken(authHeader);
+        String userId = userService.getUserIdByToken(authHeader);
     
         boolean actualChange = false;
+        // Only the fields whose value actually differs are broadcast
+        Map<String, Object> changes = new LinkedHashMap<>();
+        // ... and only the fields the client sent are written
+        Map<String, Object> fields = new LinkedHashMap<>();
 
         // Only update non-null fields
         if (inputIdea.getIdeaName() != null) {
+            trackChange(changes, "ideaName", idea.getIdeaName(), inputIdea.getIdeaName());
             idea.setIdeaName(inputIdea.getIdeaName());
+            fields.put("ideaName", inputIdea.getIdeaName());
             actualChange = true;
         }
         if (inputIdea.getIdeaDescription() != null) {
+            trackChange(changes, "ideaDescription", idea.getIdeaDescription(), inputIdea.getIdeaDescription());
             idea.setIdeaDescription(inputIdea.getIdeaDescription());
+            fields.put("ideaDescription", inputIdea.getIdeaDescription());
             actualChange = true;
         }
 
-        if (actualChange && !idea.getOwnerId().equals(user.getId()) && !project.getOwnerId().equals(user.getId())) {
+        if (actualChange && !idea.getOwnerId().equals(userId) && !project.isOwner(userId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not the owner of this idea");
         }
     
         // These are floats, always update (even if 0)
         if (inputIdea.getX() != null) {
+            trackChange(changes, "x", idea.getX(), inputIdea.getX());
             idea.setx(inputIdea.getX());
+            fields.put("x", inputIdea.getX());
         }
         if (inputIdea.gety() != null) {
+            trackChange(changes, "y", idea.gety(), inputIdea.gety());
             idea.sety(inputIdea.gety());
+            fields.put("y", inputIdea.gety());
         }
 
         boolean upVote = false;
         boolean downVote = false;
         
         // Lists: update only if not null, else keep existing
+        // The repository derives the counters and score from the written lists itself
         if (inputIdea.getUpVotes() != null) {
+            trackChange(changes, "upVotes", idea.getUpVotes(), inputIdea.getUpVotes());
             idea.setUpVotes(inputIdea.getUpVotes());
+            fields.put("upVotes", inputIdea.getUpVotes());
             upVote = true;
         }
         if (inputIdea.getDownVotes() != null) {
+            trackChange(changes, "downVotes", idea.getDownVotes(), inputIdea.getDownVotes());
             idea.setDownVotes(inputIdea.getDownVotes());
+            fields.put("downVotes", inputIdea.getDownVotes());
             downVote = true;
         }
         if (inputIdea.getComments() != null) {
+            trackChange(changes, "comments", idea.getComments(), inputIdea.getComments());
             idea.setComments(inputIdea.getComments());
+            fields.put("comments", inputIdea.getComments());
         }
     
-        Idea saved = ideaRepository.save(idea);
-        broadcastIdeaUpdate(projectId, saved);
+        // A targeted $set, so votes and comment counts applied since the read above are kept. A new
+        // position replaces the buffered one, in step with the flush so that can't revert it.
+        Idea saved = fields.containsKey("x") || fields.containsKey("y")
+            ? positionBuffer.replace(ideaId, () -> ideaRepository.updateFields(projectId, ideaId, fields))
+            : ideaRepository.updateFields(projectId, ideaId, fields);
+        if (saved == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, IDEA_NOT_FOUND);
+        }
+        if ((upVote || downVote) && saved.hasCounters()) {
+            trackChange(changes, "upVoteCount", idea.getUpVoteCount(), saved.getUpVoteCount());
+            trackChange(changes, "downVoteCount", idea.getDownVoteCount(), saved.getDownVoteCount());
+            trackChange(changes, "score", idea.getScore(), saved.getScore());
+        }
+        broadcastIdeaUpdate(projectId, ideaId, changes);
         if (actualChange) {
             changeService.markChange(projectId, ChangeType.MODIFIED_IDEA, authHeader, false, null);
         } else if (upVote) {
@@ -164,9 +269,15 @@ public class IdeaService {
         } else if (downVote) {
             changeService.markChange(projectId, ChangeType.DOWNVOTE, authHeader, false, null);
         }
-        return saved;
+        return positionBuffer.overlay(saved);
+    }
+
+
+    private static void trackChange(Map<String, Object> changes, String field, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            changes.put(field, after);
+        }
     }
-    
     
     public void deleteIdea(String projectId, String ideaId, String authHeader) {
         String userId = userService.getUserIdByToken(authHeader);
@@ -175,17 +286,78 @@ public class IdeaService {
         Idea idea = ideaRepository.findById(ideaId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, IDEA_NOT_FOUND));
 
-        Project project = projectAuthorizationService.authenticateProject(projectId, authHeader);
+        ProjectHeader project = projectAuthorizationService.authorizeMember(projectId, authHeader);
     
-        if (!idea.getOwnerId().equals(userId) && !userId.equals(ownerId) && !project.getOwnerId().equals(userId)) {
+        if (!idea.getOwnerId().equals(userId) && !userId.equals(ownerId) && !project.isOwner(userId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not the owner of this idea");
         }
 
         commentRepository.deleteByIdeaId(ideaId);
         ideaRepository.deleteById(ideaId);
+        positionBuffer.discard(ideaId);
         broadcastIdeaDeletion(projectId, ideaId);
         changeService.markChange(projectId, ChangeType.CLOSED_IDEA, authHeader, false, null);
 
     }
-    
+
+    public VoteTally vote(String projectId, String ideaId, String voteType, String authHeader) {
+        VoteType vote;
+        try {
+            vote = VoteType.fromString(voteType);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown vote type: " + voteType);
+        }
+        if (vote == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vote type is required");
+        }
+        return applyVote(projectId, ideaId, vote, authHeader);
+    }
+
+    public VoteTally unvote(String projectId, String ideaId, String authHeader) {
+        return applyVote(projectId, ideaId, null, authHeader);
+    }
+
+    private VoteTally applyVote(String projectId, String ideaId, VoteType vote, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+        String userId = userService.getUserIdByToken(authHeader);
+
+        // Single atomic $addToSet/$pull; the pre-image tells us whether anything changed
+        Idea before = ideaRepository.applyVote(projectId, ideaId, userId, vote);
+        if (before == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, IDEA_NOT_FOUND);
+        }
+
+        Set<String> upVotes = before.getUpVotes() != null ? new HashSet<>(before.getUpVotes()) : new HashSet<>();
+        Set<String> downVotes = before.getDownVotes() != null ? new HashSet<>(before.getDownVotes()) : new HashSet<>();
+        int upBefore = upVotes.size();
+        int downBefore = downVotes.size();
+        if (vote == VoteType.UP) {
+            upVotes.add(userId);
+            downVotes.remove(userId);
+        } else if (vote == VoteType.DOWN) {
+            downVotes.add(userId);
+            upVotes.remove(userId);
+        } else {
+            upVotes.remove(userId);
+            downVotes.remove(userId);
+        }
+
+        VoteTally tally = new VoteTally(ideaId, upVotes.size(), downVotes.size(), vote);
+        int upDelta = upVotes.size() - upBefore;
+        int downDelta = downVotes.size() - downBefore;
+        if (upDelta == 0 && downDelta == 0) {
+            return tally;
+        }
+
+        // The pre-image is per user and atomic, so these deltas are exact even under concurrent votes
+        ideaRepository.incrementCounters(ideaId, upDelta, downDelta, 0);
+
+        broadcastVote(projectId, userId, tally);
+        if (vote == VoteType.UP) {
+            changeService.markChange(projectId, ChangeType.UPVOTE, authHeader, false, null);
+        } else if (vote == VoteType.DOWN) {
+            changeService.markChange(projectId, ChangeType.DOWNVOTE, authHeader, false, null);
+        }
+        return tally;
+    }
 }
@@ -0,0 +1,35 @@
+package tracko.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends everything on /topic/projects/{projectId}/ideas. Each message, whatever its action, is
+ * built with the project's next sequence number and sent while holding that project's lock, so
+ * messages leave in sequence order and a client that sees a gap knows it missed one.
+ */
+@Component
+public class IdeaTopicPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    public IdeaTopicPublisher(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public void publish(String projectId, LongFunction<Object> message) {
+        Sequence sequence = sequences.computeIfAbsent(projectId, id -> new Sequence());
+        synchronized (sequence) {
+            messagingTemplate.convertAndSend("/topic/projects/" + projectId + "/ideas", message.apply(++sequence.last));
+        }
+    }
+
+    private static final class Sequence {
+        private long last;
+    }
+}
@@ -1,41 +1,89 @@
 package tracko.service;
 
+import java.time.Duration;
 import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import tracko.auth.JwtUtil;
+import tracko.auth.AuthPrincipalResolver;
+import tracko.cache.BoundedCache;
+import tracko.cache.BoundedCache.CacheStats;
 import tracko.repository.ProjectRepository;
 import tracko.models.project.Project;
+import tracko.models.project.ProjectHeader;
 
 @Service
 public class ProjectAuthorizationService {
-    private final JwtUtil jwtUtil;  // Add this
+    private final AuthPrincipalResolver authPrincipalResolver;
     private final ProjectRepository projectRepository;
 
-    public ProjectAuthorizationService(JwtUtil jwtUtil, ProjectRepository projectRepository) {
-        this.jwtUtil = jwtUtil;
+    // projectId -> header, invalidated on project writes. The header carries the member set, so
+    // access is decided from the same copy that is returned
+    private final BoundedCache<String, ProjectHeader> headerCache;
+
+    public ProjectAuthorizationService(AuthPrincipalResolver authPrincipalResolver, ProjectRepository projectRepository,
+                                       @Value("${project.auth-cache.max-entries:10000}") int maxEntries,
+                                       @Value("${project.auth-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.authPrincipalResolver = authPrincipalResolver;
         this.projectRepository = projectRepository;
+        this.headerCache = new BoundedCache<>(maxEntries, Duration.ofSeconds(ttlSeconds));
     }
 
     public Project authenticateProject(String projectId, String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        String userId = jwtUtil.extractUserId(token);  // Get userId directly from token
-        
-        if (!jwtUtil.validateToken(token)) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid token");
-        }
+        String userId = authPrincipalResolver.resolveUserId(authHeader);
 
+        long snapshot = headerCache.snapshot();
         Optional<Project> project = projectRepository.findById(projectId);
         if (project.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found");
         }
 
-        if (!project.get().getOwnerId().equals(userId) && !project.get().getProjectMembers().contains(userId)) {
+        // We already paid for the full document, so refresh the header while we have it, unless
+        // the project was changed meanwhile and our copy may be the older one
+        ProjectHeader header = ProjectHeader.of(project.get());
+        headerCache.putIfUnchanged(projectId, header, snapshot);
+
+        if (!header.hasAccess(userId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a project member: " + userId);
         }
 
         return project.get();
     }
-}
\ No newline at end of file
+
+    /**
+     * Same checks as {@link #authenticateProject} but answered from the in-process header cache,
+     * for callers that only need to know the user may act on the project.
+     */
+    public ProjectHeader authorizeMember(String projectId, String authHeader) {
+        return authorizeMemberById(projectId, authPrincipalResolver.resolveUserId(authHeader));
+    }
+
+    /** {@link #authorizeMember} for an already authenticated user, e.g. a STOMP session principal. */
+    public ProjectHeader authorizeMemberById(String projectId, String userId) {
+        ProjectHeader header = getProjectHeader(projectId);
+        if (!header.hasAccess(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a project member: " + userId);
+        }
+
+        return header;
+    }
+
+    public ProjectHeader getProjectHeader(String projectId) {
+        ProjectHeader header = headerCache.computeIfAbsent(projectId,
+            id -> projectRepository.findHeaderById(id).map(ProjectHeader::of).orElse(null));
+        if (header == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found");
+        }
+        return header;
+    }
+
+    public void evictProject(String projectId) {
+        headerCache.invalidate(projectId);
+    }
+
+    public CacheStats getHeaderCacheStats() {
+        return headerCache.stats();
+    }
+}
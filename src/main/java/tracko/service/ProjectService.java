@@ -1,13 +1,18 @@
 package tracko.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,14 +29,18 @@ import tracko.models.idea.Idea;
 import tracko.models.messages.Message;
 import tracko.models.messages.MessageRegister;
 import tracko.models.project.Project;
+import tracko.models.project.ProjectHeader;
 import tracko.models.project.ProjectRegister;
 import tracko.models.project.ProjectUpdate;
+import tracko.models.report.Report;
 import tracko.models.report.ReportRegister;
 import tracko.models.user.User;
 
 @Service
 @Transactional
 public class ProjectService {
+    private static final int DEFAULT_MESSAGE_PAGE = 50;
+    private static final int MAX_MESSAGE_PAGE = 200;
 
     private final IdeaRepository ideaRepository;
 
@@ -46,14 +55,26 @@ public class ProjectService {
     private final AIService aiService;
     private final CommentService commentService;
     private final ReportService reportService;
+    private final RecentMessageBuffer recentMessages;
+    private final ChatMessageWriter chatMessageWriter;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ReportPromptBuilder reportPromptBuilder;
+    private final AIRateLimiterService aiRateLimiter;
 
     public ProjectService(ProjectRepository projectRepository, JwtUtil jwtUtil, 
                           UserService userService, ChangeService changeService, 
                           ProjectAuthorizationService projectAuthorizationService, IdeaRepository ideaRepository,
                           MessageRepository messageRepository,
                           AIService aiService, @Lazy CommentService commentService,
-                          ReportService reportService) {
+                          ReportService reportService, RecentMessageBuffer recentMessages,
+                          ChatMessageWriter chatMessageWriter, SimpMessagingTemplate messagingTemplate,
+                          ReportPromptBuilder reportPromptBuilder, AIRateLimiterService aiRateLimiter) {
         this.reportService = reportService;
+        this.reportPromptBuilder = reportPromptBuilder;
+        this.aiRateLimiter = aiRateLimiter;
+        this.recentMessages = recentMessages;
+        this.chatMessageWriter = chatMessageWriter;
+        this.messagingTemplate = messagingTemplate;
         this.aiService = aiService;
         this.commentService = commentService;
         this.messageRepository = messageRepository;
@@ -155,6 +176,7 @@ public class ProjectService {
             changeService.markChange(projectId, ChangeType.CHANGED_PROJECT_SETTINGS, authHeader, false, null);
         }
         projectRepository.save(project);
+        projectAuthorizationService.evictProject(projectId);
         return project;
 
     }
@@ -176,6 +198,7 @@ public class ProjectService {
         deleteProjectIdeas(projectId, authHeader);
         userService.deleteProjectFromUser(userId, projectId);
         projectRepository.deleteById(project.getProjectId());       
+        projectAuthorizationService.evictProject(projectId);
     }
 
     public List<User> getProjectMembers(String projectId, String authHeader) {
@@ -202,18 +225,12 @@ public class ProjectService {
         }
 
     public void deleteProjectChanges(String projectId, String authHeader) {
-        Project project = projectAuthorizationService.authenticateProject(projectId, authHeader);
-        if (project == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found");
-        }
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
         changeService.deleteChangesByProjectId(projectId);
     }
 
     public void deleteProjectIdeas(String projectId, String authHeader) {
-        Project project = projectAuthorizationService.authenticateProject(projectId, authHeader);
-        if (project == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found");
-        }
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
         ideaRepository.deleteByProjectId(projectId);
     }
 
@@ -223,10 +240,11 @@ public class ProjectService {
         project.getProjectMembers().remove(userId);
         userService.deleteProjectFromUser(userId, projectId);
         projectRepository.save(project);
+        projectAuthorizationService.evictProject(projectId);
     }
 
     public Message sendChatMessage(String projectId, String authHeader, MessageRegister message) {
-        projectAuthorizationService.authenticateProject(projectId, authHeader);
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
         User user = userService.getUserByToken(authHeader);
 
         Message newMessage = new Message();
@@ -236,107 +254,104 @@ public class ProjectService {
         newMessage.setContent(message.getContent());
         newMessage.setCreatedAt(java.time.LocalDateTime.now());
         Message savedMessage = messageRepository.save(newMessage);
+        recentMessages.append(savedMessage);
+        messagingTemplate.convertAndSend("/topic/projects/" + projectId + "/chat", savedMessage);
         return savedMessage;
     }
 
-    public List<Message> getMessages(String projectId, String authHeader) {
-        projectAuthorizationService.authenticateProject(projectId, authHeader);
-        List<Message> messages = messageRepository.findByProjectIdOrderByCreatedAtAsc(projectId);
-        return messages;
+    /**
+     * Chat sent over STOMP by an already authenticated session. The message gets its id here and
+     * is broadcast right away; storing it is left to the batched {@link ChatMessageWriter}.
+     */
+    public Message postChatMessage(String projectId, String userId, String username, MessageRegister message) {
+        projectAuthorizationService.authorizeMemberById(projectId, userId);
+        if (message.getContent() == null || message.getContent().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Message content must not be empty");
+        }
+
+        Message newMessage = new Message();
+        newMessage.setId(new ObjectId().toHexString());
+        newMessage.setProjectId(projectId);
+        newMessage.setSenderId(userId);
+        newMessage.setUsername(username);
+        newMessage.setContent(message.getContent());
+        newMessage.setCreatedAt(java.time.LocalDateTime.now());
+
+        messagingTemplate.convertAndSend("/topic/projects/" + projectId + "/chat", newMessage);
+        chatMessageWriter.submit(newMessage);
+        recentMessages.append(newMessage);
+        return newMessage;
+    }
+
+    /**
+     * One page of a project's chat in display order (oldest first). Without a cursor this is the
+     * latest page; to load older messages pass the id of the oldest message shown as before.
+     */
+    public List<Message> getMessages(String projectId, String before, Integer limit, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+
+        int pageSize = limit == null ? DEFAULT_MESSAGE_PAGE : limit;
+        if (pageSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+        pageSize = Math.min(pageSize, MAX_MESSAGE_PAGE);
+        PageRequest page = PageRequest.of(0, pageSize);
+
+        List<Message> messages;
+        if (before == null) {
+            // The latest page of an active chat comes from memory
+            Optional<List<Message>> recent = recentMessages.latest(projectId, pageSize);
+            if (recent.isPresent()) {
+                return recent.get();
+            }
+            messages = messageRepository.findLatest(projectId, page);
+        } else {
+            Message cursor = messageRepository.findById(before)
+                .filter(message -> projectId.equals(message.getProjectId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown message cursor"));
+            messages = messageRepository.findPageBefore(projectId, cursor.getCreatedAt(), cursor.getId(), page);
+        }
+
+        List<Message> ordered = new ArrayList<>(messages);
+        Collections.reverse(ordered);
+        return ordered;
     }
         
 
     public String generateReport(String projectId, String authHeader) {
-        Project project = projectAuthorizationService.authenticateProject(projectId, authHeader);
-        if (project == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found");
-        }
-    
-        List<Message> messages = messageRepository.findByProjectIdOrderByCreatedAtAsc(projectId);
+        ProjectHeader project = projectAuthorizationService.authorizeMember(projectId, authHeader);
+        String userId = userService.getUserIdByToken(authHeader);
+        return writeReport(project, userId, () -> aiRateLimiter.acquire(userId, projectId)).getReportContent();
+    }
+
+    /**
+     * Generates and stores the report of a project the user has already been authorized for.
+     * Runs the whole model round trip on the calling thread; see ReportJobService, which takes
+     * the rate limit token when it accepts the job.
+     */
+    public Report writeReport(ProjectHeader project, String userId) {
+        return writeReport(project, userId, () -> { });
+    }
+
+    /** Like writeReport, with permit run just before the model is asked; see AIService.generateContent. */
+    public Report writeReport(ProjectHeader project, String userId, Runnable permit) {
+        String projectId = project.projectId();
+
+        // One query per collection; comments and messages are only read as far as the prompt budget goes
         List<Idea> ideas = ideaRepository.findByProjectId(projectId);
-    
-        List<Comment> comments = new ArrayList<>();
-        for (Idea idea : ideas) {
-            commentService.getCommentsByIdeaId(idea.getIdeaId()).forEach(comments::add);
+
+        String template;
+        try (Stream<Comment> comments = commentService.streamNewestByProjectId(projectId);
+             Stream<Message> messages = messageRepository.streamByProjectIdOrderByCreatedAtDescIdDesc(projectId)) {
+            template = reportPromptBuilder.build(project.projectName(), ideas, comments, messages);
         }
-    
-        String ideaSummary = ideas.stream()
-            .map(idea -> String.format(
-                "Idea: %s\nDescription: %s\nUpvotes: %d, Downvotes: %d, Comments: %d\n",
-                idea.getIdeaName(),
-                idea.getIdeaDescription(),
-                idea.getUpVotes().size(),
-                idea.getDownVotes().size(),
-                idea.getComments().size()
-            ))
-            .collect(Collectors.joining("\n\n"));  // Added empty line between ideas
-    
-        String commentSummary = comments.stream()
-            .map(comment -> String.format(
-                "Comment: %s\nOn Idea ID: %s\n",
-                comment.getCommentText(),
-                comment.getIdeaId()
-            ))
-            .collect(Collectors.joining("\n\n"));  // Also space between comments
-    
-        String messageSummary = messages.stream()
-            .map(message -> String.format(
-                "Message: %s\nSent At: %s\n",
-                message.getContent(),
-                message.getCreatedAt()
-            ))
-            .collect(Collectors.joining("\n\n"));
-    
-        String template = String.format(
-            """
-            You are an assistant tasked with generating a summary report for a brainstorming session.
-    
-            Project Name: %s
-    
-            Ideas Summary:
-            %s
-    
-            Comments Summary:
-            %s
-    
-            Messages Summary:
-            %s
-    
-            Instructions:
-            1. Provide a brief, coherent overview of the brainstorming session.
-            2. Identify the top 3 ideas based on upvotes and engagement (comments).
-            3. For each top idea, mention the Pros and Cons.
-            4. Based on comments and discussions, give any useful recommendations for the project.
-    
-            Important: 
-            Format your response as **clean HTML** with:
-            - Title as <h2>
-            - Subsections as <h3>
-            - Bullet points for Pros and Cons
-            - Separate paragraphs (<p>) for recommendations
-            - Keep it neat, readable and professional.
-            - Use <strong> for important points.
-            - Avoid using double \n, use single \n for line breaks.
-            - Use <br> for line breaks in HTML.
-            - Use <ul> and <li> for lists.
-    
-            Be concise, professional, and insightful.
-            """,
-            project.getProjectName(),
-            ideaSummary,
-            commentSummary,
-            messageSummary
-        );
-    
+
         // Here you would typically send the template to an AI model for processing.
-        String aiGeneratedText = aiService.generateContent(template);
+        String aiGeneratedText = aiService.generateContent(template, permit);
         String cleanHtml = aiGeneratedText.replaceAll("\\n+", "");  // removes all \n
 
         ReportRegister reportRegister = new ReportRegister();
         reportRegister.setReportContent(cleanHtml);
-        String userId = userService.getUserIdByToken(authHeader);
-        reportService.createReport(reportRegister, userId, projectId);
-
-        return cleanHtml; 
+        return reportService.createReport(reportRegister, userId, projectId);
     }
 }
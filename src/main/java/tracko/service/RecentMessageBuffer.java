@@ -0,0 +1,130 @@
+package tracko.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import tracko.cache.BoundedCache;
+import tracko.models.messages.Message;
+import tracko.repository.MessageRepository;
+
+/**
+ * The last few messages of each active project chat, so opening the chat panel reads memory
+ * instead of Mongo. A project's ring is seeded from the latest page on its first read and then
+ * kept current by append; projects that see no new messages for a while drop out.
+ *
+ * Messages still queued in the {@link ChatMessageWriter} are part of the seed. A message sent
+ * before its project has a ring only invalidates that project, so a seed that raced with the
+ * write is thrown away rather than stored without it, while seeds of other projects go on. Rings are per instance: when chats are written
+ * through several instances, turn this off with chat.recent.enabled=false.
+ */
+@Component
+public class RecentMessageBuffer {
+
+    private final MessageRepository messageRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final BoundedCache<String, Ring> rings;
+    private final int capacity;
+    private final boolean enabled;
+
+    public RecentMessageBuffer(MessageRepository messageRepository, ChatMessageWriter chatMessageWriter,
+                               @Value("${chat.recent.enabled:true}") boolean enabled,
+                               @Value("${chat.recent.capacity:100}") int capacity,
+                               @Value("${chat.recent.max-projects:1000}") int maxProjects,
+                               @Value("${chat.recent.idle-minutes:30}") long idleMinutes) {
+        this.messageRepository = messageRepository;
+        this.chatMessageWriter = chatMessageWriter;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.rings = new BoundedCache<>(maxProjects, Duration.ofMinutes(idleMinutes));
+    }
+
+    /**
+     * The latest limit messages of a project, oldest first, or empty when the ring can't answer
+     * (buffering is off, or the project has more messages than the ring holds and limit asks
+     * for more than that).
+     */
+    public Optional<List<Message>> latest(String projectId, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Ring ring = rings.computeIfAbsent(projectId, this::seed);
+        return ring.latest(limit);
+    }
+
+    public void append(Message message) {
+        if (!enabled) {
+            return;
+        }
+        Ring ring = rings.get(message.getProjectId());
+        if (ring == null) {
+            // Discards a seed that may have been read before this message was stored
+            rings.invalidate(message.getProjectId());
+            return;
+        }
+        ring.add(message);
+        // Re-storing the ring keeps an active chat from timing out
+        rings.put(message.getProjectId(), ring);
+    }
+
+    public void evict(String projectId) {
+        rings.invalidate(projectId);
+    }
+
+    private Ring seed(String projectId) {
+        // Unstored messages first: anything that leaves the writer before the query is in its result
+        List<Message> unstored = chatMessageWriter.pending(projectId);
+        List<Message> newestFirst = messageRepository.findLatest(projectId, PageRequest.of(0, capacity));
+        Ring ring = new Ring(capacity, newestFirst.size() < capacity);
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            ring.add(newestFirst.get(i));
+        }
+        unstored.forEach(ring::add);
+        return ring;
+    }
+
+    private static final class Ring {
+        private final ArrayDeque<Message> messages;
+        private final int capacity;
+        // True while the ring still holds every message of the project
+        private boolean complete;
+
+        Ring(int capacity, boolean complete) {
+            this.messages = new ArrayDeque<>(capacity);
+            this.capacity = capacity;
+            this.complete = complete;
+        }
+
+        synchronized void add(Message message) {
+            // A seed read after the write already holds it
+            if (message.getId() != null && messages.stream().anyMatch(held -> message.getId().equals(held.getId()))) {
+                return;
+            }
+            if (messages.size() == capacity) {
+                messages.removeFirst();
+                complete = false;
+            }
+            messages.addLast(message);
+        }
+
+        synchronized Optional<List<Message>> latest(int limit) {
+            if (limit > messages.size() && !complete) {
+                return Optional.empty();
+            }
+            List<Message> page = new ArrayList<>(Math.min(limit, messages.size()));
+            var newestFirst = messages.descendingIterator();
+            while (newestFirst.hasNext() && page.size() < limit) {
+                page.add(newestFirst.next());
+            }
+            Collections.reverse(page);
+            return Optional.of(page);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package tracko.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import tracko.cache.BoundedCache;
+import tracko.models.project.ProjectHeader;
+import tracko.models.report.Report;
+import tracko.models.report.ReportJob;
+
+/**
+ * Runs report generation off the request thread. A request is authorized up front and then
+ * queued for a small worker pool; the caller polls the job or waits for it on
+ * /topic/projects/{projectId}/reports. While a project's report is queued or running, further
+ * requests for it get that same job. Starting a job takes an AI rate limit token; when the
+ * queue is full new requests are turned away with 503 instead of piling up.
+ *
+ * Jobs live in memory on the instance that accepted them and are forgotten after
+ * report.jobs.retention-minutes; the reports themselves are stored through ReportService.
+ */
+@Service
+public class ReportJobService {
+
+    private final Logger log = LoggerFactory.getLogger(ReportJobService.class);
+
+    private final ProjectService projectService;
+    private final ProjectAuthorizationService projectAuthorizationService;
+    private final UserService userService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final AIRateLimiterService aiRateLimiter;
+    private final ThreadPoolExecutor workers;
+    private final BoundedCache<String, ReportJob> jobs;
+    // projectId -> id of its queued or running job
+    private final Map<String, String> activeJobs = new ConcurrentHashMap<>();
+
+    public ReportJobService(ProjectService projectService,
+                            ProjectAuthorizationService projectAuthorizationService,
+                            UserService userService,
+                            SimpMessagingTemplate messagingTemplate,
+                            AIRateLimiterService aiRateLimiter,
+                            @Value("${report.jobs.workers:2}") int workerCount,
+                            @Value("${report.jobs.queue-capacity:20}") int queueCapacity,
+                            @Value("${report.jobs.max-retained:1000}") int maxRetained,
+                            @Value("${report.jobs.retention-minutes:60}") long retentionMinutes) {
+        this.projectService = projectService;
+        this.projectAuthorizationService = projectAuthorizationService;
+        this.userService = userService;
+        this.messagingTemplate = messagingTemplate;
+        this.aiRateLimiter = aiRateLimiter;
+        this.jobs = new BoundedCache<>(maxRetained, Duration.ofMinutes(retentionMinutes));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            task -> {
+                Thread thread = new Thread(task, "report-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    public ReportJob submit(String projectId, String authHeader) {
+        ProjectHeader project = projectAuthorizationService.authorizeMember(projectId, authHeader);
+        String userId = userService.getUserIdByToken(authHeader);
+
+        synchronized (activeJobs) {
+            ReportJob active = jobs.get(activeJobs.getOrDefault(projectId, ""));
+            if (active != null && !active.isFinished()) {
+                return active;
+            }
+            // Joining a running job is free, starting one costs a model call
+            aiRateLimiter.acquire(userId, projectId);
+
+            ReportJob job = ReportJob.queued(new ObjectId().toHexString(), projectId, userId);
+            jobs.put(job.jobId(), job);
+            activeJobs.put(projectId, job.jobId());
+            try {
+                workers.execute(() -> run(job, project));
+            } catch (RejectedExecutionException e) {
+                activeJobs.remove(projectId, job.jobId());
+                jobs.invalidate(job.jobId());
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many reports in progress, try again later");
+            }
+            return job;
+        }
+    }
+
+    public ReportJob getJob(String projectId, String jobId, String authHeader) {
+        projectAuthorizationService.authorizeMember(projectId, authHeader);
+        ReportJob job = jobs.get(jobId);
+        if (job == null || !projectId.equals(job.projectId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Report job not found");
+        }
+        return job;
+    }
+
+    private void run(ReportJob queued, ProjectHeader project) {
+        jobs.put(queued.jobId(), queued.running());
+
+        // Stays the outcome if an Error escapes, so the project is not blocked on a job that never ends
+        ReportJob finished = queued.failed("Report generation failed");
+        try {
+            Report report = projectService.writeReport(project, queued.requestedBy());
+            finished = queued.done(report);
+        } catch (ResponseStatusException e) {
+            finished = queued.failed(e.getReason());
+        } catch (RuntimeException e) {
+            log.error("Report job {} for project {} failed: {}", queued.jobId(), project.projectId(), e.getMessage());
+        } finally {
+            jobs.put(queued.jobId(), finished);
+            activeJobs.remove(project.projectId(), queued.jobId());
+            messagingTemplate.convertAndSend("/topic/projects/" + project.projectId() + "/reports", finished);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Jobs are not persisted; anything still queued would be lost either way
+        workers.shutdownNow();
+    }
+}
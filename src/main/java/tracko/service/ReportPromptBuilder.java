@@ -0,0 +1,176 @@
+package tracko.service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tracko.models.comment.Comment;
+import tracko.models.idea.Idea;
+import tracko.models.messages.Message;
+
+/**
+ * Builds the report prompt within a fixed size. Ideas go in by engagement (votes plus comments),
+ * the newer of two equally engaged ideas first, comments and chat messages newest first; each
+ * section stops at the first entry that no longer fits and says that the rest was left out, so
+ * the same data always gives the same prompt.
+ * Ideas may take half of the budget, comments half of what is left and messages the rest.
+ *
+ * The budget is report.prompt.max-chars, or report.prompt.max-tokens at about four characters
+ * per token, whichever is smaller. Comments and messages are read from streams and only as far
+ * as the budget goes.
+ */
+@Component
+public class ReportPromptBuilder {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    // Keeps one long description from pushing everything else out
+    private static final int MAX_TEXT_CHARS = 1000;
+    private static final int MAX_NAME_CHARS = 200;
+
+    private static final String TEMPLATE = """
+        You are an assistant tasked with generating a summary report for a brainstorming session.
+
+        Project Name: %s
+
+        Ideas Summary (most engaged first, then newest):
+        %s
+
+        Comments Summary (newest first):
+        %s
+
+        Messages Summary (newest first):
+        %s
+
+        Instructions:
+        1. Provide a brief, coherent overview of the brainstorming session.
+        2. Identify the top 3 ideas based on upvotes and engagement (comments).
+        3. For each top idea, mention the Pros and Cons.
+        4. Based on comments and discussions, give any useful recommendations for the project.
+
+        Important:
+        Format your response as **clean HTML** with:
+        - Title as <h2>
+        - Subsections as <h3>
+        - Bullet points for Pros and Cons
+        - Separate paragraphs (<p>) for recommendations
+        - Keep it neat, readable and professional.
+        - Use <strong> for important points.
+        - Avoid using double \n, use single \n for line breaks.
+        - Use <br> for line breaks in HTML.
+        - Use <ul> and <li> for lists.
+
+        Be concise, professional, and insightful.
+        """;
+
+    // Idea ids are ObjectIds, whose hex form sorts by creation time, so a descending id is newest first
+    private static final Comparator<Idea> BY_ENGAGEMENT = Comparator
+        .comparingInt((Idea idea) -> idea.getUpVoteCount() + idea.getDownVoteCount() + idea.getCommentCount())
+        .thenComparingInt(Idea::getUpVoteCount)
+        .reversed()
+        .thenComparing(Idea::getIdeaId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final int maxChars;
+
+    public ReportPromptBuilder(@Value("${report.prompt.max-chars:60000}") int maxChars,
+                               @Value("${report.prompt.max-tokens:15000}") int maxTokens) {
+        this.maxChars = Math.min(maxChars, maxTokens * CHARS_PER_TOKEN);
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    /**
+     * The prompt for a project's report. Both streams must be ordered newest first; the caller
+     * still owns and closes them.
+     */
+    public String build(String projectName, List<Idea> ideas, Stream<Comment> newestComments,
+                        Stream<Message> newestMessages) {
+        String name = clip(projectName, MAX_NAME_CHARS);
+        int budget = Math.max(0, maxChars - String.format(TEMPLATE, name, "", "", "").length());
+
+        Map<String, String> ideaNames = ideas.stream()
+            .filter(idea -> idea.getIdeaId() != null)
+            .collect(Collectors.toMap(Idea::getIdeaId, idea -> clip(idea.getIdeaName(), MAX_NAME_CHARS), (a, b) -> a));
+
+        StringBuilder ideaSummary = new StringBuilder();
+        Iterator<String> ideaEntries = ideas.stream().sorted(BY_ENGAGEMENT).map(this::ideaEntry).iterator();
+        budget -= fill(ideaSummary, ideaEntries, budget / 2, "(less engaged ideas omitted)\n");
+
+        StringBuilder commentSummary = new StringBuilder();
+        Iterator<String> commentEntries = newestComments.map(comment -> commentEntry(comment, ideaNames)).iterator();
+        budget -= fill(commentSummary, commentEntries, budget / 2, "(older comments omitted)\n");
+
+        StringBuilder messageSummary = new StringBuilder();
+        Iterator<String> messageEntries = newestMessages.map(this::messageEntry).iterator();
+        fill(messageSummary, messageEntries, budget, "(older messages omitted)\n");
+
+        return String.format(TEMPLATE, name, ideaSummary, commentSummary, messageSummary);
+    }
+
+    /**
+     * Appends entries in order until the next one would not fit, then the omitted note if it
+     * fits. Returns the number of characters appended.
+     */
+    private static int fill(StringBuilder out, Iterator<String> entries, int budget, String omitted) {
+        int used = 0;
+        while (entries.hasNext()) {
+            String entry = entries.next();
+            boolean last = !entries.hasNext();
+            int reserve = last ? 0 : omitted.length();
+            if (used + entry.length() + reserve > budget) {
+                if (used + omitted.length() <= budget) {
+                    out.append(omitted);
+                    used += omitted.length();
+                }
+                return used;
+            }
+            out.append(entry);
+            used += entry.length();
+        }
+        return used;
+    }
+
+    private String ideaEntry(Idea idea) {
+        return String.format(
+            "Idea: %s\nDescription: %s\nUpvotes: %d, Downvotes: %d, Comments: %d\n\n",
+            clip(idea.getIdeaName(), MAX_NAME_CHARS),
+            clip(idea.getIdeaDescription(), MAX_TEXT_CHARS),
+            idea.getUpVoteCount(),
+            idea.getDownVoteCount(),
+            idea.getCommentCount()
+        );
+    }
+
+    private String commentEntry(Comment comment, Map<String, String> ideaNames) {
+        return String.format(
+            "Comment: %s\nOn Idea: %s\n\n",
+            clip(comment.getCommentText(), MAX_TEXT_CHARS),
+            ideaNames.getOrDefault(comment.getIdeaId(), comment.getIdeaId())
+        );
+    }
+
+    private String messageEntry(Message message) {
+        return String.format(
+            "Message: %s\nSent At: %s\n\n",
+            clip(message.getContent(), MAX_TEXT_CHARS),
+            message.getCreatedAt()
+        );
+    }
+
+    private static String clip(String text, int max) {
+        if (text == null) {
+            return "";
+        }
+        if (text.length() <= max) {
+            return text;
+        }
+        return text.substring(0, max) + "...";
+    }
+}
@@ -20,7 +20,7 @@ public class ReportService {
         this.reportRepository = reportRepository;
     }
     
-    public void createReport(ReportRegister report, String userId, String projectId) {
+    public Report createReport(ReportRegister report, String userId, String projectId) {
         Report newReport = new Report();
         newReport.setReportContent(report.getReportContent());
         newReport.setCreatedAt(LocalDateTime.now());
@@ -29,7 +29,7 @@ public class ReportService {
         String reportName = String.format("Project_%s_Report_%s", projectId, timestamp);
         newReport.setReportName(reportName);
 
-        reportRepository.save(newReport);
+        return reportRepository.save(newReport);
     }
 
     public Report getReportById(String reportId) {
@@ -0,0 +1,105 @@
+package tracko.service;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Answers without calling anyone, for load tests and offline development (ai.provider=stub).
+ * The answer is a function of the prompt alone, so repeated runs see the same text. Each call
+ * waits ai.stub.latency-ms first, a stream waits ai.stub.chunk-delay-ms between chunks, and a
+ * share of calls given by ai.stub.error-rate fails. Which calls fail follows a fixed sequence
+ * seeded by ai.stub.seed, so a run can be repeated too.
+ */
+public class StubAIProvider implements AIProvider {
+
+    private static final String[] WORDS = {
+        "idea", "project", "team", "users", "feature", "feedback", "plan", "simple", "faster",
+        "shared", "review", "goal", "value", "risk", "next", "step", "clear", "small", "test", "ship"
+    };
+
+    private final long latencyMillis;
+    private final long chunkDelayMillis;
+    private final int answerWords;
+    private final int chunkWords;
+    private final double errorRate;
+    private final long seed;
+    private final AtomicLong calls = new AtomicLong();
+
+    public StubAIProvider(long latencyMillis, long chunkDelayMillis, int answerWords, int chunkWords,
+                          double errorRate, long seed) {
+        this.latencyMillis = latencyMillis;
+        this.chunkDelayMillis = chunkDelayMillis;
+        this.answerWords = Math.max(1, answerWords);
+        this.chunkWords = Math.max(1, chunkWords);
+        this.errorRate = errorRate;
+        this.seed = seed;
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public String model() {
+        return "stub";
+    }
+
+    @Override
+    public String generate(String prompt) {
+        failOrWait(latencyMillis);
+        return String.join("", chunks(prompt));
+    }
+
+    @Override
+    public boolean stream(String prompt, Predicate<String> onChunk) {
+        failOrWait(latencyMillis);
+        String[] chunks = chunks(prompt);
+        for (int i = 0; i < chunks.length; i++) {
+            if (i > 0) {
+                pause(chunkDelayMillis);
+            }
+            if (!onChunk.test(chunks[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The answer to prompt, split the way stream hands it out. */
+    String[] chunks(String prompt) {
+        SplittableRandom random = new SplittableRandom(prompt.hashCode());
+        String[] chunks = new String[(answerWords + chunkWords - 1) / chunkWords];
+        StringBuilder chunk = new StringBuilder("Stub answer for a " + prompt.length() + " character prompt:");
+        for (int word = 0; word < answerWords; word++) {
+            chunk.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            if ((word + 1) % chunkWords == 0 || word == answerWords - 1) {
+                chunks[word / chunkWords] = chunk.toString();
+                chunk.setLength(0);
+            }
+        }
+        return chunks;
+    }
+
+    private void failOrWait(long millis) {
+        // The n-th call fails or not regardless of which thread makes it
+        double roll = new SplittableRandom(seed + calls.incrementAndGet()).nextDouble();
+        pause(millis);
+        if (roll < errorRate) {
+            throw new IllegalStateException("Stub provider failure");
+        }
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the stub provider");
+        }
+    }
+}
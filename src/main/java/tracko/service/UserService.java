@@ -1,5 +1,6 @@
 package tracko.service;
 
+import tracko.auth.AuthPrincipalResolver;
 import tracko.auth.JwtUtil;
 import tracko.repository.UserRepository;
 import tracko.constant.ChangeType;
@@ -31,12 +32,14 @@ public class UserService {
 
     private final Logger log = LoggerFactory.getLogger(UserService.class);
     private final JwtUtil jwtUtil;
+    private final AuthPrincipalResolver authPrincipalResolver;
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
     private final ProjectService projectService;
     private final ChangeService changeService;
     private final UserRepository userRepository;
 
-    public UserService(JwtUtil jwtUtil, @Lazy ProjectService projectService, UserRepository userRepository, ChangeService changeService) {
+    public UserService(JwtUtil jwtUtil, AuthPrincipalResolver authPrincipalResolver, @Lazy ProjectService projectService, UserRepository userRepository, ChangeService changeService) {
+        this.authPrincipalResolver = authPrincipalResolver;
         this.userRepository = userRepository;
         this.changeService = changeService;
         this.projectService = projectService;
@@ -131,13 +134,7 @@ public class UserService {
     }
 
     public User getUserByToken(String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-
-        if (!jwtUtil.validateToken(token)) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired token");
-        }
-
-        String userId = jwtUtil.extractUserId(token);
+        String userId = authPrincipalResolver.resolveUserId(authHeader);
         return userRepository.findById(userId).orElse(null);
     }
 
@@ -153,32 +150,12 @@ public class UserService {
     }
 
     public String getUserIdByToken(String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or invalid Authorization header");
-        }
-
-        String token = authHeader.replace("Bearer ", "");
-
-        if (!jwtUtil.validateToken(token)) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired token");
-        }
-
-        return jwtUtil.extractUserId(token);
+        return authPrincipalResolver.resolveUserId(authHeader);
     }
 
     public void authenticateUser(String userId, String authHeader) {
         /* Authenticates the User by making sure the token provided and userId are the same*/
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or invalid Authorization header");
-        }
-
-        String token = authHeader.replace("Bearer ", "");
-
-        if (!jwtUtil.validateToken(token)) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired token");
-        }
-
-        String tokenUserId = jwtUtil.extractUserId(token);
+        String tokenUserId = authPrincipalResolver.resolveUserId(authHeader);
 
         if (!tokenUserId.equals(userId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not allowed to update this user");
@@ -0,0 +1,87 @@
+package auth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import tracko.auth.AuthPrincipal;
+import tracko.auth.AuthPrincipalResolver;
+import tracko.auth.JwtUtil;
+
+public class AuthPrincipalResolverTest {
+
+    private JwtUtil jwtUtil;
+    private AuthPrincipalResolver resolver;
+
+    @BeforeEach
+    public void setup() {
+        jwtUtil = new JwtUtil("test-jwt-secret-key-for-testing-purposes-only");
+        resolver = new AuthPrincipalResolver(jwtUtil);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void parsePrincipal_validToken_returnsUserAndExpiry() {
+        AuthPrincipal principal = jwtUtil.parsePrincipal(jwtUtil.generateToken("user-123"));
+
+        assertNotNull(principal);
+        assertEquals("user-123", principal.userId());
+        assertNotNull(principal.expiresAt());
+    }
+
+    @Test
+    public void resolve_outsideRequest_parsesHeader() {
+        String authHeader = "Bearer " + jwtUtil.generateToken("user-123");
+
+        assertEquals("user-123", resolver.resolveUserId(authHeader));
+    }
+
+    @Test
+    public void resolve_insideRequest_reusesFilterPrincipal() {
+        String authHeader = "Bearer not-a-real-token";
+        AuthPrincipal parsed = new AuthPrincipal("user-123", Instant.now().plusSeconds(60));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", authHeader);
+        request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, parsed);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertSame(parsed, resolver.resolve(authHeader));
+    }
+
+    @Test
+    public void resolve_invalidToken_throwsUnauthorized() {
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> resolver.resolve("Bearer invalid.jwt.token")
+        );
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+    }
+
+    @Test
+    public void resolve_missingHeader_throwsUnauthorized() {
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> resolver.resolve(null)
+        );
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+    }
+}
@@ -0,0 +1,131 @@
+package cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import tracko.cache.BoundedCache;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void computeIfAbsent_loadsOnceAndCountsHits() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.computeIfAbsent("a", key -> "value-" + loads.incrementAndGet());
+        String cached = cache.computeIfAbsent("a", key -> "value-" + loads.incrementAndGet());
+
+        assertEquals("value-1", cached);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    public void put_overCapacity_evictsLeastRecentlyUsed() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, Duration.ZERO);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    public void invalidateIf_removesMatchingKeys() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ZERO);
+        cache.put("p1:u1", 1);
+        cache.put("p1:u2", 2);
+        cache.put("p2:u1", 3);
+
+        cache.invalidateIf(key -> key.startsWith("p1:"));
+
+        assertNull(cache.get("p1:u1"));
+        assertNull(cache.get("p1:u2"));
+        assertEquals(3, cache.get("p2:u1"));
+    }
+
+    @Test
+    public void computeIfAbsent_invalidatedDuringLoad_doesNotStoreStaleValue() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ZERO);
+
+        cache.computeIfAbsent("a", key -> {
+            cache.invalidate("a");
+            return 1;
+        });
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void computeIfAbsent_otherKeyInvalidatedDuringLoad_storesValue() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ZERO);
+
+        cache.computeIfAbsent("a", key -> {
+            cache.invalidate("b");
+            return 1;
+        });
+
+        assertEquals(1, cache.get("a"));
+    }
+
+    @Test
+    public void computeIfAbsent_clearedDuringLoad_doesNotStoreStaleValue() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ZERO);
+
+        cache.computeIfAbsent("a", key -> {
+            cache.clear();
+            return 1;
+        });
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void putIfUnchanged_invalidatedSinceSnapshot_doesNotStoreStaleValue() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Duration.ZERO);
+
+        long stale = cache.snapshot();
+        cache.invalidate("a");
+        assertFalse(cache.putIfUnchanged("a", 1, stale));
+        assertNull(cache.get("a"));
+
+        assertTrue(cache.putIfUnchanged("a", 2, cache.snapshot()));
+        assertEquals(2, cache.get("a"));
+    }
+
+    @Test
+    public void put_overWeight_evictsLeastRecentlyUsedUntilItFits() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 10, Duration.ZERO, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+        cache.put("c", "cccc");
+
+        assertEquals("aaaa", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(8, cache.stats().weight());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    public void put_heavierThanLimit_isNotStored() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 10, Duration.ZERO, String::length);
+        cache.put("a", "aaaa");
+        cache.put("big", "x".repeat(11));
+
+        assertNull(cache.get("big"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals(4, cache.stats().weight());
+    }
+}
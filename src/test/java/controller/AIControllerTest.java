@@ -1,26 +1,50 @@
 package controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import tracko.auth.JwtUtil;
 import java.util.Map;
 import java.util.HashMap;
+import tracko.auth.AuthPrincipalResolver;
+import tracko.cache.BoundedCache;
+import tracko.exceptions.RateLimitedException;
+import tracko.service.AICallGuard;
+import tracko.service.AIRateLimiterService;
 import tracko.service.AIService;
+import tracko.service.AIStreamService;
 import org.springframework.test.context.ContextConfiguration;
 
 @WebMvcTest(controllers = tracko.controller.AIController.class)
@@ -36,6 +60,15 @@ public class AIControllerTest {
 
     @MockBean
     private JwtUtil jwtUtil;
+
+    @MockBean
+    private AIRateLimiterService rateLimiter;
+
+    @MockBean
+    private AuthPrincipalResolver authPrincipalResolver;
+
+    @MockBean
+    private AIStreamService aiStreamService;
  
     private ObjectMapper mapper = new ObjectMapper();
 
@@ -44,7 +77,7 @@ public class AIControllerTest {
         Map<String, String> request = new HashMap<>();
         request.put("ideaContent", "My raw idea to refine");
 
-        when(aiService.refineIdea(anyString())).thenReturn("AI generated refined idea");
+        when(aiService.refineIdea(anyString(), eq(false), any(Runnable.class))).thenReturn("AI generated refined idea");
 
         mockMvc.perform(post("/api/ai/refine")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -59,7 +92,7 @@ public class AIControllerTest {
         request.put("ideaOne", "First idea");
         request.put("ideaTwo", "Second idea");
 
-        when(aiService.combineIdeas(eq("First idea"), eq("Second idea"))).thenReturn("AI generated combined idea");
+        when(aiService.combineIdeas(eq("First idea"), eq("Second idea"), eq(false), any(Runnable.class))).thenReturn("AI generated combined idea");
 
         mockMvc.perform(post("/api/ai/combine")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -73,7 +106,7 @@ public class AIControllerTest {
         Map<String, String> request = new HashMap<>();
         request.put("ideaContent", "Create an idea about renewable energy");
 
-        when(aiService.generateFromTemplate(eq("Create an idea about renewable energy"))).thenReturn("AI generated template response");
+        when(aiService.generateFromTemplate(eq("Create an idea about renewable energy"), eq(false), any(Runnable.class))).thenReturn("AI generated template response");
 
         mockMvc.perform(post("/api/ai/template")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -88,7 +121,7 @@ public class AIControllerTest {
         request.put("ideaContent", "Original idea");
         request.put("ideaTwist", "Make it eco-friendly");
 
-        when(aiService.suggestRelatedIdea(eq("Original idea"), eq("Make it eco-friendly"))).thenReturn("AI generated twisted idea");
+        when(aiService.suggestRelatedIdea(eq("Original idea"), eq("Make it eco-friendly"), eq(false), any(Runnable.class))).thenReturn("AI generated twisted idea");
 
         mockMvc.perform(post("/api/ai/twist")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -97,4 +130,120 @@ public class AIControllerTest {
                 .andExpect(content().string("AI generated twisted idea"));
     }
 
+    @Test
+    public void refineIdea_noCache_passesBypass() throws Exception {
+        Map<String, String> request = new HashMap<>();
+        request.put("ideaContent", "My raw idea to refine");
+
+        when(aiService.refineIdea(anyString(), eq(true), any(Runnable.class))).thenReturn("Fresh refined idea");
+
+        mockMvc.perform(post("/api/ai/refine")
+                .param("noCache", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Fresh refined idea"));
+    }
+
+    @Test
+    public void refineIdea_signedIn_limitedPerUser() throws Exception {
+        Map<String, String> request = new HashMap<>();
+        request.put("ideaContent", "My raw idea to refine");
+
+        when(authPrincipalResolver.resolveUserId("Bearer valid-token")).thenReturn("user-123");
+        when(aiService.refineIdea(anyString(), eq(false), any(Runnable.class))).thenAnswer(runningPermit("AI generated refined idea"));
+
+        mockMvc.perform(post("/api/ai/refine")
+                .header("Authorization", "Bearer valid-token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        verify(rateLimiter).acquire(eq("user-123"), isNull());
+    }
+
+    @Test
+    public void refineIdea_rateLimited_tooManyRequestsWithRetryAfter() throws Exception {
+        Map<String, String> request = new HashMap<>();
+        request.put("ideaContent", "My raw idea to refine");
+
+        doThrow(new RateLimitedException("You are sending AI requests too quickly", 12))
+            .when(rateLimiter).acquire(anyString(), isNull());
+        when(aiService.refineIdea(anyString(), eq(false), any(Runnable.class))).thenAnswer(runningPermit("AI generated refined idea"));
+
+        mockMvc.perform(post("/api/ai/refine")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"));
+
+        verify(rateLimiter).acquire(anyString(), isNull());
+    }
+
+    @Test
+    public void refineIdea_answeredWithoutModelCall_takesNoToken() throws Exception {
+        Map<String, String> request = new HashMap<>();
+        request.put("ideaContent", "My raw idea to refine");
+
+        when(aiService.refineIdea(anyString(), eq(false), any(Runnable.class))).thenReturn("Cached refined idea");
+
+        mockMvc.perform(post("/api/ai/refine")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Cached refined idea"));
+
+        verify(rateLimiter, never()).acquire(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void streamRefineIdea_relaysThroughStreamService() throws Exception {
+        Map<String, String> request = new HashMap<>();
+        request.put("ideaContent", "My raw idea to refine");
+
+        Consumer<Predicate<String>> answer = onChunk -> onChunk.test("Streamed refined idea");
+        when(aiService.streamRefineIdea(eq("My raw idea to refine"), eq(true), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.getArgument(2, Runnable.class).run();
+            return answer;
+        });
+        when(aiStreamService.stream(any())).thenReturn(new SseEmitter());
+
+        mockMvc.perform(post("/api/ai/refine/stream")
+                .param("noCache", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted());
+
+        ArgumentCaptor<Consumer<Predicate<String>>> producer = ArgumentCaptor.forClass(Consumer.class);
+        verify(aiStreamService).stream(producer.capture());
+        verify(rateLimiter).acquire(anyString(), isNull());
+
+        List<String> sent = new ArrayList<>();
+        producer.getValue().accept(sent::add);
+        assertEquals(List.of("Streamed refined idea"), sent);
+    }
+
+    @Test
+    public void getStatus_reportsCircuitAndCalls() throws Exception {
+        AICallGuard.Stats calls = new AICallGuard.Stats(AICallGuard.CircuitState.OPEN, 10, 5, 2, 7, 1, 0, 0);
+        when(aiService.getStatus()).thenReturn(new AIService.Status("gemini", "test-model", calls,
+            new BoundedCache.CacheStats(3, 1, 0, 2, 100)));
+
+        mockMvc.perform(get("/api/ai/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.provider").value("gemini"))
+                .andExpect(jsonPath("$.calls.circuit").value("OPEN"))
+                .andExpect(jsonPath("$.calls.shortCircuited").value(7));
+
+        verify(rateLimiter, never()).acquire(anyString(), any());
+    }
+
+    /** Answers a stubbed action as the service would on a cache miss: permit first, then the model. */
+    private static Answer<String> runningPermit(String answer) {
+        return invocation -> {
+            invocation.getArgument(invocation.getArguments().length - 1, Runnable.class).run();
+            return answer;
+        };
+    }
 }
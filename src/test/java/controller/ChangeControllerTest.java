@@ -28,6 +28,7 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import tracko.auth.JwtUtil;
 import tracko.constant.ChangeType;
 import tracko.models.change.Change;
+import tracko.models.change.ChangeFeed;
 import tracko.models.change.ChangeRegister;
 import tracko.service.ChangeService;
 import tracko.service.ChangeService.Contributions;
@@ -73,6 +74,26 @@ public class ChangeControllerTest {
                 .andExpect(jsonPath("$[1].changeType").value("CHANGED_PROJECT_SETTINGS"));
     }
 
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void getChangesByProject_withCursor_returnsFeed() throws Exception {
+        Change change = createTestChange("change-9", ChangeType.UPVOTE);
+        change.setSeq(9);
+
+        when(changeService.getChangeFeed(PROJECT_ID, "8", 50, AUTH_HEADER))
+            .thenReturn(new ChangeFeed(List.of(change), 9, false));
+
+        mockMvc.perform(get("/projects/{projectId}/changes", PROJECT_ID)
+                .param("after", "8")
+                .param("limit", "50")
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].changeId").value("change-9"))
+                .andExpect(jsonPath("$.changes[0].seq").value(9))
+                .andExpect(jsonPath("$.nextCursor").value(9))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
     @Test
     @WithMockUser(authorities = "USER")
     public void createChange_success() throws Exception {
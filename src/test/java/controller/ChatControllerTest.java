@@ -0,0 +1,85 @@
+package controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.web.server.ResponseStatusException;
+
+import tracko.controller.ChatController;
+import tracko.models.messages.MessageRegister;
+import tracko.models.user.User;
+import tracko.service.ProjectService;
+import tracko.service.UserService;
+
+public class ChatControllerTest {
+
+    private final String PROJECT_ID = "project-123";
+    private final String USER_ID = "user-123";
+
+    private ProjectService projectService;
+    private UserService userService;
+    private ChatController chatController;
+
+    @BeforeEach
+    public void setup() {
+        projectService = mock(ProjectService.class);
+        userService = mock(UserService.class);
+        chatController = new ChatController(projectService, userService);
+
+        User user = new User();
+        user.setId(USER_ID);
+        user.setUsername("testuser");
+        when(userService.getUserById(USER_ID)).thenReturn(user);
+    }
+
+    private SimpMessageHeaderAccessor session(Map<String, Object> attributes) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionAttributes(attributes);
+        return accessor;
+    }
+
+    @Test
+    public void sendChat_usesSessionPrincipalAndLooksUpUsernameOncePerSession() {
+        Principal principal = () -> USER_ID;
+        Map<String, Object> attributes = new HashMap<>();
+        MessageRegister message = new MessageRegister();
+
+        chatController.sendChat(PROJECT_ID, message, principal, session(attributes));
+        chatController.sendChat(PROJECT_ID, message, principal, session(attributes));
+
+        verify(projectService, times(2)).postChatMessage(PROJECT_ID, USER_ID, "testuser", message);
+        verify(userService, times(1)).getUserById(USER_ID);
+    }
+
+    @Test
+    public void sendChat_withoutPrincipal_unauthorized() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> chatController.sendChat(PROJECT_ID, new MessageRegister(), null, session(new HashMap<>())));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+        verify(projectService, never()).postChatMessage(any(), any(), any(), any());
+    }
+
+    @Test
+    public void handleRejection_reportsStatusAndReason() {
+        Map<String, Object> error = chatController.handleRejection(
+            new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a project member: " + USER_ID));
+
+        assertEquals(403, error.get("status"));
+        assertEquals("Not a project member: " + USER_ID, error.get("message"));
+    }
+}
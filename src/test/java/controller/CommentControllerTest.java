@@ -26,7 +26,9 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import tracko.auth.JwtUtil;
 import tracko.models.comment.Comment;
+import tracko.models.comment.CommentNode;
 import tracko.models.comment.CommentRegister;
+import tracko.models.comment.CommentThread;
 import tracko.service.CommentService;
 import org.springframework.test.context.ContextConfiguration;
 
@@ -140,4 +142,21 @@ public class CommentControllerTest {
 
         return comment;
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void getCommentThread_success() throws Exception {
+        Comment root = createTestComment("comment-1", "Root", USER_ID);
+        Comment reply = createTestComment("comment-2", "Reply", USER_ID);
+        CommentThread thread = new CommentThread(
+            List.of(new CommentNode(root, List.of(new CommentNode(reply, List.of())))), null);
+
+        when(commentService.getCommentThread(PROJECT_ID, IDEA_ID, null, 50, 10, AUTH_HEADER)).thenReturn(thread);
+
+        mockMvc.perform(get("/projects/{projectId}/ideas/{ideaId}/comments/thread", PROJECT_ID, IDEA_ID)
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments[0].comment.commentId").value("comment-1"))
+                .andExpect(jsonPath("$.comments[0].replies[0].comment.commentId").value("comment-2"));
+    }
+}
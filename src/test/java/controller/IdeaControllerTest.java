@@ -3,6 +3,7 @@ package controller;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -27,8 +28,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import tracko.models.idea.Idea;
+import tracko.models.idea.IdeaPosition;
 import tracko.models.idea.IdeaRegister;
 import tracko.models.idea.IdeaUpdate;
+import tracko.models.idea.VoteTally;
+import tracko.constant.VoteType;
 import tracko.service.IdeaService;
 import tracko.auth.JwtUtil;
 
@@ -189,4 +193,86 @@ public class IdeaControllerTest {
                 .content(mapper.writeValueAsString(ideaUpdate)))
                 .andExpect(status().isForbidden());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void vote_success() throws Exception {
+        when(ideaService.vote(PROJECT_ID, IDEA_ID, "up", AUTH_HEADER))
+            .thenReturn(new VoteTally(IDEA_ID, 3, 1, VoteType.UP));
+
+        mockMvc.perform(post("/projects/{projectId}/ideas/{ideaId}/votes/{voteType}", PROJECT_ID, IDEA_ID, "up")
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ideaId").value(IDEA_ID))
+                .andExpect(jsonPath("$.upVoteCount").value(3))
+                .andExpect(jsonPath("$.downVoteCount").value(1))
+                .andExpect(jsonPath("$.userVote").value("UP"));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void unvote_success() throws Exception {
+        when(ideaService.unvote(PROJECT_ID, IDEA_ID, AUTH_HEADER))
+            .thenReturn(new VoteTally(IDEA_ID, 2, 1, null));
+
+        mockMvc.perform(delete("/projects/{projectId}/ideas/{ideaId}/votes", PROJECT_ID, IDEA_ID)
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upVoteCount").value(2));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void moveIdea_accepted() throws Exception {
+        IdeaPosition position = new IdeaPosition();
+        position.setX(12.5f);
+        position.setY(7.0f);
+
+        when(ideaService.moveIdea(eq(PROJECT_ID), eq(IDEA_ID), any(IdeaPosition.class), eq(AUTH_HEADER)))
+            .thenReturn(position);
+
+        mockMvc.perform(put("/projects/{projectId}/ideas/{ideaId}/position", PROJECT_ID, IDEA_ID)
+                .header("Authorization", AUTH_HEADER)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(position)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.x").value(12.5))
+                .andExpect(jsonPath("$.y").value(7.0));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void getIdeasByProject_viewport() throws Exception {
+        Idea idea = new Idea();
+        idea.setIdeaId(IDEA_ID);
+        idea.setProjectId(PROJECT_ID);
+
+        when(ideaService.getIdeasInViewport(PROJECT_ID, 0.0f, 0.0f, 800.0f, 600.0f, AUTH_HEADER))
+            .thenReturn(List.of(idea));
+
+        mockMvc.perform(get("/projects/{projectId}/ideas", PROJECT_ID)
+                .param("minX", "0").param("minY", "0")
+                .param("maxX", "800").param("maxY", "600")
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].ideaId").value(IDEA_ID));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void getTopIdeas_success() throws Exception {
+        Idea idea = new Idea();
+        idea.setIdeaId(IDEA_ID);
+        idea.setUpVoteCount(4);
+        idea.setScore(3);
+
+        when(ideaService.getTopIdeas(PROJECT_ID, 5, AUTH_HEADER)).thenReturn(List.of(idea));
+
+        mockMvc.perform(get("/projects/{projectId}/ideas/top", PROJECT_ID)
+                .param("n", "5")
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].ideaId").value(IDEA_ID))
+                .andExpect(jsonPath("$[0].score").value(3));
+    }
+}
@@ -39,9 +39,12 @@ import tracko.models.messages.MessageRegister;
 import tracko.models.project.Project;
 import tracko.models.project.ProjectRegister;
 import tracko.models.project.ProjectUpdate;
+import tracko.models.report.Report;
+import tracko.models.report.ReportJob;
 import tracko.models.user.User;
 import tracko.service.ProjectAuthorizationService;
 import tracko.service.ProjectService;
+import tracko.service.ReportJobService;
 import org.springframework.test.context.ContextConfiguration;
 
 @WebMvcTest(controllers = tracko.controller.ProjectController.class)
@@ -61,6 +64,9 @@ public class ProjectControllerTest {
     @MockBean
     private ProjectAuthorizationService projectAuthorizationService;
 
+    @MockBean
+    private ReportJobService reportJobService;
+
     private final String AUTH_HEADER = "Bearer valid-token";
     private final String PROJECT_ID = "project-123";
     private final String USER_ID = "user-123";
@@ -291,7 +297,7 @@ public class ProjectControllerTest {
     @Test
     @WithMockUser(authorities = "USER")
     public void getMessages_success() throws Exception {
-        when(projectService.getMessages(PROJECT_ID, AUTH_HEADER)).thenReturn(testMessages);
+        when(projectService.getMessages(PROJECT_ID, null, null, AUTH_HEADER)).thenReturn(testMessages);
 
         mockMvc.perform(get("/projects/{projectId}/messages", PROJECT_ID)
                 .header("Authorization", AUTH_HEADER))
@@ -305,4 +311,59 @@ public class ProjectControllerTest {
                 .andExpect(jsonPath("$[1].content").value("Test message 2"))
                 .andExpect(jsonPath("$[1].senderId").value("user-456"));
     }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void getMessages_withCursor_passesItThrough() throws Exception {
+        when(projectService.getMessages(PROJECT_ID, "message-456", 20, AUTH_HEADER)).thenReturn(testMessages.subList(0, 1));
+
+        mockMvc.perform(get("/projects/{projectId}/messages", PROJECT_ID)
+                .param("before", "message-456")
+                .param("limit", "20")
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value("message-123"));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void submitReport_returnsQueuedJob() throws Exception {
+        when(reportJobService.submit(PROJECT_ID, AUTH_HEADER)).thenReturn(ReportJob.queued("job-1", PROJECT_ID, USER_ID));
+
+        mockMvc.perform(post("/projects/{projectId}/report", PROJECT_ID)
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value("job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void getReportJob_finished_returnsReport() throws Exception {
+        Report report = new Report();
+        report.setReportId("report-1");
+        report.setReportContent("<h2>Report</h2>");
+        ReportJob done = ReportJob.queued("job-1", PROJECT_ID, USER_ID).running().done(report);
+        when(reportJobService.getJob(PROJECT_ID, "job-1", AUTH_HEADER)).thenReturn(done);
+
+        mockMvc.perform(get("/projects/{projectId}/report/jobs/{jobId}", PROJECT_ID, "job-1")
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.reportId").value("report-1"))
+                .andExpect(jsonPath("$.reportContent").value("<h2>Report</h2>"));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    public void getReportJob_running_isAccepted() throws Exception {
+        when(reportJobService.getJob(PROJECT_ID, "job-1", AUTH_HEADER))
+            .thenReturn(ReportJob.queued("job-1", PROJECT_ID, USER_ID).running());
+
+        mockMvc.perform(get("/projects/{projectId}/report/jobs/{jobId}", PROJECT_ID, "job-1")
+                .header("Authorization", AUTH_HEADER))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("RUNNING"));
+    }
 }
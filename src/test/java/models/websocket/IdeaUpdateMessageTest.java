@@ -3,6 +3,8 @@ package models.websocket;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
 
 import tracko.models.idea.Idea;
@@ -136,4 +138,28 @@ public class IdeaUpdateMessageTest {
         assertEquals(updatedAction, message.getAction());
         assertEquals(updatedIdea, message.getIdea());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFactoriesSetActionAndSequence() {
+        Idea idea = new Idea();
+        idea.setIdeaId("idea-123");
+
+        IdeaUpdateMessage created = IdeaUpdateMessage.created("project-123", 1, idea);
+        IdeaUpdateMessage updated = IdeaUpdateMessage.updated("project-123", "idea-123", 2, Map.of("ideaName", "New"));
+        IdeaUpdateMessage deleted = IdeaUpdateMessage.deleted("project-123", "idea-123", 3);
+
+        assertEquals(IdeaUpdateMessage.CREATE, created.getAction());
+        assertEquals("idea-123", created.getIdeaId());
+        assertEquals(idea, created.getIdea());
+        assertEquals(1, created.getSequence());
+
+        assertEquals(IdeaUpdateMessage.UPDATE, updated.getAction());
+        assertNull(updated.getIdea());
+        assertEquals("New", updated.getChanges().get("ideaName"));
+        assertEquals(2, updated.getSequence());
+
+        assertEquals(IdeaUpdateMessage.DELETE, deleted.getAction());
+        assertNull(deleted.getChanges());
+        assertEquals(3, deleted.getSequence());
+    }
+}
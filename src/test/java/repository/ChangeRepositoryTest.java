@@ -12,12 +12,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.context.ActiveProfiles;
 
 import config.MongoTestConfig;
 import tracko.constant.ChangeType;
 import tracko.models.change.Change;
+import tracko.models.change.ChangeBucket;
 import tracko.repository.ChangeRepository;
+import tracko.repository.ChangeRepositoryImpl;
 
 @SpringBootTest(classes = {MongoTestConfig.class})
 @ActiveProfiles("test")
@@ -25,6 +29,9 @@ public class ChangeRepositoryTest {
 
     @Autowired
     private ChangeRepository changeRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
     
     @BeforeEach
     public void setup() {
@@ -160,4 +167,146 @@ public class ChangeRepositoryTest {
         assertTrue(foundChanges.stream().anyMatch(change -> change.getChangeType() == ChangeType.CLOSED_IDEA));
         assertTrue(foundChanges.stream().anyMatch(change -> change.getChangeType() == ChangeType.ADDED_COMMENT));
     }
-}
\ No newline at end of file
+
+    private Change change(String projectId, ChangeType type, LocalDateTime createdAt) {
+        Change change = new Change();
+        change.setChangeType(type);
+        change.setChangeDescription(type.getDescription());
+        change.setProjectId(projectId);
+        change.setOwnerId("user-123");
+        change.setCreatedAt(createdAt);
+        return change;
+    }
+
+    @Test
+    public void storeAll_bucketed_groupsByHourAndExpandsOnRead() {
+        mongoTemplate.dropCollection(ChangeBucket.class);
+        ChangeRepositoryImpl buckets = new ChangeRepositoryImpl(mongoTemplate, "buckets");
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+        buckets.storeAll(List.of(
+            change("project-123", ChangeType.ADDED_IDEA, hour.plusMinutes(5)),
+            change("project-123", ChangeType.UPVOTE, hour.plusMinutes(30))));
+        buckets.storeAll(List.of(change("project-123", ChangeType.ADDED_COMMENT, hour.plusHours(1))));
+
+        assertEquals(2, mongoTemplate.count(new Query(), ChangeBucket.class));
+        assertEquals(0, changeRepository.count());
+
+        List<Change> history = buckets.findProjectHistory("project-123");
+        assertEquals(3, history.size());
+        assertEquals(ChangeType.ADDED_IDEA, history.get(0).getChangeType());
+        assertEquals("Added an idea", history.get(0).getChangeDescription());
+        assertEquals(hour.plusMinutes(5), history.get(0).getCreatedAt());
+        assertEquals(ChangeType.ADDED_COMMENT, history.get(2).getChangeType());
+        assertNotNull(history.get(1).getChangeId());
+    }
+
+    @Test
+    public void migrateToBuckets_movesDocumentsAndKeepsHistory() {
+        mongoTemplate.dropCollection(ChangeBucket.class);
+        ChangeRepositoryImpl buckets = new ChangeRepositoryImpl(mongoTemplate, "buckets");
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+        Change first = changeRepository.save(change("project-123", ChangeType.ADDED_IDEA, hour.plusMinutes(1)));
+        changeRepository.save(change("project-123", ChangeType.CLOSED_IDEA, hour.plusMinutes(2)));
+        changeRepository.save(change("project-123", ChangeType.MODIFIED_IDEA, hour.plusMinutes(3)));
+
+        assertEquals(2, buckets.migrateToBuckets(2));
+        // Half way through, reads still see everything
+        assertEquals(3, buckets.findProjectHistory("project-123").size());
+        assertEquals(1, buckets.migrateToBuckets(2));
+        assertEquals(0, buckets.migrateToBuckets(2));
+
+        assertEquals(0, changeRepository.count());
+        List<Change> history = buckets.findProjectHistory("project-123");
+        assertEquals(3, history.size());
+        assertEquals(first.getChangeId(), history.get(0).getChangeId());
+
+        buckets.deleteProjectHistory("project-123");
+        assertTrue(buckets.findProjectHistory("project-123").isEmpty());
+    }
+
+    @Test
+    public void storeAll_assignsIncreasingSeqPerProject() {
+        mongoTemplate.dropCollection("ChangeSequences");
+        LocalDateTime now = LocalDateTime.now();
+
+        changeRepository.storeAll(List.of(change("project-a", ChangeType.ADDED_IDEA, now), change("project-b", ChangeType.ADDED_IDEA, now)));
+        List<Change> second = changeRepository.storeAll(List.of(change("project-a", ChangeType.UPVOTE, now), change("project-a", ChangeType.DOWNVOTE, now)));
+
+        assertEquals(2L, second.get(0).getSeq());
+        assertEquals(3L, second.get(1).getSeq());
+
+        List<Change> feed = changeRepository.findProjectFeed("project-a", 1, 10);
+        assertEquals(2, feed.size());
+        assertEquals(ChangeType.UPVOTE, feed.get(0).getChangeType());
+        assertEquals(2L, changeRepository.findSeq("project-a", second.get(0).getChangeId()).orElseThrow());
+    }
+
+    @Test
+    public void findProjectFeed_bucketed_pagesAcrossBuckets() {
+        mongoTemplate.dropCollection(ChangeBucket.class);
+        mongoTemplate.dropCollection("ChangeSequences");
+        ChangeRepositoryImpl buckets = new ChangeRepositoryImpl(mongoTemplate, "buckets");
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+        buckets.storeAll(List.of(
+            change("project-123", ChangeType.ADDED_IDEA, hour.plusMinutes(10)),
+            change("project-123", ChangeType.UPVOTE, hour.plusMinutes(20))));
+        List<Change> later = buckets.storeAll(List.of(
+            change("project-123", ChangeType.ADDED_COMMENT, hour.plusHours(1)),
+            change("project-123", ChangeType.DOWNVOTE, hour.plusHours(2))));
+
+        List<Change> page = buckets.findProjectFeed("project-123", 1, 2);
+
+        assertEquals(2, page.size());
+        assertEquals(2L, page.get(0).getSeq());
+        assertEquals(3L, page.get(1).getSeq());
+        assertEquals(4L, buckets.findProjectFeed("project-123", 3, 2).get(0).getSeq());
+        assertEquals(3L, buckets.findSeq("project-123", later.get(0).getChangeId()).orElseThrow());
+    }
+
+    @Test
+    public void countProjectChanges_countsOnlyInsideTheRange() {
+        mongoTemplate.dropCollection(ChangeBucket.class);
+        ChangeRepositoryImpl buckets = new ChangeRepositoryImpl(mongoTemplate, "buckets");
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+        // The bucket starts before the range, so its entries must be filtered one by one
+        buckets.storeAll(List.of(
+            change("project-123", ChangeType.ADDED_IDEA, hour.plusMinutes(10)),
+            change("project-123", ChangeType.UPVOTE, hour.plusMinutes(40))));
+        changeRepository.save(change("project-123", ChangeType.DOWNVOTE, hour.plusMinutes(50)));
+        changeRepository.save(change("project-123", ChangeType.DOWNVOTE, hour.plusHours(15)));
+        changeRepository.save(change("project-other", ChangeType.DOWNVOTE, hour.plusMinutes(50)));
+
+        assertEquals(2, buckets.countProjectChanges("project-123", hour.plusMinutes(30), hour.plusHours(14)));
+    }
+
+    @Test
+    public void storeAll_retriedBatch_storesOnlyWhatIsMissing() {
+        mongoTemplate.dropCollection("ChangeSequences");
+        LocalDateTime now = LocalDateTime.now();
+        List<Change> batch = List.of(change("project-123", ChangeType.ADDED_IDEA, now), change("project-123", ChangeType.UPVOTE, now));
+        changeRepository.storeAll(batch);
+        // Only the first one made it before the write failed
+        changeRepository.deleteById(batch.get(1).getChangeId());
+
+        changeRepository.storeAll(batch);
+
+        assertEquals(2, changeRepository.count());
+        assertEquals(2L, changeRepository.findById(batch.get(1).getChangeId()).orElseThrow().getSeq());
+    }
+
+    @Test
+    public void storeAll_bucketed_retriedBatchIsNotAppendedTwice() {
+        mongoTemplate.dropCollection(ChangeBucket.class);
+        ChangeRepositoryImpl buckets = new ChangeRepositoryImpl(mongoTemplate, "buckets");
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+        List<Change> batch = List.of(
+            change("project-123", ChangeType.ADDED_IDEA, hour.plusMinutes(5)),
+            change("project-123", ChangeType.UPVOTE, hour.plusMinutes(6)));
+
+        buckets.storeAll(batch);
+        buckets.storeAll(batch);
+
+        assertEquals(2, buckets.findProjectHistory("project-123").size());
+    }
+}
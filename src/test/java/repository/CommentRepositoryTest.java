@@ -1,22 +1,28 @@
 package repository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
 import config.MongoTestConfig;
 import tracko.models.comment.Comment;
 import tracko.repository.CommentRepository;
+import tracko.service.CommentPathBackfill;
 
 @SpringBootTest(classes = {MongoTestConfig.class})
 @Import(MongoTestConfig.class)
@@ -94,4 +100,109 @@ public class CommentRepositoryTest {
         assertTrue(foundComments.stream().anyMatch(comment -> comment.getCommentText().equals("Comment 1")));
         assertTrue(foundComments.stream().anyMatch(comment -> comment.getCommentText().equals("Comment 2")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findThread_returnsPathOrderWithinDepthAfterCursor() {
+        saveThreadComment("a", null, "a/", 0);
+        saveThreadComment("c", "b", "a/b/c/", 2);
+        saveThreadComment("b", "a", "a/b/", 1);
+        saveThreadComment("d", null, "d/", 0);
+
+        List<Comment> firstPage = commentRepository.findThread("idea-thread", "", 1, PageRequest.of(0, 2));
+        assertEquals(List.of("a", "b"), firstPage.stream().map(Comment::getCommentId).toList());
+
+        List<Comment> secondPage = commentRepository.findThread("idea-thread", "a/b/", 1, PageRequest.of(0, 2));
+        assertEquals(List.of("d"), secondPage.stream().map(Comment::getCommentId).toList());
+    }
+
+    @Test
+    public void pathBackfill_derivesPathsFromReplies() {
+        Comment root = saveThreadComment("root", null, null, 0);
+        root.setReplies(new ArrayList<>(List.of("reply")));
+        commentRepository.save(root);
+        saveThreadComment("reply", null, null, 0);
+
+        new CommentPathBackfill(commentRepository, true, 1).backfill();
+
+        Comment reply = commentRepository.findById("reply").orElseThrow();
+        assertEquals("root", reply.getParentId());
+        assertEquals("root/reply/", reply.getPath());
+        assertEquals(1, reply.getDepth());
+        assertEquals("root/", commentRepository.findById("root").orElseThrow().getPath());
+    }
+
+    @Test
+    public void setPaths_keepsRepliesAndSkipsCommentsWithAPath() {
+        Comment legacy = saveThreadComment("legacy", null, null, 0);
+        legacy.setReplies(new ArrayList<>());
+        commentRepository.save(legacy);
+        saveThreadComment("done", null, "done/", 0);
+
+        // A reply is appended after the backfill read the comment
+        Comment stale = commentRepository.findById("legacy").orElseThrow();
+        Comment current = commentRepository.findById("legacy").orElseThrow();
+        current.getReplies().add("new-reply");
+        commentRepository.save(current);
+
+        stale.setPath("legacy/");
+        Comment other = commentRepository.findById("done").orElseThrow();
+        other.setPath("elsewhere/");
+        commentRepository.setPaths(List.of(stale, other));
+
+        Comment after = commentRepository.findById("legacy").orElseThrow();
+        assertEquals("legacy/", after.getPath());
+        assertEquals(List.of("new-reply"), after.getReplies());
+        assertEquals("done/", commentRepository.findById("done").orElseThrow().getPath());
+        assertFalse(commentRepository.existsByIdeaIdAndPathIsNull("idea-thread"));
+    }
+
+    @Test
+    public void deleteSubtree_removesCommentAndAllDescendants() {
+        saveThreadComment("a", null, "a/", 0);
+        saveThreadComment("b", "a", "a/b/", 1);
+        saveThreadComment("c", "b", "a/b/c/", 2);
+        saveThreadComment("ab", null, "ab/", 0);
+
+        List<String> found = commentRepository.findSubtreeIds("idea-thread", "a/b/");
+        assertEquals(2, found.size());
+        assertTrue(found.containsAll(List.of("b", "c")));
+
+        assertEquals(2, commentRepository.deleteSubtree("idea-thread", "a/b/"));
+        assertEquals(List.of("a", "ab"), commentRepository.findByIdeaId("idea-thread").stream()
+            .map(Comment::getCommentId).sorted().toList());
+    }
+
+    @Test
+    public void streamByProjectId_returnsCommentsOfAllIdeasNewestFirst() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 10, 0);
+        saveIdeaComment("c1", "project-a", "idea-a", base);
+        saveIdeaComment("c2", "project-a", "idea-b", base.plusMinutes(2));
+        saveIdeaComment("c3", "project-a", "idea-a", base.plusMinutes(1));
+        saveIdeaComment("c4", "project-other", "idea-other", base.plusMinutes(3));
+        // Same timestamp: the id decides, so pages of the stream are stable
+        saveIdeaComment("c5", "project-a", "idea-b", base.plusMinutes(1));
+
+        try (Stream<Comment> comments = commentRepository.streamByProjectIdOrderByCreatedAtDescCommentIdDesc("project-a")) {
+            assertEquals(List.of("c2", "c5", "c3", "c1"), comments.map(Comment::getCommentId).toList());
+        }
+    }
+
+    private Comment saveIdeaComment(String id, String projectId, String ideaId, LocalDateTime createdAt) {
+        Comment comment = new Comment();
+        comment.setCommentId(id);
+        comment.setProjectId(projectId);
+        comment.setIdeaId(ideaId);
+        comment.setCreatedAt(createdAt);
+        return commentRepository.save(comment);
+    }
+
+    private Comment saveThreadComment(String id, String parentId, String path, int depth) {
+        Comment comment = new Comment();
+        comment.setCommentId(id);
+        comment.setIdeaId("idea-thread");
+        comment.setParentId(parentId);
+        comment.setPath(path);
+        comment.setDepth(depth);
+        return commentRepository.save(comment);
+    }
+}
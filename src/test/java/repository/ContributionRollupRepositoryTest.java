@@ -0,0 +1,159 @@
+package repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import config.MongoTestConfig;
+import tracko.constant.ChangeType;
+import tracko.models.change.Change;
+import tracko.models.change.ContributionRollup;
+import tracko.repository.ChangeRepository;
+import tracko.repository.ContributionRollupRepository;
+import tracko.service.ContributionRollupBackfill;
+
+@SpringBootTest(classes = {MongoTestConfig.class})
+@ActiveProfiles("test")
+public class ContributionRollupRepositoryTest {
+
+    @Autowired
+    private ContributionRollupRepository rollupRepository;
+
+    @Autowired
+    private ChangeRepository changeRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    public void setup() {
+        rollupRepository.deleteAll();
+        changeRepository.deleteAll();
+        mongoTemplate.dropCollection("ContributionRollupBackfill");
+    }
+
+    @Test
+    public void increment_upsertsAndCountsPerType() {
+        LocalDate today = LocalDate.now();
+
+        rollupRepository.increment("project-123", "user-123", today, ChangeType.ADDED_IDEA);
+        rollupRepository.increment("project-123", "user-123", today, ChangeType.ADDED_IDEA);
+        rollupRepository.increment("project-123", "user-123", today, ChangeType.UPVOTE);
+
+        List<ContributionRollup> rollups = rollupRepository.findByProjectId("project-123");
+        assertEquals(1, rollups.size());
+        assertEquals(today, rollups.get(0).getDate());
+        assertEquals(2L, rollups.get(0).count(ChangeType.ADDED_IDEA));
+        assertEquals(1L, rollups.get(0).count(ChangeType.UPVOTE));
+        assertEquals(3L, rollups.get(0).getTotal());
+    }
+
+    @Test
+    public void findByProjectIdAndDayGreaterThanEqual_filtersByDay() {
+        LocalDate today = LocalDate.now();
+        rollupRepository.increment("project-123", "user-123", today, ChangeType.ADDED_IDEA);
+        rollupRepository.increment("project-123", "user-123", today.minusDays(10), ChangeType.ADDED_IDEA);
+
+        List<ContributionRollup> recent = rollupRepository.findByProjectIdAndDayGreaterThanEqual(
+            "project-123", today.minusDays(3).toString());
+
+        assertEquals(1, recent.size());
+        assertEquals(today, recent.get(0).getDate());
+    }
+
+    @Test
+    public void backfill_rebuildsFromChangesOncePerProject() {
+        LocalDateTime now = LocalDateTime.now();
+        saveChange(ChangeType.ADDED_IDEA, now);
+        saveChange(ChangeType.ADDED_COMMENT, now);
+        saveChange(ChangeType.UPVOTE, now.minusDays(1));
+
+        ContributionRollupBackfill backfill = new ContributionRollupBackfill(rollupRepository, true);
+        assertEquals(1, backfill.backfill());
+        assertEquals(0, backfill.backfill());
+
+        List<ContributionRollup> rollups = rollupRepository.findByProjectId("project-legacy");
+        assertEquals(2, rollups.size());
+        assertEquals(3L, rollups.stream().mapToLong(ContributionRollup::getTotal).sum());
+        assertTrue(rollupRepository.findProjectsPendingBackfill().isEmpty());
+    }
+
+    @Test
+    public void mergeMax_neverLowersCountsIncrementedMeanwhile() {
+        LocalDate today = LocalDate.now();
+        // Recomputed before the last two live increments landed
+        ContributionRollup recomputed = new ContributionRollup();
+        recomputed.setId(ContributionRollup.idOf("project-123", "user-123", today));
+        recomputed.setProjectId("project-123");
+        recomputed.setOwnerId("user-123");
+        recomputed.setDay(today.toString());
+        recomputed.getCounts().put(ChangeType.UPVOTE.name(), 1L);
+        recomputed.getCounts().put(ChangeType.ADDED_IDEA.name(), 4L);
+        recomputed.setTotal(5);
+        for (int i = 0; i < 3; i++) {
+            rollupRepository.increment("project-123", "user-123", today, ChangeType.UPVOTE);
+        }
+
+        rollupRepository.mergeMax(List.of(recomputed));
+
+        ContributionRollup merged = rollupRepository.findById(recomputed.getId()).orElseThrow();
+        assertEquals(3L, merged.count(ChangeType.UPVOTE));
+        assertEquals(4L, merged.count(ChangeType.ADDED_IDEA));
+        assertEquals(5L, merged.getTotal());
+        assertEquals("project-123", merged.getProjectId());
+    }
+
+    @Test
+    public void aggregateFromChanges_matchesGroupingInMemory() {
+        LocalDateTime base = LocalDate.now().atTime(0, 30);
+        String[] owners = {"user-123", "user-456", "user-789"};
+        ChangeType[] types = ChangeType.values();
+        for (int i = 0; i < 60; i++) {
+            // Spread over owners, types and days, with some changes just either side of midnight
+            saveChange(owners[i % owners.length], types[i % types.length], base.minusDays(i % 4).minusMinutes((i % 3) * 20L));
+        }
+        Change otherProject = new Change();
+        otherProject.setProjectId("project-other");
+        otherProject.setOwnerId("user-123");
+        otherProject.setChangeType(ChangeType.UPVOTE);
+        otherProject.setCreatedAt(base);
+        changeRepository.save(otherProject);
+
+        // What the analytics used to compute after loading every change
+        Map<String, Map<String, Long>> expected = changeRepository.findAll().stream()
+            .filter(change -> "project-legacy".equals(change.getProjectId()))
+            .collect(Collectors.groupingBy(
+                change -> ContributionRollup.idOf("project-legacy", change.getOwnerId(), change.getCreatedAt().toLocalDate()),
+                Collectors.groupingBy(change -> change.getChangeType().name(), Collectors.counting())));
+
+        Map<String, Map<String, Long>> actual = rollupRepository.aggregateFromChanges("project-legacy").stream()
+            .collect(Collectors.toMap(ContributionRollup::getId, ContributionRollup::getCounts));
+
+        assertEquals(expected, actual);
+    }
+
+    private void saveChange(ChangeType type, LocalDateTime createdAt) {
+        saveChange("user-123", type, createdAt);
+    }
+
+    private void saveChange(String ownerId, ChangeType type, LocalDateTime createdAt) {
+        Change change = new Change();
+        change.setProjectId("project-legacy");
+        change.setOwnerId(ownerId);
+        change.setChangeType(type);
+        change.setCreatedAt(createdAt);
+        changeRepository.save(change);
+    }
+}
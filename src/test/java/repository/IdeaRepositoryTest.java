@@ -1,10 +1,14 @@
 package repository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -12,9 +16,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.test.context.ActiveProfiles;
 
 import config.MongoTestConfig;
+import tracko.constant.VoteType;
+import tracko.models.comment.Comment;
 import tracko.models.idea.Idea;
 import tracko.repository.IdeaRepository;
 
@@ -25,10 +35,14 @@ public class IdeaRepositoryTest {
 
     @Autowired
     private IdeaRepository ideaRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
     
     @BeforeEach
     public void setup() {
         ideaRepository.deleteAll();
+        mongoTemplate.dropCollection(Comment.class);
     }
     
     @Test
@@ -99,4 +113,213 @@ public class IdeaRepositoryTest {
         assertTrue(foundIdeas.stream().anyMatch(idea -> idea.getIdeaName().equals("Idea 1")));
         assertTrue(foundIdeas.stream().anyMatch(idea -> idea.getIdeaName().equals("Idea 2")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void applyVote_movesUserBetweenLists() {
+        Idea idea = new Idea();
+        idea.setIdeaName("Vote Idea");
+        idea.setProjectId("project-123");
+        idea.setOwnerId("user-123");
+        idea.setUpVotes(new ArrayList<>());
+        idea.setDownVotes(new ArrayList<>(List.of("voter")));
+        Idea saved = ideaRepository.save(idea);
+
+        Idea before = ideaRepository.applyVote("project-123", saved.getIdeaId(), "voter", VoteType.UP);
+        assertEquals(List.of("voter"), before.getDownVotes());
+
+        Idea after = ideaRepository.findById(saved.getIdeaId()).orElseThrow();
+        assertEquals(List.of("voter"), after.getUpVotes());
+        assertTrue(after.getDownVotes().isEmpty());
+        assertEquals("Vote Idea", after.getIdeaName());
+    }
+
+    @Test
+    public void applyVote_wrongProject_returnsNull() {
+        Idea idea = new Idea();
+        idea.setProjectId("project-123");
+        idea.setUpVotes(new ArrayList<>());
+        idea.setDownVotes(new ArrayList<>());
+        Idea saved = ideaRepository.save(idea);
+
+        assertEquals(null, ideaRepository.applyVote("other-project", saved.getIdeaId(), "voter", VoteType.UP));
+    }
+
+    @Test
+    public void findInViewport_returnsIdeasInsideBoxOnly() {
+        String projectId = "project-viewport";
+
+        Idea inside = new Idea();
+        inside.setProjectId(projectId);
+        inside.setx(50.0f);
+        inside.sety(50.0f);
+        ideaRepository.save(inside);
+
+        Idea onEdge = new Idea();
+        onEdge.setProjectId(projectId);
+        onEdge.setx(100.0f);
+        onEdge.sety(0.0f);
+        ideaRepository.save(onEdge);
+
+        Idea outside = new Idea();
+        outside.setProjectId(projectId);
+        outside.setx(150.0f);
+        outside.sety(50.0f);
+        ideaRepository.save(outside);
+
+        Idea otherProject = new Idea();
+        otherProject.setProjectId("another-project");
+        otherProject.setx(50.0f);
+        otherProject.sety(50.0f);
+        ideaRepository.save(otherProject);
+
+        List<Idea> found = ideaRepository.findInViewport(projectId, 0.0f, 0.0f, 100.0f, 100.0f);
+
+        assertEquals(2, found.size());
+        assertTrue(found.stream().allMatch(idea -> projectId.equals(idea.getProjectId()) && idea.getX() <= 100.0f));
+    }
+
+    @Test
+    public void incrementCounters_keepsScoreInStep() {
+        Idea idea = new Idea();
+        idea.setProjectId("project-123");
+        idea.initCounters();
+        Idea saved = ideaRepository.save(idea);
+
+        ideaRepository.incrementCounters(saved.getIdeaId(), 2, 0, 0);
+        ideaRepository.incrementCounters(saved.getIdeaId(), -1, 1, 3);
+
+        Idea after = ideaRepository.findById(saved.getIdeaId()).orElseThrow();
+        assertEquals(1, after.getUpVoteCount());
+        assertEquals(1, after.getDownVoteCount());
+        assertEquals(0, after.getScore());
+        assertEquals(3, after.getCommentCount());
+    }
+
+    @Test
+    public void updateFields_keepsVotesAppliedSinceTheRead() {
+        Idea idea = new Idea();
+        idea.setProjectId("project-123");
+        idea.setIdeaName("Before");
+        idea.setUpVotes(new ArrayList<>());
+        idea.setDownVotes(new ArrayList<>());
+        idea.initCounters();
+        Idea saved = ideaRepository.save(idea);
+
+        // A vote lands between an editor's read and their write
+        ideaRepository.applyVote("project-123", saved.getIdeaId(), "voter", VoteType.UP);
+        ideaRepository.incrementCounters(saved.getIdeaId(), 1, 0, 0);
+
+        Idea updated = ideaRepository.updateFields("project-123", saved.getIdeaId(), Map.of("ideaName", "After"));
+
+        assertEquals("After", updated.getIdeaName());
+        assertEquals(List.of("voter"), updated.getUpVotes());
+        assertEquals(1, updated.getUpVoteCount());
+        assertNull(ideaRepository.updateFields("other-project", saved.getIdeaId(), Map.of("ideaName", "x")));
+    }
+
+    @Test
+    public void updateFields_voteList_derivesCountersFromStoredLists() {
+        Idea idea = new Idea();
+        idea.setProjectId("project-123");
+        idea.setUpVotes(new ArrayList<>());
+        idea.setDownVotes(new ArrayList<>());
+        idea.initCounters();
+        Idea saved = ideaRepository.save(idea);
+
+        // A down vote lands after the editor read the idea; their PUT only carries upVotes
+        ideaRepository.applyVote("project-123", saved.getIdeaId(), "critic", VoteType.DOWN);
+        ideaRepository.incrementCounters(saved.getIdeaId(), 0, 1, 0);
+
+        Idea updated = ideaRepository.updateFields("project-123", saved.getIdeaId(),
+            Map.of("upVotes", List.of("a", "b")));
+
+        assertEquals(List.of("a", "b"), updated.getUpVotes());
+        assertEquals(2, updated.getUpVoteCount());
+        assertEquals(1, updated.getDownVoteCount());
+        assertEquals(1, updated.getScore());
+    }
+
+    @Test
+    public void updateFields_voteListOnLegacyIdea_leavesCountersToBackfill() {
+        Idea legacy = new Idea();
+        legacy.setProjectId("project-123");
+        Idea saved = ideaRepository.save(legacy);
+
+        Idea updated = ideaRepository.updateFields("project-123", saved.getIdeaId(),
+            Map.of("upVotes", List.of("a")));
+
+        assertEquals(List.of("a"), updated.getUpVotes());
+        assertFalse(updated.hasCounters());
+        ideaRepository.backfillCounters(null, 10);
+        assertEquals(1, ideaRepository.findById(saved.getIdeaId()).orElseThrow().getScore());
+    }
+
+    @Test
+    public void findTopByScore_ordersByScoreAndOmitsLists() {
+        String projectId = "project-top";
+        for (int score : new int[] {1, 7, 3}) {
+            Idea idea = new Idea();
+            idea.setProjectId(projectId);
+            idea.setScore(score);
+            idea.setUpVotes(new ArrayList<>(List.of("voter")));
+            ideaRepository.save(idea);
+        }
+
+        List<Idea> top = ideaRepository.findTopByScore(projectId, 2);
+
+        assertEquals(2, top.size());
+        assertEquals(7, top.get(0).getScore());
+        assertEquals(3, top.get(1).getScore());
+        assertNull(top.get(0).getUpVotes());
+    }
+
+    @Test
+    public void backfillCounters_fillsMissingCountersOnly() {
+        Idea legacy = new Idea();
+        legacy.setProjectId("project-123");
+        legacy.setUpVotes(new ArrayList<>(List.of("a", "b")));
+        legacy.setDownVotes(new ArrayList<>(List.of("c")));
+        Idea saved = ideaRepository.save(legacy);
+        // Simulate a document written before the counters existed
+        mongoTemplate.updateFirst(
+            new Query(Criteria.where("_id").is(saved.getIdeaId())),
+            new Update().unset("upVoteCount").unset("downVoteCount").unset("commentCount").unset("score"),
+            Idea.class
+        );
+
+        Comment comment = new Comment();
+        comment.setIdeaId(saved.getIdeaId());
+        mongoTemplate.save(comment);
+
+        String lastId = ideaRepository.backfillCounters(null, 10);
+        assertEquals(saved.getIdeaId(), lastId);
+        assertNull(ideaRepository.backfillCounters(null, 10));
+
+        Idea after = ideaRepository.findById(saved.getIdeaId()).orElseThrow();
+        assertEquals(2, after.getUpVoteCount());
+        assertEquals(1, after.getDownVoteCount());
+        assertEquals(1, after.getScore());
+        assertEquals(1, after.getCommentCount());
+    }
+
+    @Test
+    public void backfillCounters_reachesLegacyIdeasSavedOrVotedBeforeIt() {
+        Idea legacy = new Idea();
+        legacy.setProjectId("project-legacy");
+        legacy.setUpVotes(new ArrayList<>(List.of("a")));
+        // A full save and a vote on an idea the backfill has not reached must not mark it as done
+        Idea saved = ideaRepository.save(legacy);
+        saved.setIdeaName("Renamed");
+        ideaRepository.save(saved);
+        ideaRepository.applyVote("project-legacy", saved.getIdeaId(), "b", VoteType.UP);
+        ideaRepository.incrementCounters(saved.getIdeaId(), 1, 0, 0);
+        assertFalse(ideaRepository.findById(saved.getIdeaId()).orElseThrow().hasCounters());
+
+        ideaRepository.backfillCounters(null, 10);
+
+        Idea after = ideaRepository.findById(saved.getIdeaId()).orElseThrow();
+        assertTrue(after.hasCounters());
+        assertEquals(2, after.getUpVoteCount());
+        assertEquals(2, after.getScore());
+    }
+}
@@ -0,0 +1,68 @@
+package repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import config.MongoTestConfig;
+import tracko.models.messages.Message;
+import tracko.repository.MessageRepository;
+
+@SpringBootTest(classes = {MongoTestConfig.class})
+@ActiveProfiles("test")
+public class MessageRepositoryTest {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @BeforeEach
+    public void setup() {
+        messageRepository.deleteAll();
+    }
+
+    private Message message(String projectId, String content, LocalDateTime createdAt) {
+        Message message = new Message();
+        message.setProjectId(projectId);
+        message.setContent(content);
+        message.setCreatedAt(createdAt);
+        return messageRepository.save(message);
+    }
+
+    @Test
+    public void findLatest_andFindPageBefore_walkBackWithoutGapsOrRepeats() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 10, 0);
+        message("project-123", "m1", base);
+        message("project-123", "m2", base.plusMinutes(1));
+        message("project-123", "m3", base.plusMinutes(1)); // same timestamp as m2
+        message("project-123", "m4", base.plusMinutes(2));
+        message("other-project", "x", base.plusMinutes(3));
+
+        List<Message> latest = messageRepository.findLatest("project-123", PageRequest.of(0, 2));
+        assertEquals(List.of("m4", "m3"), latest.stream().map(Message::getContent).toList());
+
+        Message oldest = latest.get(1);
+        List<Message> older = messageRepository.findPageBefore(
+            "project-123", oldest.getCreatedAt(), oldest.getId(), PageRequest.of(0, 2));
+        assertEquals(List.of("m2", "m1"), older.stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    public void streamByProjectId_returnsChatNewestFirst() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 10, 0);
+        message("project-123", "second", base.plusMinutes(1));
+        message("project-123", "first", base);
+
+        try (Stream<Message> messages = messageRepository.streamByProjectIdOrderByCreatedAtDescIdDesc("project-123")) {
+            assertEquals(List.of("second", "first"), messages.map(Message::getContent).toList());
+        }
+    }
+}
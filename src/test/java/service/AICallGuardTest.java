@@ -0,0 +1,226 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import tracko.service.AICallGuard;
+import tracko.service.AICallGuard.CircuitState;
+
+public class AICallGuardTest {
+
+    private AICallGuard guard;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        if (guard != null) {
+            guard.shutdown();
+        }
+    }
+
+    private static String fail() {
+        throw new IllegalStateException("provider down");
+    }
+
+    @Test
+    public void call_returnsProviderAnswer() {
+        guard = new AICallGuard(2, 2, 1000, 1000, 3, 1000);
+
+        assertEquals("answer", guard.call(() -> "answer"));
+        assertEquals(1, guard.stats().succeeded());
+        assertEquals(CircuitState.CLOSED, guard.stats().circuit());
+    }
+
+    @Test
+    public void call_slowProvider_gatewayTimeout() {
+        guard = new AICallGuard(2, 2, 50, 1000, 3, 1000);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> guard.call(() -> {
+                release.await();
+                return "late";
+            }));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, exception.getStatusCode());
+        assertEquals(1, guard.stats().timedOut());
+    }
+
+    @Test
+    public void call_poolFull_serviceUnavailableWithoutWaiting() throws Exception {
+        guard = new AICallGuard(1, 1, 5000, 5000, 3, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread running = new Thread(() -> guard.call(() -> {
+            started.countDown();
+            release.await();
+            return "first";
+        }));
+        Thread queued = new Thread(() -> guard.call(() -> "second"));
+        running.start();
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        queued.start();
+        while (guard.stats().queuedCalls() == 0) {
+            Thread.sleep(5);
+        }
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> guard.call(() -> "third"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        assertEquals(1, guard.stats().rejected());
+        assertEquals(CircuitState.CLOSED, guard.stats().circuit());
+        release.countDown();
+        running.join(2000);
+        queued.join(2000);
+    }
+
+    @Test
+    public void call_repeatedFailures_opensCircuitAndFailsFast() {
+        guard = new AICallGuard(2, 2, 1000, 1000, 3, 60000);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> guard.call(AICallGuardTest::fail));
+        }
+        assertEquals(CircuitState.OPEN, guard.stats().circuit());
+
+        AtomicInteger reached = new AtomicInteger();
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> guard.call(reached::incrementAndGet));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        assertEquals(0, reached.get());
+        assertEquals(1, guard.stats().shortCircuited());
+    }
+
+    @Test
+    public void call_afterOpenPeriod_probeDecidesCircuit() throws Exception {
+        guard = new AICallGuard(2, 2, 1000, 1000, 1, 50);
+        assertThrows(IllegalStateException.class, () -> guard.call(AICallGuardTest::fail));
+        assertEquals(CircuitState.OPEN, guard.stats().circuit());
+
+        Thread.sleep(80);
+        assertEquals(CircuitState.HALF_OPEN, guard.stats().circuit());
+        // A failed probe opens the circuit for another round
+        assertThrows(IllegalStateException.class, () -> guard.call(AICallGuardTest::fail));
+        assertEquals(CircuitState.OPEN, guard.stats().circuit());
+
+        Thread.sleep(80);
+        assertEquals("recovered", guard.call(() -> "recovered"));
+        assertEquals(CircuitState.CLOSED, guard.stats().circuit());
+    }
+
+    @Test
+    public void callStream_blockingPoolFull_streamRunsOnCallingThread() throws Exception {
+        guard = new AICallGuard(1, 1, 5000, 5000, 3, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread running = new Thread(() -> guard.call(() -> {
+            started.countDown();
+            release.await();
+            return "first";
+        }));
+        Thread queued = new Thread(() -> guard.call(() -> "second"));
+        running.start();
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        queued.start();
+        while (guard.stats().queuedCalls() == 0) {
+            Thread.sleep(5);
+        }
+
+        List<String> chunks = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+        boolean complete = guard.callStream(chunks::add,
+            sink -> Thread.currentThread() == caller && sink.test("a") && sink.test("b"));
+
+        assertTrue(complete);
+        assertEquals(List.of("a", "b"), chunks);
+        assertEquals(0, guard.stats().rejected());
+        assertEquals(1, guard.stats().succeeded());
+        release.countDown();
+        running.join(2000);
+        queued.join(2000);
+    }
+
+    @Test
+    public void callStream_slowProvider_stopsAndTimesOut() {
+        guard = new AICallGuard(2, 2, 1000, 50, 3, 1000);
+        List<String> chunks = new ArrayList<>();
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> guard.callStream(chunks::add, sink -> {
+                sink.test("first");
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // The deadline interrupts a provider stuck waiting for the next chunk
+                }
+                return sink.test("late");
+            }));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, exception.getStatusCode());
+        assertEquals(List.of("first"), chunks);
+        assertEquals(1, guard.stats().timedOut());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void call_lateFailureWhileProbing_leavesProbeInCharge() throws Exception {
+        guard = new AICallGuard(4, 4, 5000, 5000, 1, 50);
+        CountDownLatch lateStarted = new CountDownLatch(1);
+        CountDownLatch probeStarted = new CountDownLatch(1);
+        CountDownLatch releaseProbe = new CountDownLatch(1);
+        // Starts while the circuit is closed and fails only once the probe is running
+        Thread late = new Thread(() -> assertThrows(IllegalStateException.class, () -> guard.call(() -> {
+            lateStarted.countDown();
+            release.await();
+            return fail();
+        })));
+        late.start();
+        assertTrue(lateStarted.await(2, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> guard.call(AICallGuardTest::fail));
+        assertEquals(CircuitState.OPEN, guard.stats().circuit());
+
+        Thread.sleep(80);
+        Thread probe = new Thread(() -> guard.call(() -> {
+            probeStarted.countDown();
+            releaseProbe.await();
+            return "recovered";
+        }));
+        probe.start();
+        assertTrue(probeStarted.await(2, TimeUnit.SECONDS));
+        release.countDown();
+        late.join(2000);
+
+        assertEquals(CircuitState.HALF_OPEN, guard.stats().circuit());
+        AtomicInteger reached = new AtomicInteger();
+        assertThrows(ResponseStatusException.class, () -> guard.call(reached::incrementAndGet));
+        assertEquals(0, reached.get());
+
+        releaseProbe.countDown();
+        probe.join(2000);
+        assertEquals(CircuitState.CLOSED, guard.stats().circuit());
+    }
+
+    @Test
+    public void call_providerRefusal_notCountedAsFailure() {
+        guard = new AICallGuard(2, 2, 1000, 1000, 1, 60000);
+
+        assertThrows(ResponseStatusException.class, () -> guard.call(() -> {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "AI features are disabled");
+        }));
+
+        assertEquals(CircuitState.CLOSED, guard.stats().circuit());
+        assertEquals(0, guard.stats().failed());
+    }
+}
@@ -0,0 +1,62 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import tracko.exceptions.RateLimitedException;
+import tracko.service.AIRateLimiterService;
+
+public class AIRateLimiterServiceTest {
+
+    @Test
+    public void acquire_userOverLimit_tooManyRequestsWithRetryAfter() {
+        AIRateLimiterService limiter = new AIRateLimiterService(100, 2, 100);
+        limiter.acquire("user-1", null);
+        limiter.acquire("user-1", null);
+
+        RateLimitedException exception = assertThrows(RateLimitedException.class,
+            () -> limiter.acquire("user-1", null));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        // Two per minute refill one token every 30 seconds
+        long retryAfter = Long.parseLong(exception.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter > 0 && retryAfter <= 30);
+    }
+
+    @Test
+    public void acquire_usersHaveSeparateBuckets() {
+        AIRateLimiterService limiter = new AIRateLimiterService(100, 1, 100);
+        limiter.acquire("user-1", null);
+
+        assertDoesNotThrow(() -> limiter.acquire("user-2", null));
+    }
+
+    @Test
+    public void acquire_projectOverLimit_givesUserTokenBack() {
+        AIRateLimiterService limiter = new AIRateLimiterService(100, 2, 1);
+        limiter.acquire("user-1", "project-1");
+
+        assertThrows(RateLimitedException.class, () -> limiter.acquire("user-1", "project-1"));
+
+        // The refused call did not use up the user's second token
+        assertDoesNotThrow(() -> limiter.acquire("user-1", "project-2"));
+    }
+
+    @Test
+    public void acquire_globalCapSharedByAllUsers() {
+        AIRateLimiterService limiter = new AIRateLimiterService(2, 5, 5);
+        limiter.acquire("user-1", null);
+        limiter.acquire("user-2", null);
+
+        RateLimitedException exception = assertThrows(RateLimitedException.class,
+            () -> limiter.acquire("user-3", null));
+
+        assertTrue(exception.getReason().startsWith("The AI service is busy"));
+    }
+}
@@ -1,30 +1,49 @@
 package service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.google.genai.Client;
 import com.google.genai.Models;
+import com.google.genai.ResponseStream;
 import com.google.genai.types.GenerateContentResponse;
 
-import tracko.config.AIConfig;
+import tracko.service.AICallGuard;
+import tracko.service.AIProvider;
 import tracko.service.AIService;
+import tracko.service.GeminiAIProvider;
 
 public class AIServiceTest {
 
     private AIService aiService;
-    private AIConfig aiConfig;
     private Client genAiClient;
     private Models mockModels;
 
@@ -34,18 +53,16 @@ public class AIServiceTest {
     @BeforeEach
     public void setup() throws Exception {
         // Create mocks
-        aiConfig = mock(AIConfig.class);
         genAiClient = mock(Client.class);
         mockModels = mock(Models.class);
         
-        when(aiConfig.getModel()).thenReturn(MODEL);
-        
         // Use reflection to set the final models field
         java.lang.reflect.Field modelsField = Client.class.getDeclaredField("models");
         modelsField.setAccessible(true);
         modelsField.set(genAiClient, mockModels);
 
-        aiService = new AIService(genAiClient, aiConfig);
+        aiService = new AIService(new GeminiAIProvider(genAiClient, MODEL), new AICallGuard(4, 4, 30000, 30000, 5, 30000),
+            true, 100, 1_000_000, 60);
     }
 
     @Test
@@ -159,4 +176,220 @@ public class AIServiceTest {
         assertTrue(capturedPrompt.contains("Original idea"));
         assertTrue(capturedPrompt.contains("Make it eco-friendly"));
     }
+
+    @Test
+    public void refineIdea_sameText_answeredFromCache() {
+        GenerateContentResponse mockResponse = mock(GenerateContentResponse.class);
+        when(mockResponse.text()).thenReturn("Refined idea");
+        when(mockModels.generateContent(eq(MODEL), any(String.class), eq(null)))
+                .thenReturn(mockResponse);
+
+        aiService.refineIdea("Raw idea");
+        String cached = aiService.refineIdea("  Raw   idea ");
+
+        assertEquals("Refined idea", cached);
+        verify(mockModels, times(1)).generateContent(eq(MODEL), any(String.class), eq(null));
+        assertEquals(1, aiService.getResponseCacheStats().hits());
+        assertEquals(0.5, aiService.getResponseCacheStats().hitRate());
+    }
+
+    @Test
+    public void refineIdea_bypassCache_asksModelAgain() {
+        GenerateContentResponse first = mock(GenerateContentResponse.class);
+        when(first.text()).thenReturn("First answer");
+        GenerateContentResponse second = mock(GenerateContentResponse.class);
+        when(second.text()).thenReturn("Second answer");
+        when(mockModels.generateContent(eq(MODEL), any(String.class), eq(null)))
+                .thenReturn(first, second);
+
+        aiService.refineIdea("Raw idea");
+        String fresh = aiService.refineIdea("Raw idea", true, () -> { });
+        String cached = aiService.refineIdea("Raw idea");
+
+        assertEquals("Second answer", fresh);
+        assertEquals("Second answer", cached);
+        verify(mockModels, times(2)).generateContent(eq(MODEL), any(String.class), eq(null));
+    }
+
+    @Test
+    public void refineIdea_cacheHit_takesNoToken() {
+        GenerateContentResponse mockResponse = mock(GenerateContentResponse.class);
+        when(mockResponse.text()).thenReturn("Refined idea");
+        when(mockModels.generateContent(eq(MODEL), any(String.class), eq(null)))
+                .thenReturn(mockResponse);
+        AtomicInteger permits = new AtomicInteger();
+
+        aiService.refineIdea("Raw idea", false, permits::incrementAndGet);
+        aiService.refineIdea("Raw idea", false, permits::incrementAndGet);
+
+        assertEquals(1, permits.get());
+    }
+
+    @Test
+    public void combineIdeas_differentText_notShared() {
+        GenerateContentResponse mockResponse = mock(GenerateContentResponse.class);
+        when(mockResponse.text()).thenReturn("Combined idea");
+        when(mockModels.generateContent(eq(MODEL), any(String.class), eq(null)))
+                .thenReturn(mockResponse);
+
+        aiService.combineIdeas("Idea 1", "Idea 2");
+        aiService.combineIdeas("Idea 1", "Idea 3");
+
+        verify(mockModels, times(2)).generateContent(eq(MODEL), any(String.class), eq(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ResponseStream<GenerateContentResponse> streamOf(String... chunks) throws Exception {
+        List<GenerateContentResponse> responses = new ArrayList<>();
+        for (String chunk : chunks) {
+            GenerateContentResponse response = mock(GenerateContentResponse.class);
+            when(response.text()).thenReturn(chunk);
+            responses.add(response);
+        }
+        ResponseStream<GenerateContentResponse> stream = mock(ResponseStream.class);
+        when(stream.iterator()).thenReturn(responses.iterator());
+        return stream;
+    }
+
+    @Test
+    public void streamRefineIdea_forwardsChunksAndCachesAnswer() throws Exception {
+        ResponseStream<GenerateContentResponse> stream = streamOf("Refined ", "idea");
+        when(mockModels.generateContentStream(eq(MODEL), any(String.class), eq(null))).thenReturn(stream);
+
+        AtomicInteger permits = new AtomicInteger();
+        List<String> chunks = new ArrayList<>();
+        aiService.streamRefineIdea("Raw idea", false, permits::incrementAndGet).accept(chunks::add);
+
+        assertEquals(List.of("Refined ", "idea"), chunks);
+        verify(stream).close();
+
+        // A finished stream answers the blocking variant too
+        assertEquals("Refined idea", aiService.refineIdea("Raw idea"));
+        verify(mockModels, never()).generateContent(any(String.class), any(String.class), any());
+
+        // and a cached answer is streamed without taking a token
+        List<String> replayed = new ArrayList<>();
+        aiService.streamRefineIdea("Raw idea", false, permits::incrementAndGet).accept(replayed::add);
+        assertEquals(List.of("Refined idea"), replayed);
+        assertEquals(1, permits.get());
+        verify(mockModels, times(1)).generateContentStream(eq(MODEL), any(String.class), eq(null));
+    }
+
+    @Test
+    public void streamContent_consumerStops_closesStream() throws Exception {
+        ResponseStream<GenerateContentResponse> stream = streamOf("one", "two", "three");
+        when(mockModels.generateContentStream(eq(MODEL), eq(TEST_PROMPT), eq(null))).thenReturn(stream);
+
+        List<String> chunks = new ArrayList<>();
+        boolean complete = aiService.streamContent(TEST_PROMPT, chunk -> {
+            chunks.add(chunk);
+            return false;
+        });
+
+        assertFalse(complete);
+        assertEquals(List.of("one"), chunks);
+        verify(stream).close();
+    }
+
+    @Test
+    public void generateContent_identicalPromptsInFlight_shareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GenerateContentResponse mockResponse = mock(GenerateContentResponse.class);
+        when(mockResponse.text()).thenReturn("Shared answer");
+        when(mockModels.generateContent(eq(MODEL), eq(TEST_PROMPT), eq(null))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return mockResponse;
+        });
+
+        AtomicInteger permits = new AtomicInteger();
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = callers.submit(() -> aiService.generateContent(TEST_PROMPT, permits::incrementAndGet));
+            verify(mockModels, timeout(2000)).generateContent(eq(MODEL), eq(TEST_PROMPT), eq(null));
+            Future<String> second = callers.submit(() -> aiService.generateContent(TEST_PROMPT, permits::incrementAndGet));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals("Shared answer", first.get(5, TimeUnit.SECONDS));
+            assertEquals("Shared answer", second.get(5, TimeUnit.SECONDS));
+            verify(mockModels, times(1)).generateContent(eq(MODEL), eq(TEST_PROMPT), eq(null));
+            assertEquals(1, permits.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void generateContent_sharedCallFails_allWaitersFailAndNextCallRetries() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GenerateContentResponse mockResponse = mock(GenerateContentResponse.class);
+        when(mockResponse.text()).thenReturn("Second try");
+        when(mockModels.generateContent(eq(MODEL), eq(TEST_PROMPT), eq(null)))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                throw new RuntimeException("API Error");
+            })
+            .thenReturn(mockResponse);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = callers.submit(() -> aiService.generateContent(TEST_PROMPT));
+            verify(mockModels, timeout(2000)).generateContent(eq(MODEL), eq(TEST_PROMPT), eq(null));
+            Future<String> second = callers.submit(() -> aiService.generateContent(TEST_PROMPT));
+            Thread.sleep(200);
+            release.countDown();
+
+            Exception firstFailure = assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+            Exception secondFailure = assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertSame(firstFailure.getCause(), secondFailure.getCause());
+            assertTrue(firstFailure.getCause().getMessage().contains("An error occurred while generating content"));
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals("Second try", aiService.generateContent(TEST_PROMPT));
+        verify(mockModels, times(2)).generateContent(eq(MODEL), eq(TEST_PROMPT), eq(null));
+    }
+
+    @Test
+    public void generateContent_sharedCallThrowsError_waitersFailInsteadOfHanging() throws Exception {
+        // The guard wraps provider Errors, so fail the guard itself, on the leader's thread
+        AICallGuard failingGuard = mock(AICallGuard.class);
+        AIService guarded = new AIService(new GeminiAIProvider(genAiClient, MODEL), failingGuard,
+            true, 100, 1_000_000, 60);
+        CountDownLatch release = new CountDownLatch(1);
+        when(failingGuard.call(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = callers.submit(() -> guarded.generateContent(TEST_PROMPT));
+            verify(failingGuard, timeout(2000)).call(any());
+            Future<String> second = callers.submit(() -> guarded.generateContent(TEST_PROMPT));
+            Thread.sleep(200);
+            release.countDown();
+
+            Exception firstFailure = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            Exception secondFailure = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertTrue(firstFailure.getCause() instanceof StackOverflowError);
+            assertSame(firstFailure.getCause(), secondFailure.getCause());
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(failingGuard, times(1)).call(any());
+    }
+
+    @Test
+    public void generateContent_disabledProvider_serviceUnavailable() {
+        AIService disabled = new AIService(AIProvider.disabled(), new AICallGuard(4, 4, 30000, 30000, 5, 30000),
+            true, 100, 1_000_000, 60);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> disabled.refineIdea("Raw idea"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+    }
 }
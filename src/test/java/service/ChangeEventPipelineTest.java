@@ -0,0 +1,220 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tracko.constant.ChangeType;
+import tracko.models.change.Change;
+import tracko.repository.ChangeRepository;
+import tracko.repository.ContributionRollupRepository;
+import tracko.service.ChangeEventPipeline;
+
+public class ChangeEventPipelineTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private ChangeRepository changeRepository;
+    private ContributionRollupRepository rollupRepository;
+    private SimpMessagingTemplate messagingTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        changeRepository = mock(ChangeRepository.class);
+        rollupRepository = mock(ContributionRollupRepository.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+    }
+
+    private ChangeEventPipeline pipeline(int capacity, int batchSize, String spillFile) {
+        return new ChangeEventPipeline(changeRepository, rollupRepository, messagingTemplate, objectMapper,
+            capacity, batchSize, spillFile, 3);
+    }
+
+    private Change change(String projectId, ChangeType type) {
+        Change change = new Change();
+        change.setProjectId(projectId);
+        change.setOwnerId("user-1");
+        change.setChangeType(type);
+        change.setCreatedAt(LocalDateTime.now());
+        return change;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void drain_insertsInBatchesAndBroadcastsInOrder() {
+        ChangeEventPipeline pipeline = pipeline(100, 2, "");
+        Change first = change("p1", ChangeType.ADDED_IDEA);
+        Change second = change("p1", ChangeType.MODIFIED_IDEA);
+        Change third = change("p1", ChangeType.CLOSED_IDEA);
+        pipeline.submit(first, null);
+        pipeline.submit(second, null);
+        pipeline.submit(third, null);
+
+        pipeline.drain();
+
+        ArgumentCaptor<List<Change>> batches = ArgumentCaptor.forClass(List.class);
+        verify(changeRepository, times(2)).storeAll(batches.capture());
+        assertEquals(List.of(first, second), batches.getAllValues().get(0));
+        assertEquals(List.of(third), batches.getAllValues().get(1));
+
+        InOrder order = inOrder(messagingTemplate);
+        order.verify(messagingTemplate).convertAndSend("/topic/projects/p1/changes", first);
+        order.verify(messagingTemplate).convertAndSend("/topic/projects/p1/changes", second);
+        order.verify(messagingTemplate).convertAndSend("/topic/projects/p1/changes", third);
+        assertEquals(0, pipeline.pending());
+    }
+
+    @Test
+    public void drain_writeFails_keepsBatchForNextTick() {
+        ChangeEventPipeline pipeline = pipeline(100, 10, "");
+        pipeline.submit(change("p1", ChangeType.ADDED_IDEA), null);
+        doThrow(new RuntimeException("down")).when(changeRepository).storeAll(anyList());
+
+        pipeline.drain();
+
+        assertEquals(1, pipeline.pending());
+        verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void writeNow_afterFailedBatch_writesThatBatchFirst() {
+        ChangeEventPipeline pipeline = pipeline(100, 10, "");
+        Change failed = change("p1", ChangeType.ADDED_IDEA);
+        Change direct = change("p1", ChangeType.UPVOTE);
+        pipeline.submit(failed, null);
+        doThrow(new RuntimeException("down")).doReturn(List.of()).when(changeRepository).storeAll(anyList());
+        pipeline.drain();
+
+        pipeline.writeNow(direct, null);
+
+        ArgumentCaptor<List<Change>> batches = ArgumentCaptor.forClass(List.class);
+        verify(changeRepository, times(3)).storeAll(batches.capture());
+        assertEquals(List.of(failed), batches.getAllValues().get(1));
+        assertEquals(List.of(direct), batches.getAllValues().get(2));
+        assertEquals(0, pipeline.pending());
+    }
+
+    @Test
+    public void writeNow_failedBatchStillFailing_queuesBehindIt() {
+        ChangeEventPipeline pipeline = pipeline(100, 10, "");
+        Change failed = change("p1", ChangeType.ADDED_IDEA);
+        Change direct = change("p1", ChangeType.UPVOTE);
+        pipeline.submit(failed, null);
+        doThrow(new RuntimeException("down")).when(changeRepository).storeAll(anyList());
+        pipeline.drain();
+
+        pipeline.writeNow(direct, null);
+
+        verify(changeRepository, times(2)).storeAll(List.of(failed));
+        verify(changeRepository, never()).storeAll(List.of(direct));
+        assertEquals(2, pipeline.pending());
+    }
+
+    @Test
+    public void drain_broadcastFails_doesNotRetryStoredBatch() {
+        ChangeEventPipeline pipeline = pipeline(100, 10, "");
+        Change first = change("p1", ChangeType.ADDED_IDEA);
+        Change second = change("p1", ChangeType.UPVOTE);
+        pipeline.submit(first, null);
+        pipeline.submit(second, null);
+        doThrow(new RuntimeException("broker down")).when(messagingTemplate)
+            .convertAndSend("/topic/projects/p1/changes", first);
+
+        pipeline.drain();
+        pipeline.drain();
+
+        verify(changeRepository, times(1)).storeAll(anyList());
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/projects/p1/changes", second);
+        assertEquals(0, pipeline.pending());
+    }
+
+    @Test
+    public void drain_writeKeepsFailing_dropsBatchAfterMaxAttempts() {
+        ChangeEventPipeline pipeline = pipeline(100, 10, "");
+        pipeline.submit(change("p1", ChangeType.ADDED_IDEA), null);
+        doThrow(new RuntimeException("down")).when(changeRepository).storeAll(anyList());
+
+        pipeline.drain();
+        pipeline.drain();
+        assertEquals(1, pipeline.pending());
+        pipeline.drain();
+
+        verify(changeRepository, times(3)).storeAll(anyList());
+        assertEquals(0, pipeline.pending());
+        pipeline.drain();
+        verify(changeRepository, times(3)).storeAll(anyList());
+    }
+
+    @Test
+    public void submit_queueFull_writesSynchronously() {
+        ChangeEventPipeline pipeline = pipeline(1, 10, "");
+        pipeline.submit(change("p1", ChangeType.ADDED_IDEA), null);
+        pipeline.submit(change("p1", ChangeType.UPVOTE), null);
+
+        verify(changeRepository, times(1)).storeAll(anyList());
+        assertEquals(1, pipeline.pending());
+    }
+
+    @Test
+    public void discardProject_dropsOnlyThatProject() {
+        ChangeEventPipeline pipeline = pipeline(100, 10, "");
+        pipeline.submit(change("p1", ChangeType.ADDED_IDEA), null);
+        pipeline.submit(change("p2", ChangeType.ADDED_IDEA), null);
+
+        pipeline.discardProject("p1");
+
+        assertEquals(1, pipeline.pending());
+    }
+
+    @Test
+    public void shutdown_writeFails_spillsAndReplaysOnStart() throws Exception {
+        Path spill = tempDir.resolve("changes.spill");
+        ChangeEventPipeline pipeline = pipeline(100, 10, spill.toString());
+        pipeline.submit(change("p1", ChangeType.ADDED_IDEA), null);
+        pipeline.submit(change(null, ChangeType.SENT_FRIEND_REQUEST), "friend-1");
+        doThrow(new RuntimeException("down")).when(changeRepository).storeAll(anyList());
+
+        pipeline.shutdown();
+
+        assertTrue(Files.exists(spill));
+        assertEquals(2, Files.readAllLines(spill).size());
+
+        changeRepository = mock(ChangeRepository.class);
+        ChangeEventPipeline restarted = pipeline(100, 10, spill.toString());
+        restarted.replaySpill();
+        assertFalse(Files.exists(spill));
+        assertEquals(2, restarted.pending());
+
+        restarted.drain();
+
+        verify(changeRepository, times(1)).storeAll(anyList());
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/queue/user-friend-1-notifications"), any(Change.class));
+    }
+}
@@ -1,33 +1,49 @@
 package service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import config.MongoTestConfig;
 import tracko.repository.ChangeRepository;
+import tracko.repository.ContributionRollupRepository;
 import tracko.constant.ChangeType;
 import tracko.models.change.Change;
+import tracko.models.change.ChangeFeed;
 import tracko.models.change.ChangeRegister;
+import tracko.models.change.ContributionRollup;
 import tracko.models.project.Project;
+import tracko.models.project.ProjectHeader;
+import tracko.service.ChangeEventPipeline;
 import tracko.service.ChangeService;
 import tracko.service.ProjectAuthorizationService;
 import tracko.service.ProjectService;
@@ -42,6 +58,8 @@ public class ChangeServiceTest {
 
     private ChangeService changeService;
 
+    private ChangeEventPipeline changeEventPipeline;
+
     @MockBean
     private ChangeRepository changeRepository;
 
@@ -57,6 +75,9 @@ public class ChangeServiceTest {
     @MockBean
     private SimpMessagingTemplate messagingTemplate;
 
+    @MockBean
+    private ContributionRollupRepository rollupRepository;
+
     private final String VALID_AUTH_HEADER = "Bearer valid-token";
     private final String PROJECT_ID = "project-123";
     private final String USER_ID = "user-123";
@@ -64,14 +85,17 @@ public class ChangeServiceTest {
 
     @BeforeEach
     public void setup() {
-        changeService = new ChangeService(changeRepository, projectService, userService, projectAuthorizationService, messagingTemplate);
+        changeEventPipeline = new ChangeEventPipeline(changeRepository, rollupRepository, messagingTemplate,
+            new ObjectMapper().findAndRegisterModules(), 100, 10, "", 5);
+        changeService = new ChangeService(changeRepository, userService, projectAuthorizationService,
+            rollupRepository, changeEventPipeline, 5000);
 
         when(userService.getUserIdByToken(VALID_AUTH_HEADER)).thenReturn(USER_ID);
         
         Project project = new Project();
         project.setProjectId(PROJECT_ID);
         project.setOwnerId(USER_ID);
-        when(projectAuthorizationService.authenticateProject(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(project);
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(ProjectHeader.of(project));
     }
 
     @Test
@@ -80,14 +104,14 @@ public class ChangeServiceTest {
         Change change2 = createTestChange("change-2", ChangeType.CHANGED_PROJECT_SETTINGS);
         List<Change> changes = Arrays.asList(change1, change2);
         
-        when(changeRepository.findByProjectId(PROJECT_ID)).thenReturn(changes);
+        when(changeRepository.findProjectHistory(PROJECT_ID)).thenReturn(changes);
 
         List<Change> result = changeService.getChangesByProject(PROJECT_ID, VALID_AUTH_HEADER);
 
         assertEquals(2, result.size());
         assertEquals("change-1", result.get(0).getChangeId());
         assertEquals("change-2", result.get(1).getChangeId());
-        verify(projectAuthorizationService, times(1)).authenticateProject(PROJECT_ID, VALID_AUTH_HEADER);
+        verify(projectAuthorizationService, times(1)).authorizeMember(PROJECT_ID, VALID_AUTH_HEADER);
     }
 
     @Test
@@ -95,9 +119,9 @@ public class ChangeServiceTest {
         ChangeRegister changeRegister = new ChangeRegister();
         changeRegister.setChangeType(ChangeType.ADDED_IDEA);
     
-        when(changeRepository.save(any(Change.class))).thenAnswer(invocation -> {
-            Change input = invocation.getArgument(0);
-            input.setChangeId("generated-change-id");
+        when(changeRepository.storeAll(anyList())).thenAnswer(invocation -> {
+            List<Change> input = invocation.getArgument(0);
+            input.forEach(change -> change.setChangeId("generated-change-id"));
             return input;
         });
     
@@ -111,8 +135,9 @@ public class ChangeServiceTest {
         assertEquals(USER_ID, result.getOwnerId());
         assertNotNull(result.getCreatedAt());
     
-        verify(projectAuthorizationService, times(1)).authenticateProject(PROJECT_ID, VALID_AUTH_HEADER);
-        verify(changeRepository, times(1)).save(any(Change.class));
+        verify(projectAuthorizationService, times(1)).authorizeMember(PROJECT_ID, VALID_AUTH_HEADER);
+        verify(changeRepository, times(1)).storeAll(anyList());
+        verify(rollupRepository, times(1)).incrementAll(anyList());
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/changes"),
             any(Change.class)
@@ -124,9 +149,9 @@ public class ChangeServiceTest {
         ChangeRegister changeRegister = new ChangeRegister();
         changeRegister.setChangeType(ChangeType.SENT_FRIEND_REQUEST);
         
-        when(changeRepository.save(any(Change.class))).thenAnswer(invocation -> {
-            Change input = invocation.getArgument(0);
-            input.setChangeId("generated-change-id");
+        when(changeRepository.storeAll(anyList())).thenAnswer(invocation -> {
+            List<Change> input = invocation.getArgument(0);
+            input.forEach(change -> change.setChangeId("generated-change-id"));
             return input;
         });
         
@@ -138,27 +163,112 @@ public class ChangeServiceTest {
         assertEquals(USER_ID, result.getOwnerId());
         assertNotNull(result.getCreatedAt());
         
-        verify(changeRepository, times(1)).save(any(Change.class));
+        verify(changeRepository, times(1)).storeAll(anyList());
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/queue/user-" + FRIEND_ID + "-notifications"),
             any(Change.class)
         );
     }
     
+    @Test
+    public void getChangeFeed_afterSeq_returnsPageAndCursor() {
+        Change change1 = createTestChange("change-1", ChangeType.ADDED_IDEA);
+        change1.setSeq(6);
+        Change change2 = createTestChange("change-2", ChangeType.UPVOTE);
+        change2.setSeq(7);
+        Change change3 = createTestChange("change-3", ChangeType.DOWNVOTE);
+        change3.setSeq(8);
+        when(changeRepository.findProjectFeed(PROJECT_ID, 5L, 3)).thenReturn(new ArrayList<>(List.of(change1, change2, change3)));
+
+        ChangeFeed feed = changeService.getChangeFeed(PROJECT_ID, "5", 2, VALID_AUTH_HEADER);
+
+        assertEquals(2, feed.changes().size());
+        assertEquals(7L, feed.nextCursor());
+        assertTrue(feed.hasMore());
+        verify(projectAuthorizationService, times(1)).authorizeMember(PROJECT_ID, VALID_AUTH_HEADER);
+    }
+
+    @Test
+    public void getChangeFeed_recentGap_stopsBeforeIt() {
+        Change change1 = createTestChange("change-1", ChangeType.ADDED_IDEA);
+        change1.setSeq(6);
+        // 7 and 8 are reserved by a write that is not visible yet
+        Change change2 = createTestChange("change-2", ChangeType.UPVOTE);
+        change2.setSeq(9);
+        when(changeRepository.findProjectFeed(PROJECT_ID, 5L, 11)).thenReturn(new ArrayList<>(List.of(change1, change2)));
+
+        ChangeFeed feed = changeService.getChangeFeed(PROJECT_ID, "5", 10, VALID_AUTH_HEADER);
+
+        assertEquals(List.of(change1), feed.changes());
+        assertEquals(6L, feed.nextCursor());
+        assertFalse(feed.hasMore());
+    }
+
+    @Test
+    public void getChangeFeed_oldGap_skipsLostNumbers() {
+        Change change1 = createTestChange("change-1", ChangeType.ADDED_IDEA);
+        change1.setSeq(6);
+        change1.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+        Change change2 = createTestChange("change-2", ChangeType.UPVOTE);
+        change2.setSeq(9);
+        change2.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+        when(changeRepository.findProjectFeed(PROJECT_ID, 0L, 11)).thenReturn(new ArrayList<>(List.of(change1, change2)));
+
+        ChangeFeed feed = changeService.getChangeFeed(PROJECT_ID, null, 10, VALID_AUTH_HEADER);
+
+        assertEquals(List.of(change1, change2), feed.changes());
+        assertEquals(9L, feed.nextCursor());
+    }
+
+    @Test
+    public void getChangeFeed_afterChangeId_resolvesItsSeq() {
+        when(changeRepository.findSeq(PROJECT_ID, "change-1")).thenReturn(Optional.of(12L));
+        when(changeRepository.findProjectFeed(PROJECT_ID, 12L, 101)).thenReturn(new ArrayList<>());
+
+        ChangeFeed feed = changeService.getChangeFeed(PROJECT_ID, "change-1", null, VALID_AUTH_HEADER);
+
+        assertTrue(feed.changes().isEmpty());
+        assertEquals(12L, feed.nextCursor());
+        assertFalse(feed.hasMore());
+    }
+
+    @Test
+    public void getChangeFeed_allDigitObjectId_isResolvedAsChangeId() {
+        String changeId = "507011223344556677889900";
+        when(changeRepository.findSeq(PROJECT_ID, changeId)).thenReturn(Optional.of(3L));
+        when(changeRepository.findProjectFeed(PROJECT_ID, 3L, 101)).thenReturn(new ArrayList<>());
+
+        ChangeFeed feed = changeService.getChangeFeed(PROJECT_ID, changeId, null, VALID_AUTH_HEADER);
+
+        assertEquals(3L, feed.nextCursor());
+        verify(changeRepository, times(1)).findSeq(PROJECT_ID, changeId);
+    }
+
+    @Test
+    public void getChangeFeed_unknownChangeId_badRequest() {
+        when(changeRepository.findSeq(PROJECT_ID, "missing")).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> changeService.getChangeFeed(PROJECT_ID, "missing", 10, VALID_AUTH_HEADER));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
     @Test
     public void markChange_project() {
         ChangeType changeType = ChangeType.ADDED_IDEA;
         
-        when(changeRepository.save(any(Change.class))).thenAnswer(invocation -> {
-            Change input = invocation.getArgument(0);
-            input.setChangeId("generated-change-id");
-            return input;
-        });
-        
         changeService.markChange(PROJECT_ID, changeType, VALID_AUTH_HEADER, false, null);
-        
-        verify(projectAuthorizationService, times(1)).authenticateProject(PROJECT_ID, VALID_AUTH_HEADER);
-        verify(changeRepository, times(1)).save(any(Change.class));
+
+        // Nothing is written on the caller's thread
+        verify(changeRepository, never()).storeAll(anyList());
+        assertEquals(1, changeEventPipeline.pending());
+
+        changeEventPipeline.drain();
+
+        verify(projectAuthorizationService, never()).authorizeMember(PROJECT_ID, VALID_AUTH_HEADER);
+        verify(changeRepository, times(1)).storeAll(anyList());
+        verify(rollupRepository, times(1)).incrementAll(anyList());
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/changes"),
             any(Change.class)
@@ -169,15 +279,10 @@ public class ChangeServiceTest {
     public void markChange_Comment() {
         ChangeType changeType = ChangeType.SENT_FRIEND_REQUEST;
         
-        when(changeRepository.save(any(Change.class))).thenAnswer(invocation -> {
-            Change input = invocation.getArgument(0);
-            input.setChangeId("generated-change-id");
-            return input;
-        });
-        
         changeService.markChange(USER_ID, changeType, VALID_AUTH_HEADER, true, FRIEND_ID);
+        changeEventPipeline.drain();
         
-        verify(changeRepository, times(1)).save(any(Change.class));
+        verify(changeRepository, times(1)).storeAll(anyList());
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/queue/user-" + FRIEND_ID + "-notifications"),
             any(Change.class)
@@ -188,89 +293,71 @@ public class ChangeServiceTest {
     public void deleteChangesByProjectId() {
         changeService.deleteChangesByProjectId(PROJECT_ID);
         
-        verify(changeRepository, times(1)).deleteByProjectId(PROJECT_ID);
+        verify(changeRepository, times(1)).deleteProjectHistory(PROJECT_ID);
+        verify(rollupRepository, times(1)).deleteByProjectId(PROJECT_ID);
     }
     
     @Test
     public void getContributionsByDate_success() {
-        LocalDateTime today = LocalDateTime.now();
-        LocalDateTime yesterday = today.minusDays(1);
-        
-        Change change1 = createTestChange("change-1", ChangeType.ADDED_IDEA);
-        change1.setCreatedAt(today);
-        
-        Change change2 = createTestChange("change-2", ChangeType.MODIFIED_IDEA);
-        change2.setCreatedAt(today);
-        
-        Change change3 = createTestChange("change-3", ChangeType.UPVOTE);
-        change3.setCreatedAt(yesterday);
-        
-        List<Change> changes = Arrays.asList(change1, change2, change3);
-        
-        when(changeRepository.findByProjectId(PROJECT_ID)).thenReturn(changes);
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+
+        when(rollupRepository.findByProjectId(PROJECT_ID)).thenReturn(Arrays.asList(
+            createTestRollup(USER_ID, today, Map.of(ChangeType.ADDED_IDEA, 1L, ChangeType.MODIFIED_IDEA, 1L)),
+            createTestRollup("other-user", yesterday, Map.of(ChangeType.UPVOTE, 1L))
+        ));
         
         Map<LocalDate, Long> result = changeService.getContributionsByDate(PROJECT_ID, VALID_AUTH_HEADER);
         
         assertEquals(2, result.size());
-        assertEquals(2L, result.get(today.toLocalDate()));
-        assertEquals(1L, result.get(yesterday.toLocalDate()));
+        assertEquals(2L, result.get(today));
+        assertEquals(1L, result.get(yesterday));
+        verify(changeRepository, never()).findProjectHistory(PROJECT_ID);
     }
     
     @Test
     public void getDailyContributions_success() {
-        LocalDateTime today = LocalDateTime.now();
-        LocalDateTime yesterday = today.minusDays(1);
-        LocalDateTime twoDaysAgo = today.minusDays(2);
-        
-        Change change1 = createTestChange("change-1", ChangeType.ADDED_IDEA);
-        change1.setCreatedAt(today);
-        
-        Change change2 = createTestChange("change-2", ChangeType.MODIFIED_IDEA);
-        change2.setCreatedAt(today);
-        
-        Change change3 = createTestChange("change-3", ChangeType.UPVOTE);
-        change3.setCreatedAt(yesterday);
-        
-        Change change4 = createTestChange("change-4", ChangeType.DOWNVOTE);
-        change4.setCreatedAt(twoDaysAgo);
-        
-        List<Change> changes = Arrays.asList(change1, change2, change3, change4);
-        
-        when(changeRepository.findByProjectId(PROJECT_ID)).thenReturn(changes);
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+
+        LocalDate firstDay = today.minusDays(2);
+
+        when(rollupRepository.findByProjectIdAndDayGreaterThanEqual(PROJECT_ID, yesterday.toString())).thenReturn(Arrays.asList(
+            createTestRollup(USER_ID, today, Map.of(ChangeType.ADDED_IDEA, 1L, ChangeType.MODIFIED_IDEA, 1L)),
+            createTestRollup(USER_ID, yesterday, Map.of(ChangeType.UPVOTE, 1L))
+        ));
+        // The window still starts at now - 2 days, so that day counts only its changes after this time
+        when(changeRepository.countProjectChanges(eq(PROJECT_ID), any(LocalDateTime.class), eq(yesterday.atStartOfDay())))
+            .thenReturn(4L);
         
         List<DailyContribution> result = changeService.getDailyContributions(PROJECT_ID, VALID_AUTH_HEADER, 2);
         
-        assertEquals(2, result.size());
-        assertEquals(today.toLocalDate(), result.get(1).date());
-        assertEquals(2L, result.get(1).count());
-        assertEquals(yesterday.toLocalDate(), result.get(0).date());
-        assertEquals(1L, result.get(0).count());
+        assertEquals(3, result.size());
+        assertEquals(firstDay, result.get(0).date());
+        assertEquals(4L, result.get(0).count());
+        assertEquals(yesterday, result.get(1).date());
+        assertEquals(1L, result.get(1).count());
+        assertEquals(today, result.get(2).date());
+        assertEquals(2L, result.get(2).count());
     }
     
     @Test
     public void getAnalytics_success() {
-        LocalDateTime today = LocalDateTime.now();
-        LocalDateTime yesterday = today.minusDays(1);
-        
-        Change change1 = createTestChange("change-1", ChangeType.ADDED_IDEA);
-        change1.setCreatedAt(today);
-        
-        Change change2 = createTestChange("change-2", ChangeType.UPVOTE);
-        change2.setCreatedAt(today);
-        
-        Change change3 = createTestChange("change-3", ChangeType.ADDED_COMMENT);
-        change3.setCreatedAt(yesterday);
-        
-        List<Change> changes = Arrays.asList(change1, change2, change3);
-        
-        when(changeRepository.findByProjectId(PROJECT_ID, USER_ID)).thenReturn(changes);
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+
+        when(rollupRepository.findByProjectIdAndOwnerIdAndDayGreaterThanEqual(PROJECT_ID, USER_ID, today.minusDays(7).toString()))
+            .thenReturn(Arrays.asList(
+                createTestRollup(USER_ID, today, Map.of(ChangeType.ADDED_IDEA, 1L, ChangeType.UPVOTE, 1L)),
+                createTestRollup(USER_ID, yesterday, Map.of(ChangeType.ADDED_COMMENT, 1L))
+            ));
         
         List<Contributions> result = changeService.getAnalytics(PROJECT_ID, VALID_AUTH_HEADER, 7);
         
         assertEquals(2, result.size());
         
         Contributions todayContrib = result.stream()
-            .filter(c -> c.date().toLocalDate().equals(today.toLocalDate()))
+            .filter(c -> c.date().toLocalDate().equals(today))
             .findFirst().orElse(null);
         assertNotNull(todayContrib);
         assertEquals(1L, todayContrib.addIdea());
@@ -278,7 +365,7 @@ public class ChangeServiceTest {
         assertEquals(0L, todayContrib.addComment());
         
         Contributions yesterdayContrib = result.stream()
-            .filter(c -> c.date().toLocalDate().equals(yesterday.toLocalDate()))
+            .filter(c -> c.date().toLocalDate().equals(yesterday))
             .findFirst().orElse(null);
         assertNotNull(yesterdayContrib);
         assertEquals(0L, yesterdayContrib.addIdea());
@@ -288,24 +375,17 @@ public class ChangeServiceTest {
     
     @Test
     public void getAnalyticsByUserId_success() {
-        LocalDateTime today = LocalDateTime.now();
-        
-        Change change1 = createTestChange("change-1", ChangeType.MODIFIED_IDEA);
-        change1.setCreatedAt(today);
-        
-        Change change2 = createTestChange("change-2", ChangeType.DOWNVOTE);
-        change2.setCreatedAt(today);
-        
-        List<Change> changes = Arrays.asList(change1, change2);
-        
-        when(changeRepository.findByOwnerIdAndProjectId(USER_ID, PROJECT_ID)).thenReturn(changes);
+        LocalDate today = LocalDate.now();
+
+        when(rollupRepository.findByProjectIdAndOwnerIdAndDayGreaterThanEqual(PROJECT_ID, USER_ID, today.minusDays(7).toString()))
+            .thenReturn(List.of(createTestRollup(USER_ID, today, Map.of(ChangeType.MODIFIED_IDEA, 1L, ChangeType.DOWNVOTE, 1L))));
         
         List<Contributions> result = changeService.getAnalyticsByUserId(PROJECT_ID, USER_ID, VALID_AUTH_HEADER, 7);
         
         assertEquals(1, result.size());
         
         Contributions todayContrib = result.get(0);
-        assertEquals(today.toLocalDate().atStartOfDay(), todayContrib.date());
+        assertEquals(today.atStartOfDay(), todayContrib.date());
         assertEquals(0L, todayContrib.addIdea());
         assertEquals(1L, todayContrib.editIdea());
         assertEquals(0L, todayContrib.upvote());
@@ -334,6 +414,17 @@ public class ChangeServiceTest {
         assertEquals(1L, contribution.settings());
     }
 
+    private ContributionRollup createTestRollup(String ownerId, LocalDate day, Map<ChangeType, Long> counts) {
+        ContributionRollup rollup = new ContributionRollup();
+        rollup.setId(ContributionRollup.idOf(PROJECT_ID, ownerId, day));
+        rollup.setProjectId(PROJECT_ID);
+        rollup.setOwnerId(ownerId);
+        rollup.setDay(day.toString());
+        counts.forEach((type, count) -> rollup.getCounts().put(type.name(), count));
+        rollup.setTotal(counts.values().stream().mapToLong(Long::longValue).sum());
+        return rollup;
+    }
+
     private Change createTestChange(String changeId, ChangeType changeType) {
         Change change = new Change();
         change.setChangeId(changeId);
@@ -0,0 +1,79 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tracko.models.messages.Message;
+import tracko.repository.MessageRepository;
+import tracko.service.ChatMessageWriter;
+
+public class ChatMessageWriterTest {
+
+    private MessageRepository messageRepository;
+
+    @BeforeEach
+    public void setup() {
+        messageRepository = mock(MessageRepository.class);
+    }
+
+    private Message message(String id, String projectId) {
+        Message message = new Message();
+        message.setId(id);
+        message.setProjectId(projectId);
+        return message;
+    }
+
+    @Test
+    public void drain_insertsQueuedMessagesInBatches() {
+        ChatMessageWriter writer = new ChatMessageWriter(messageRepository, 100, 2);
+        Message first = message("m1", "project-123");
+        Message second = message("m2", "project-123");
+        Message third = message("m3", "project-456");
+        writer.submit(first);
+        writer.submit(second);
+        writer.submit(third);
+
+        assertEquals(List.of(first, second), writer.pending("project-123"));
+        writer.drain();
+
+        verify(messageRepository).insert(List.of(first, second));
+        verify(messageRepository).insert(List.of(third));
+        assertEquals(0, writer.pendingCount());
+    }
+
+    @Test
+    public void drain_failedBatch_retriedWithUpserts() {
+        ChatMessageWriter writer = new ChatMessageWriter(messageRepository, 100, 10);
+        Message message = message("m1", "project-123");
+        writer.submit(message);
+        doThrow(new RuntimeException("down")).when(messageRepository).insert(anyList());
+
+        writer.drain();
+        assertEquals(List.of(message), writer.pending("project-123"));
+
+        writer.drain();
+        verify(messageRepository, times(1)).saveAll(List.of(message));
+        assertEquals(0, writer.pendingCount());
+    }
+
+    @Test
+    public void submit_queueFull_savesSynchronously() {
+        ChatMessageWriter writer = new ChatMessageWriter(messageRepository, 1, 10);
+        writer.submit(message("m1", "project-123"));
+        Message overflow = message("m2", "project-123");
+        writer.submit(overflow);
+
+        verify(messageRepository, times(1)).save(overflow);
+        verify(messageRepository, never()).insert(anyList());
+    }
+}
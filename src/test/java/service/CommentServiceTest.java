@@ -2,10 +2,13 @@ package service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,10 +24,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.test.context.ActiveProfiles;
@@ -36,6 +41,7 @@ import tracko.repository.CommentRepository;
 import tracko.constant.ChangeType;
 import tracko.models.comment.Comment;
 import tracko.models.comment.CommentRegister;
+import tracko.models.comment.CommentThread;
 import tracko.models.idea.Idea;
 import tracko.models.project.Project;
 import tracko.service.ChangeService;
@@ -88,8 +94,6 @@ public class CommentServiceTest {
     @BeforeEach
     public void setup() {
         when(userService.getUserIdByToken(VALID_AUTH_HEADER)).thenReturn(USER_ID);
-        when(jwtUtil.validateToken(anyString())).thenReturn(true);
-        when(jwtUtil.extractUserId(anyString())).thenReturn(USER_ID);
         Project mockProject = new Project();
         when(projectAuthorizationService.authenticateProject(anyString(), anyString())).thenReturn(mockProject);
 
@@ -163,6 +167,7 @@ public class CommentServiceTest {
         
 
         verify(changeService, times(1)).markChange(PROJECT_ID, ChangeType.ADDED_COMMENT, VALID_AUTH_HEADER, false, null);
+        verify(ideaService, times(1)).adjustCommentCount(IDEA_ID, 1);
     }
     
     @Test
@@ -175,6 +180,7 @@ public class CommentServiceTest {
         Comment createdComment = createTestComment(COMMENT_ID, "Reply comment", null);
         Comment parentComment = createTestComment(parentId, "Parent comment", null);
         parentComment.setReplies(new ArrayList<>());
+        parentComment.setPath(parentId + "/");
         
         when(commentRepository.save(any(Comment.class))).thenReturn(createdComment);
         when(commentRepository.findById(parentId)).thenReturn(Optional.of(parentComment));
@@ -191,6 +197,9 @@ public class CommentServiceTest {
         Comment newCommentCapture = capturedComments.get(0);
         assertNotNull(newCommentCapture.getCreatedAt());
         assertEquals(IDEA_ID, newCommentCapture.getIdeaId());
+        assertEquals(parentId, newCommentCapture.getParentId());
+        assertEquals(parentId + "/" + newCommentCapture.getCommentId() + "/", newCommentCapture.getPath());
+        assertEquals(1, newCommentCapture.getDepth());
 
         Comment updatedParent = capturedComments.get(1);
         assertEquals(parentId, updatedParent.getCommentId());
@@ -204,6 +213,31 @@ public class CommentServiceTest {
         assertEquals(parentId, payload.get("parentId"));
     }
 
+    @Test
+    public void createComment_replyToParentWithoutPath_derivesParentPathFirst() {
+        String parentId = "parent-123";
+        CommentRegister commentRegister = new CommentRegister();
+        commentRegister.setCommentText("Reply comment");
+
+        // A nested comment stored before paths existed, which the backfill has not reached yet
+        Comment root = createTestComment("root", "Root comment", null);
+        root.setReplies(new ArrayList<>(List.of(parentId)));
+        Comment parentComment = createTestComment(parentId, "Parent comment", null);
+        parentComment.setReplies(new ArrayList<>());
+
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(commentRepository.findById(parentId)).thenReturn(Optional.of(parentComment));
+        when(commentRepository.findByIdeaId(IDEA_ID)).thenReturn(List.of(root, parentComment));
+
+        commentService.createComment(PROJECT_ID, IDEA_ID, parentId, VALID_AUTH_HEADER, commentRegister);
+
+        verify(commentRepository, times(1)).setPaths(List.of(root, parentComment));
+        verify(commentRepository, times(2)).save(commentCaptor.capture());
+        Comment reply = commentCaptor.getAllValues().get(0);
+        assertEquals("root/" + parentId + "/" + reply.getCommentId() + "/", reply.getPath());
+        assertEquals(2, reply.getDepth());
+    }
+
     @Test
     public void createComment_replyToNonExistentParent_throwsNotFound() {
 
@@ -264,10 +298,10 @@ public class CommentServiceTest {
         
         commentService.deleteComment(COMMENT_ID, VALID_AUTH_HEADER);
 
-        verify(commentRepository, times(1)).delete(comment);
+        verify(commentRepository, times(1)).deleteAllByIds(List.of(COMMENT_ID));
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/comments/" + IDEA_ID), 
-            eq(Map.of("deletedId", COMMENT_ID))
+            eq(Map.of("deletedId", COMMENT_ID, "deletedIds", List.of(COMMENT_ID)))
         );
         verify(changeService, times(1)).markChange(PROJECT_ID, ChangeType.DELETED_COMMENT, VALID_AUTH_HEADER, false, null);
     }
@@ -286,14 +320,40 @@ public class CommentServiceTest {
         comment.setReplies(replies);
         
         when(commentRepository.findById(COMMENT_ID)).thenReturn(Optional.of(comment));
+        when(commentRepository.deleteAllByIds(List.of(COMMENT_ID, "reply-1", "reply-2"))).thenReturn(3L);
         
 
         commentService.deleteComment(COMMENT_ID, VALID_AUTH_HEADER);
         
 
-        verify(commentRepository, times(1)).deleteById("reply-1");
-        verify(commentRepository, times(1)).deleteById("reply-2");
-        verify(commentRepository, times(1)).delete(comment);
+        verify(commentRepository, times(1)).deleteAllByIds(List.of(COMMENT_ID, "reply-1", "reply-2"));
+        verify(ideaService, times(1)).adjustCommentCount(IDEA_ID, -3);
+    }
+
+    @Test
+    public void deleteComment_withPath_deletesWholeSubtreeAtOnce() {
+        Comment comment = createTestComment(COMMENT_ID, "Threaded reply", null);
+        comment.setProjectId(PROJECT_ID);
+        comment.setParentId("parent-123");
+        comment.setPath("parent-123/" + COMMENT_ID + "/");
+        comment.setReplies(new ArrayList<>());
+
+        List<String> removed = List.of(COMMENT_ID, "child", "grandchild");
+        when(commentRepository.findById(COMMENT_ID)).thenReturn(Optional.of(comment));
+        when(commentRepository.findSubtreeIds(IDEA_ID, "parent-123/" + COMMENT_ID + "/")).thenReturn(removed);
+        // A reply landed between the lookup and the delete; the count follows what was really removed
+        when(commentRepository.deleteSubtree(IDEA_ID, "parent-123/" + COMMENT_ID + "/")).thenReturn(4L);
+
+        commentService.deleteComment(COMMENT_ID, VALID_AUTH_HEADER);
+
+        verify(commentRepository, times(1)).pullReply("parent-123", COMMENT_ID);
+        verify(commentRepository, never()).deleteById(anyString());
+        verify(commentRepository, never()).deleteAllByIds(any());
+        verify(ideaService, times(1)).adjustCommentCount(IDEA_ID, -4);
+        verify(messagingTemplate, times(1)).convertAndSend(
+            eq("/topic/comments/" + IDEA_ID),
+            eq(Map.of("deletedId", COMMENT_ID, "deletedIds", removed))
+        );
     }
     
     @Test
@@ -322,4 +382,63 @@ public class CommentServiceTest {
 
         return comment;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getCommentThread_nestsRepliesAndReturnsCursor() {
+        Comment root = createTestComment("a", "Root", null);
+        root.setPath("a/");
+        Comment reply = createTestComment("b", "Reply", null);
+        reply.setParentId("a");
+        reply.setPath("a/b/");
+        reply.setDepth(1);
+        Comment next = createTestComment("c", "Next root", null);
+        next.setPath("c/");
+
+        when(commentRepository.findThread(eq(IDEA_ID), eq(""), eq(5), any(Pageable.class)))
+            .thenReturn(new ArrayList<>(List.of(root, reply, next)));
+
+        CommentThread thread = commentService.getCommentThread(PROJECT_ID, IDEA_ID, null, 2, 5, VALID_AUTH_HEADER);
+
+        assertEquals(1, thread.comments().size());
+        assertEquals("a", thread.comments().get(0).comment().getCommentId());
+        assertEquals("b", thread.comments().get(0).replies().get(0).comment().getCommentId());
+        assertEquals("a/b/", thread.nextCursor());
+        verify(ideaService, times(1)).getIdeaById(PROJECT_ID, IDEA_ID, VALID_AUTH_HEADER);
+    }
+
+    @Test
+    public void getCommentThread_ideaWithLegacyComments_derivesPathsFirst() {
+        Comment root = createTestComment("a", "Root", null);
+        root.setReplies(new ArrayList<>(List.of("b")));
+        Comment reply = createTestComment("b", "Reply", null);
+
+        when(commentRepository.existsByIdeaIdAndPathIsNull(IDEA_ID)).thenReturn(true);
+        when(commentRepository.findByIdeaId(IDEA_ID)).thenReturn(List.of(root, reply));
+        when(commentRepository.findThread(eq(IDEA_ID), eq(""), eq(5), any(Pageable.class)))
+            .thenReturn(new ArrayList<>(List.of(root, reply)));
+
+        CommentThread thread = commentService.getCommentThread(PROJECT_ID, IDEA_ID, null, 10, 5, VALID_AUTH_HEADER);
+
+        InOrder order = inOrder(commentRepository);
+        order.verify(commentRepository).setPaths(List.of(root, reply));
+        order.verify(commentRepository).findThread(eq(IDEA_ID), eq(""), eq(5), any(Pageable.class));
+        assertEquals("b", thread.comments().get(0).replies().get(0).comment().getCommentId());
+    }
+
+    @Test
+    public void getCommentThread_orphanedReplyBecomesTopLevel() {
+        Comment reply = createTestComment("b", "Reply", null);
+        reply.setParentId("a");
+        reply.setPath("a/b/");
+        reply.setDepth(1);
+
+        when(commentRepository.findThread(eq(IDEA_ID), eq("a/"), eq(10), any(Pageable.class)))
+            .thenReturn(new ArrayList<>(List.of(reply)));
+
+        CommentThread thread = commentService.getCommentThread(PROJECT_ID, IDEA_ID, "a/", 50, 10, VALID_AUTH_HEADER);
+
+        assertEquals(1, thread.comments().size());
+        assertEquals("a", thread.comments().get(0).comment().getParentId());
+        assertNull(thread.nextCursor());
+    }
+}
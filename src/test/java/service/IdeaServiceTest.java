@@ -5,6 +5,8 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,11 +23,19 @@ import config.MongoTestConfig;
 import tracko.repository.CommentRepository;
 import tracko.repository.IdeaRepository;
 import tracko.constant.ChangeType;
+import tracko.constant.VoteType;
 import tracko.models.idea.Idea;
+import tracko.models.idea.IdeaCoordinates;
+import tracko.models.idea.IdeaPosition;
 import tracko.models.idea.IdeaRegister;
 import tracko.models.idea.IdeaUpdate;
+import tracko.models.idea.VoteTally;
 import tracko.models.project.Project;
+import tracko.models.project.ProjectHeader;
 import tracko.models.user.User;
+import tracko.models.websocket.IdeaPositionMessage;
+import tracko.models.websocket.IdeaUpdateMessage;
+import tracko.models.websocket.IdeaVoteMessage;
 import tracko.service.*;
 
 @SpringBootTest(classes = tracko.Application.class)
@@ -35,6 +45,8 @@ public class IdeaServiceTest {
 
     private IdeaService ideaService;
 
+    private IdeaPositionBuffer positionBuffer;
+
     @MockBean
     private IdeaRepository ideaRepository;
 
@@ -63,14 +75,17 @@ public class IdeaServiceTest {
 
     @BeforeEach
     public void setup() {
+        IdeaTopicPublisher ideaTopic = new IdeaTopicPublisher(messagingTemplate);
+        positionBuffer = new IdeaPositionBuffer(ideaRepository, ideaTopic);
         ideaService = new IdeaService(
             ideaRepository, 
             userService, 
-            messagingTemplate,
+            ideaTopic,
             projectAuthorizationService,
             commentRepository,
             projectService,
-            changeService
+            changeService,
+            positionBuffer
         );
     
         // Create a mock user
@@ -88,7 +103,7 @@ public class IdeaServiceTest {
         project.setProjectId(PROJECT_ID);
         project.setOwnerId(USER_ID);
         
-        when(projectAuthorizationService.authenticateProject(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(project);
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(ProjectHeader.of(project));
     }
 
     @Test
@@ -118,11 +133,12 @@ public class IdeaServiceTest {
         assertEquals(0, createdIdea.getUpVotes().size());
         assertEquals(0, createdIdea.getDownVotes().size());
         assertEquals(0, createdIdea.getComments().size());
+        assertTrue(createdIdea.hasCounters());
 
         verify(ideaRepository, times(1)).save(any(Idea.class));
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/ideas"),
-            any(Idea.class)
+            any(IdeaUpdateMessage.class)
         );
         verify(changeService, times(1)).markChange(
             eq(PROJECT_ID),
@@ -154,7 +170,7 @@ public class IdeaServiceTest {
         assertEquals(2, foundIdeas.size());
         assertEquals("Idea 1", foundIdeas.get(0).getIdeaName());
         assertEquals("Idea 2", foundIdeas.get(1).getIdeaName());
-        verify(projectAuthorizationService, times(1)).authenticateProject(PROJECT_ID, VALID_AUTH_HEADER);
+        verify(projectAuthorizationService, times(1)).authorizeMember(PROJECT_ID, VALID_AUTH_HEADER);
     }
 
     @Test
@@ -171,7 +187,7 @@ public class IdeaServiceTest {
         assertNotNull(foundIdea);
         assertEquals(IDEA_ID, foundIdea.getIdeaId());
         assertEquals("Test Idea", foundIdea.getIdeaName());
-        verify(projectAuthorizationService, times(1)).authenticateProject(PROJECT_ID, VALID_AUTH_HEADER);
+        verify(projectAuthorizationService, times(1)).authorizeMember(PROJECT_ID, VALID_AUTH_HEADER);
     }
 
     @Test
@@ -204,7 +220,7 @@ public class IdeaServiceTest {
         ideaUpdate.setIdeaDescription("Updated Description");
 
         when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
-        when(ideaRepository.save(any(Idea.class))).thenAnswer(i -> i.getArgument(0));
+        when(ideaRepository.updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap())).thenReturn(existingIdea);
 
         Idea updatedIdea = ideaService.updateIdea(PROJECT_ID, IDEA_ID, ideaUpdate, VALID_AUTH_HEADER);
 
@@ -212,10 +228,11 @@ public class IdeaServiceTest {
         assertEquals("Updated Name", updatedIdea.getIdeaName());
         assertEquals("Updated Description", updatedIdea.getIdeaDescription());
         
-        verify(ideaRepository, times(1)).save(any(Idea.class));
+        verify(ideaRepository, times(1)).updateFields(eq(PROJECT_ID), eq(IDEA_ID), eq(Map.of("ideaName", "Updated Name", "ideaDescription", "Updated Description")));
+        verify(ideaRepository, never()).save(any(Idea.class));
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/ideas"),
-            any(Idea.class)
+            any(IdeaUpdateMessage.class)
         );
         verify(changeService, times(1)).markChange(
             eq(PROJECT_ID),
@@ -245,7 +262,7 @@ public class IdeaServiceTest {
         ideaUpdate.sety(300.0f);
 
         when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
-        when(ideaRepository.save(any(Idea.class))).thenAnswer(i -> i.getArgument(0));
+        when(ideaRepository.updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap())).thenReturn(existingIdea);
 
         Idea updatedIdea = ideaService.updateIdea(PROJECT_ID, IDEA_ID, ideaUpdate, VALID_AUTH_HEADER);
 
@@ -253,10 +270,11 @@ public class IdeaServiceTest {
         assertEquals(200.0f, updatedIdea.getX());
         assertEquals(300.0f, updatedIdea.gety());
         
-        verify(ideaRepository, times(1)).save(any(Idea.class));
+        verify(ideaRepository, times(1)).updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap());
+        verify(ideaRepository, never()).save(any(Idea.class));
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/ideas"),
-            any(Idea.class)
+            any(IdeaUpdateMessage.class)
         );
         
         verify(changeService, never()).markChange(
@@ -286,7 +304,7 @@ public class IdeaServiceTest {
         ideaUpdate.setUpVotes(upvotes);
 
         when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
-        when(ideaRepository.save(any(Idea.class))).thenAnswer(i -> i.getArgument(0));
+        when(ideaRepository.updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap())).thenReturn(existingIdea);
 
         Idea updatedIdea = ideaService.updateIdea(PROJECT_ID, IDEA_ID, ideaUpdate, VALID_AUTH_HEADER);
 
@@ -294,10 +312,11 @@ public class IdeaServiceTest {
         assertEquals(1, updatedIdea.getUpVotes().size());
         assertEquals(USER_ID, updatedIdea.getUpVotes().get(0));
         
-        verify(ideaRepository, times(1)).save(any(Idea.class));
+        verify(ideaRepository, times(1)).updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap());
+        verify(ideaRepository, never()).save(any(Idea.class));
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/ideas"),
-            any(Idea.class)
+            any(IdeaUpdateMessage.class)
         );
         verify(changeService, times(1)).markChange(
             eq(PROJECT_ID),
@@ -326,7 +345,7 @@ public class IdeaServiceTest {
         ideaUpdate.setDownVotes(downvotes);
 
         when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
-        when(ideaRepository.save(any(Idea.class))).thenAnswer(i -> i.getArgument(0));
+        when(ideaRepository.updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap())).thenReturn(existingIdea);
 
         Idea updatedIdea = ideaService.updateIdea(PROJECT_ID, IDEA_ID, ideaUpdate, VALID_AUTH_HEADER);
 
@@ -334,10 +353,11 @@ public class IdeaServiceTest {
         assertEquals(1, updatedIdea.getDownVotes().size());
         assertEquals(USER_ID, updatedIdea.getDownVotes().get(0));
         
-        verify(ideaRepository, times(1)).save(any(Idea.class));
+        verify(ideaRepository, times(1)).updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap());
+        verify(ideaRepository, never()).save(any(Idea.class));
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/ideas"),
-            any(Idea.class)
+            any(IdeaUpdateMessage.class)
         );
         verify(changeService, times(1)).markChange(
             eq(PROJECT_ID),
@@ -365,14 +385,16 @@ public class IdeaServiceTest {
         verify(ideaRepository, times(1)).deleteById(IDEA_ID);
         verify(commentRepository, times(1)).deleteByIdeaId(IDEA_ID);
         
-        ArgumentCaptor<Map<String, String>> messageCaptor = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<IdeaUpdateMessage> messageCaptor = ArgumentCaptor.forClass(IdeaUpdateMessage.class);
         verify(messagingTemplate, times(1)).convertAndSend(
             eq("/topic/projects/" + PROJECT_ID + "/ideas"),
             messageCaptor.capture()
         );
         
-        Map<String, String> capturedMessage = messageCaptor.getValue();
-        assertEquals(IDEA_ID, capturedMessage.get("deletedId"));
+        IdeaUpdateMessage capturedMessage = messageCaptor.getValue();
+        assertEquals(IdeaUpdateMessage.DELETE, capturedMessage.getAction());
+        assertEquals(IDEA_ID, capturedMessage.getIdeaId());
+        assertNull(capturedMessage.getIdea());
         
         verify(changeService, times(1)).markChange(
             eq(PROJECT_ID),
@@ -409,7 +431,7 @@ public class IdeaServiceTest {
         project.setOwnerId("another-user-id");
         
         when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
-        when(projectAuthorizationService.authenticateProject(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(project);
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(ProjectHeader.of(project));
         when(projectService.getOwnerIdByProjectId(PROJECT_ID)).thenReturn("another-user-id");
 
         ResponseStatusException exception = assertThrows(
@@ -434,7 +456,7 @@ public class IdeaServiceTest {
         project.setOwnerId(USER_ID);
         
         when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
-        when(projectAuthorizationService.authenticateProject(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(project);
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER)).thenReturn(ProjectHeader.of(project));
         when(projectService.getOwnerIdByProjectId(PROJECT_ID)).thenReturn(USER_ID);
         doNothing().when(ideaRepository).deleteById(IDEA_ID);
         doNothing().when(commentRepository).deleteByIdeaId(IDEA_ID);
@@ -444,4 +466,339 @@ public class IdeaServiceTest {
         verify(ideaRepository, times(1)).deleteById(IDEA_ID);
         verify(commentRepository, times(1)).deleteByIdeaId(IDEA_ID);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void vote_up_switchesFromDownVote() {
+        Idea before = new Idea();
+        before.setIdeaId(IDEA_ID);
+        before.setUpVotes(new ArrayList<>(List.of("other-user")));
+        before.setDownVotes(new ArrayList<>(List.of(USER_ID)));
+
+        when(ideaRepository.applyVote(PROJECT_ID, IDEA_ID, USER_ID, VoteType.UP)).thenReturn(before);
+
+        VoteTally tally = ideaService.vote(PROJECT_ID, IDEA_ID, "up", VALID_AUTH_HEADER);
+
+        assertEquals(2, tally.getUpVoteCount());
+        assertEquals(0, tally.getDownVoteCount());
+        assertEquals(VoteType.UP, tally.getUserVote());
+        verify(ideaRepository, never()).save(any(Idea.class));
+        verify(ideaRepository, times(1)).incrementCounters(IDEA_ID, 1, -1, 0);
+        verify(messagingTemplate, times(1)).convertAndSend(
+            eq("/topic/projects/" + PROJECT_ID + "/ideas"),
+            any(IdeaVoteMessage.class)
+        );
+        verify(changeService, times(1)).markChange(
+            eq(PROJECT_ID),
+            eq(ChangeType.UPVOTE),
+            eq(VALID_AUTH_HEADER),
+            eq(false),
+            eq(null)
+        );
+    }
+
+    @Test
+    public void vote_andMove_shareTheIdeaTopicSequence() {
+        Idea before = new Idea();
+        before.setIdeaId(IDEA_ID);
+        when(ideaRepository.applyVote(PROJECT_ID, IDEA_ID, USER_ID, VoteType.UP)).thenReturn(before);
+        when(ideaRepository.existsByIdeaIdAndProjectId(IDEA_ID, PROJECT_ID)).thenReturn(true);
+
+        ideaService.vote(PROJECT_ID, IDEA_ID, "up", VALID_AUTH_HEADER);
+        IdeaPosition position = new IdeaPosition();
+        position.setX(1.0f);
+        position.setY(2.0f);
+        ideaService.moveIdea(PROJECT_ID, IDEA_ID, position, VALID_AUTH_HEADER);
+        positionBuffer.broadcastPending();
+
+        ArgumentCaptor<Object> messages = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/projects/" + PROJECT_ID + "/ideas"), messages.capture());
+        assertEquals(1, ((IdeaVoteMessage) messages.getAllValues().get(0)).getSequence());
+        assertEquals(2, ((IdeaPositionMessage) messages.getAllValues().get(1)).getSequence());
+    }
+
+    @Test
+    public void vote_repeated_noBroadcast() {
+        Idea before = new Idea();
+        before.setIdeaId(IDEA_ID);
+        before.setUpVotes(new ArrayList<>(List.of(USER_ID)));
+        before.setDownVotes(new ArrayList<>());
+
+        when(ideaRepository.applyVote(PROJECT_ID, IDEA_ID, USER_ID, VoteType.UP)).thenReturn(before);
+
+        VoteTally tally = ideaService.vote(PROJECT_ID, IDEA_ID, "UP", VALID_AUTH_HEADER);
+
+        assertEquals(1, tally.getUpVoteCount());
+        verify(ideaRepository, never()).incrementCounters(anyString(), anyInt(), anyInt(), anyInt());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        verify(changeService, never()).markChange(any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    public void unvote_removesVote() {
+        Idea before = new Idea();
+        before.setIdeaId(IDEA_ID);
+        before.setUpVotes(new ArrayList<>());
+        before.setDownVotes(new ArrayList<>(List.of(USER_ID)));
+
+        when(ideaRepository.applyVote(PROJECT_ID, IDEA_ID, USER_ID, null)).thenReturn(before);
+
+        VoteTally tally = ideaService.unvote(PROJECT_ID, IDEA_ID, VALID_AUTH_HEADER);
+
+        assertEquals(0, tally.getUpVoteCount());
+        assertEquals(0, tally.getDownVoteCount());
+        assertNull(tally.getUserVote());
+        verify(messagingTemplate, times(1)).convertAndSend(
+            eq("/topic/projects/" + PROJECT_ID + "/ideas"),
+            any(IdeaVoteMessage.class)
+        );
+    }
+
+    @Test
+    public void vote_unknownType_badRequest() {
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> ideaService.vote(PROJECT_ID, IDEA_ID, "sideways", VALID_AUTH_HEADER)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    public void vote_ideaNotFound() {
+        when(ideaRepository.applyVote(PROJECT_ID, IDEA_ID, USER_ID, VoteType.DOWN)).thenReturn(null);
+
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> ideaService.vote(PROJECT_ID, IDEA_ID, "down", VALID_AUTH_HEADER)
+        );
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void moveIdea_coalescesAndReadsOwnWrites() {
+        Idea stored = new Idea();
+        stored.setIdeaId(IDEA_ID);
+        stored.setProjectId(PROJECT_ID);
+        stored.setx(0.0f);
+        stored.sety(0.0f);
+
+        when(ideaRepository.existsByIdeaIdAndProjectId(IDEA_ID, PROJECT_ID)).thenReturn(true);
+        when(ideaRepository.findByProjectId(PROJECT_ID)).thenReturn(new ArrayList<>(List.of(stored)));
+
+        IdeaPosition first = new IdeaPosition();
+        first.setX(10.0f);
+        first.setY(20.0f);
+        IdeaPosition second = new IdeaPosition();
+        second.setX(30.0f);
+        second.setY(40.0f);
+
+        ideaService.moveIdea(PROJECT_ID, IDEA_ID, first, VALID_AUTH_HEADER);
+        ideaService.moveIdea(PROJECT_ID, IDEA_ID, second, VALID_AUTH_HEADER);
+
+        // Only the first move needs the existence check, and nothing is saved per move
+        verify(ideaRepository, times(1)).existsByIdeaIdAndProjectId(IDEA_ID, PROJECT_ID);
+        verify(ideaRepository, never()).save(any(Idea.class));
+
+        List<Idea> ideas = ideaService.getIdeasByProject(PROJECT_ID, VALID_AUTH_HEADER);
+        assertEquals(30.0f, ideas.get(0).getX());
+        assertEquals(40.0f, ideas.get(0).gety());
+
+        positionBuffer.broadcastPending();
+        verify(messagingTemplate, times(1)).convertAndSend(
+            eq("/topic/projects/" + PROJECT_ID + "/ideas"),
+            any(IdeaPositionMessage.class)
+        );
+
+        positionBuffer.flush();
+        ArgumentCaptor<Collection<IdeaCoordinates>> batchCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(ideaRepository, times(1)).updatePositions(batchCaptor.capture());
+        assertEquals(1, batchCaptor.getValue().size());
+        assertEquals(30.0f, batchCaptor.getValue().iterator().next().x());
+    }
+
+    @Test
+    public void updateIdea_position_waitsForRunningFlush() throws Exception {
+        Idea existingIdea = new Idea();
+        existingIdea.setIdeaId(IDEA_ID);
+        existingIdea.setOwnerId(USER_ID);
+        existingIdea.setProjectId(PROJECT_ID);
+        when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
+        when(ideaRepository.updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap())).thenReturn(existingIdea);
+        when(ideaRepository.existsByIdeaIdAndProjectId(IDEA_ID, PROJECT_ID)).thenReturn(true);
+
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return null;
+        }).when(ideaRepository).updatePositions(anyCollection());
+
+        IdeaPosition dragged = new IdeaPosition();
+        dragged.setX(10.0f);
+        dragged.setY(10.0f);
+        ideaService.moveIdea(PROJECT_ID, IDEA_ID, dragged, VALID_AUTH_HEADER);
+        Thread flush = new Thread(positionBuffer::flush);
+        flush.start();
+        assertTrue(flushing.await(2, TimeUnit.SECONDS));
+
+        IdeaUpdate ideaUpdate = new IdeaUpdate();
+        ideaUpdate.setx(500.0f);
+        ideaUpdate.sety(500.0f);
+        Thread update = new Thread(() -> ideaService.updateIdea(PROJECT_ID, IDEA_ID, ideaUpdate, VALID_AUTH_HEADER));
+        update.start();
+
+        // The flush holding the dragged position must finish before the new position is written
+        verify(ideaRepository, after(200).never()).updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap());
+        release.countDown();
+        verify(ideaRepository, timeout(2000)).updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap());
+        flush.join(2000);
+        update.join(2000);
+        assertTrue(positionBuffer.pendingIdeaIds(PROJECT_ID).isEmpty());
+    }
+
+    @Test
+    public void moveIdea_unknownIdea_notFound() {
+        when(ideaRepository.existsByIdeaIdAndProjectId(IDEA_ID, PROJECT_ID)).thenReturn(false);
+
+        IdeaPosition position = new IdeaPosition();
+        position.setX(1.0f);
+        position.setY(2.0f);
+
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> ideaService.moveIdea(PROJECT_ID, IDEA_ID, position, VALID_AUTH_HEADER)
+        );
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void updateIdea_broadcastsOnlyChangedFieldsWithSequence() {
+        Idea existingIdea = new Idea();
+        existingIdea.setIdeaId(IDEA_ID);
+        existingIdea.setIdeaName("Same Name");
+        existingIdea.setIdeaDescription("Original Description");
+        existingIdea.setOwnerId(USER_ID);
+        existingIdea.setProjectId(PROJECT_ID);
+        existingIdea.setUpVotes(new ArrayList<>(List.of("voter-1", "voter-2")));
+        existingIdea.setDownVotes(new ArrayList<>());
+        existingIdea.setComments(new ArrayList<>());
+
+        IdeaUpdate ideaUpdate = new IdeaUpdate();
+        ideaUpdate.setIdeaName("Same Name");
+        ideaUpdate.setIdeaDescription("New Description");
+
+        when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
+        when(ideaRepository.updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap())).thenReturn(existingIdea);
+
+        ideaService.updateIdea(PROJECT_ID, IDEA_ID, ideaUpdate, VALID_AUTH_HEADER);
+        ideaService.deleteIdea(PROJECT_ID, IDEA_ID, VALID_AUTH_HEADER);
+
+        ArgumentCaptor<IdeaUpdateMessage> messageCaptor = ArgumentCaptor.forClass(IdeaUpdateMessage.class);
+        verify(messagingTemplate, times(2)).convertAndSend(
+            eq("/topic/projects/" + PROJECT_ID + "/ideas"),
+            messageCaptor.capture()
+        );
+
+        IdeaUpdateMessage update = messageCaptor.getAllValues().get(0);
+        assertEquals(IdeaUpdateMessage.UPDATE, update.getAction());
+        assertNull(update.getIdea());
+        assertEquals(Map.of("ideaDescription", "New Description"), update.getChanges());
+
+        IdeaUpdateMessage delete = messageCaptor.getAllValues().get(1);
+        assertEquals(IdeaUpdateMessage.DELETE, delete.getAction());
+        assertEquals(update.getSequence() + 1, delete.getSequence());
+    }
+
+    @Test
+    public void updateIdea_noEffectiveChange_noBroadcast() {
+        Idea existingIdea = new Idea();
+        existingIdea.setIdeaId(IDEA_ID);
+        existingIdea.setIdeaName("Same Name");
+        existingIdea.setOwnerId(USER_ID);
+        existingIdea.setProjectId(PROJECT_ID);
+
+        IdeaUpdate ideaUpdate = new IdeaUpdate();
+        ideaUpdate.setIdeaName("Same Name");
+
+        when(ideaRepository.findById(IDEA_ID)).thenReturn(Optional.of(existingIdea));
+        when(ideaRepository.updateFields(eq(PROJECT_ID), eq(IDEA_ID), anyMap())).thenReturn(existingIdea);
+
+        ideaService.updateIdea(PROJECT_ID, IDEA_ID, ideaUpdate, VALID_AUTH_HEADER);
+
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    public void getIdeasInViewport_includesUnflushedMoves() {
+        Idea staysInside = new Idea();
+        staysInside.setIdeaId("idea-inside");
+        staysInside.setProjectId(PROJECT_ID);
+        staysInside.setx(10.0f);
+        staysInside.sety(10.0f);
+
+        Idea draggedOut = new Idea();
+        draggedOut.setIdeaId("idea-out");
+        draggedOut.setProjectId(PROJECT_ID);
+        draggedOut.setx(20.0f);
+        draggedOut.sety(20.0f);
+
+        Idea draggedIn = new Idea();
+        draggedIn.setIdeaId("idea-in");
+        draggedIn.setProjectId(PROJECT_ID);
+        draggedIn.setx(500.0f);
+        draggedIn.sety(500.0f);
+
+        positionBuffer.record(PROJECT_ID, "idea-out", 900.0f, 900.0f);
+        positionBuffer.record(PROJECT_ID, "idea-in", 30.0f, 30.0f);
+
+        when(ideaRepository.findInViewport(PROJECT_ID, 0.0f, 0.0f, 100.0f, 100.0f))
+            .thenReturn(List.of(staysInside, draggedOut));
+        when(ideaRepository.findAllById(List.of("idea-in"))).thenReturn(List.of(draggedIn));
+
+        List<Idea> ideas = ideaService.getIdeasInViewport(PROJECT_ID, 0.0f, 0.0f, 100.0f, 100.0f, VALID_AUTH_HEADER);
+
+        assertEquals(2, ideas.size());
+        assertEquals("idea-inside", ideas.get(0).getIdeaId());
+        assertEquals("idea-in", ideas.get(1).getIdeaId());
+        assertEquals(30.0f, ideas.get(1).getX());
+    }
+
+    @Test
+    public void getIdeasInViewport_partialBounds_badRequest() {
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> ideaService.getIdeasInViewport(PROJECT_ID, 0.0f, null, 100.0f, 100.0f, VALID_AUTH_HEADER)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verify(ideaRepository, never()).findInViewport(anyString(), anyFloat(), anyFloat(), anyFloat(), anyFloat());
+    }
+
+    @Test
+    public void getTopIdeas_clampsLimit() {
+        Idea top = new Idea();
+        top.setIdeaId(IDEA_ID);
+        top.setScore(5);
+
+        when(ideaRepository.findTopByScore(PROJECT_ID, 100)).thenReturn(new ArrayList<>(List.of(top)));
+
+        List<Idea> ideas = ideaService.getTopIdeas(PROJECT_ID, 5000, VALID_AUTH_HEADER);
+
+        assertEquals(1, ideas.size());
+        assertEquals(5, ideas.get(0).getScore());
+        verify(projectAuthorizationService, times(1)).authorizeMember(PROJECT_ID, VALID_AUTH_HEADER);
+    }
+
+    @Test
+    public void getTopIdeas_nonPositive_badRequest() {
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> ideaService.getTopIdeas(PROJECT_ID, 0, VALID_AUTH_HEADER)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+}
@@ -0,0 +1,44 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import tracko.service.IdeaTopicPublisher;
+
+public class IdeaTopicPublisherTest {
+
+    @Test
+    public void publish_concurrently_sendsInSequenceOrderPerProject() throws Exception {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        List<Long> sent = new ArrayList<>();
+        doAnswer(invocation -> {
+            sent.add((Long) invocation.getArgument(1));
+            return null;
+        }).when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+        IdeaTopicPublisher publisher = new IdeaTopicPublisher(messagingTemplate);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> publisher.publish("project-1", sequence -> sequence));
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(1000, sent.size());
+        for (int i = 0; i < sent.size(); i++) {
+            assertEquals(i + 1, sent.get(i));
+        }
+    }
+}
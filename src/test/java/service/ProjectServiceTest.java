@@ -13,10 +13,14 @@ import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
@@ -33,15 +37,21 @@ import tracko.models.idea.Idea;
 import tracko.models.messages.Message;
 import tracko.models.messages.MessageRegister;
 import tracko.models.project.Project;
+import tracko.models.project.ProjectHeader;
 import tracko.models.project.ProjectRegister;
 import tracko.models.project.ProjectUpdate;
+import tracko.models.report.Report;
 import tracko.models.report.ReportRegister;
 import tracko.models.user.User;
+import tracko.service.AIRateLimiterService;
 import tracko.service.AIService;
 import tracko.service.ChangeService;
+import tracko.service.ChatMessageWriter;
 import tracko.service.CommentService;
 import tracko.service.ProjectAuthorizationService;
 import tracko.service.ProjectService;
+import tracko.service.RecentMessageBuffer;
+import tracko.service.ReportPromptBuilder;
 import tracko.service.ReportService;
 import tracko.service.UserService;
 
@@ -85,6 +95,15 @@ public class ProjectServiceTest {
     @MockBean
     private ReportService reportService;
 
+    @MockBean
+    private ChatMessageWriter chatMessageWriter;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+
+    @MockBean
+    private AIRateLimiterService aiRateLimiter;
+
     private final String VALID_AUTH_HEADER = "Bearer valid-token";
     private final String PROJECT_ID = "project-123";
     private final String USER_ID = "user-123";
@@ -107,7 +126,12 @@ public class ProjectServiceTest {
             messageRepository,
             aiService,
             commentService,
-            reportService);
+            reportService,
+            new RecentMessageBuffer(messageRepository, chatMessageWriter, true, 100, 1000, 30),
+            chatMessageWriter,
+            messagingTemplate,
+            new ReportPromptBuilder(60000, 15000),
+            aiRateLimiter);
 
         ReflectionTestUtils.setField(projectService, "userRepository", userRepository);
 
@@ -221,6 +245,7 @@ public class ProjectServiceTest {
         verify(projectRepository, times(1)).save(any(Project.class));
         verify(changeService, times(1)).markChange(eq(PROJECT_ID), eq(ChangeType.ADDED_MEMBER), eq(VALID_AUTH_HEADER), eq(false), eq(null));
         verify(userService, times(1)).addProjectIdToUser(OTHER_USER_ID, PROJECT_ID);
+        verify(projectAuthorizationService, times(1)).evictProject(PROJECT_ID);
     }
 
     @Test
@@ -287,6 +312,7 @@ public class ProjectServiceTest {
         verify(changeService, times(1)).deleteChangesByProjectId(PROJECT_ID);
         verify(ideaRepository, times(1)).deleteByProjectId(PROJECT_ID);
         verify(projectRepository, times(1)).deleteById(PROJECT_ID);
+        verify(projectAuthorizationService, times(1)).evictProject(PROJECT_ID);
     }
     
     @Test
@@ -356,6 +382,7 @@ public class ProjectServiceTest {
         
         verify(userService, times(1)).deleteProjectFromUser(USER_ID, PROJECT_ID);
         verify(projectRepository, times(1)).save(testProject);
+        verify(projectAuthorizationService, times(1)).evictProject(PROJECT_ID);
         assertFalse(testProject.getProjectMembers().contains(USER_ID));
     }
     
@@ -371,8 +398,8 @@ public class ProjectServiceTest {
         newMessage.setContent("Test message");
         newMessage.setCreatedAt(LocalDateTime.now());
         
-        when(projectAuthorizationService.authenticateProject(PROJECT_ID, VALID_AUTH_HEADER))
-            .thenReturn(testProject);
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER))
+            .thenReturn(ProjectHeader.of(testProject));
         when(messageRepository.save(any(Message.class))).thenReturn(newMessage);
         
         Message result = projectService.sendChatMessage(PROJECT_ID, VALID_AUTH_HEADER, messageRegister);
@@ -382,6 +409,38 @@ public class ProjectServiceTest {
         assertEquals(newMessage.getContent(), result.getContent());
         assertEquals(USER_ID, result.getSenderId());
         assertEquals("testuser", result.getUsername());
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/projects/" + PROJECT_ID + "/chat", newMessage);
+    }
+
+    @Test
+    public void postChatMessage_broadcastsAndQueuesWithoutSaving() {
+        MessageRegister messageRegister = new MessageRegister();
+        messageRegister.content = "Hello over STOMP";
+
+        when(projectAuthorizationService.authorizeMemberById(PROJECT_ID, USER_ID))
+            .thenReturn(ProjectHeader.of(testProject));
+
+        Message result = projectService.postChatMessage(PROJECT_ID, USER_ID, "testuser", messageRegister);
+
+        assertNotNull(result.getId());
+        assertEquals("Hello over STOMP", result.getContent());
+        assertEquals("testuser", result.getUsername());
+        verify(messagingTemplate, times(1)).convertAndSend("/topic/projects/" + PROJECT_ID + "/chat", result);
+        verify(chatMessageWriter, times(1)).submit(result);
+        verify(messageRepository, never()).save(any(Message.class));
+        verify(userService, never()).getUserByToken(any());
+    }
+
+    @Test
+    public void postChatMessage_emptyContent_badRequest() {
+        when(projectAuthorizationService.authorizeMemberById(PROJECT_ID, USER_ID))
+            .thenReturn(ProjectHeader.of(testProject));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> projectService.postChatMessage(PROJECT_ID, USER_ID, "testuser", new MessageRegister()));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verify(chatMessageWriter, never()).submit(any());
     }
     
     @Test
@@ -392,15 +451,81 @@ public class ProjectServiceTest {
         message1.setProjectId(PROJECT_ID);
         messages.add(message1);
         
-        when(projectAuthorizationService.authenticateProject(PROJECT_ID, VALID_AUTH_HEADER))
-            .thenReturn(testProject);
-        when(messageRepository.findByProjectIdOrderByCreatedAtAsc(PROJECT_ID)).thenReturn(messages);
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER))
+            .thenReturn(ProjectHeader.of(testProject));
+        when(messageRepository.findLatest(eq(PROJECT_ID), any(Pageable.class))).thenReturn(messages);
         
-        List<Message> result = projectService.getMessages(PROJECT_ID, VALID_AUTH_HEADER);
+        List<Message> result = projectService.getMessages(PROJECT_ID, null, null, VALID_AUTH_HEADER);
         
         assertEquals(1, result.size());
         assertEquals("message-123", result.get(0).getId());
     }
+
+    @Test
+    public void getMessages_hotProject_servedFromBufferWithNewMessages() {
+        Message existing = new Message();
+        existing.setId("message-123");
+        existing.setProjectId(PROJECT_ID);
+
+        Message sent = new Message();
+        sent.setId("message-456");
+        sent.setProjectId(PROJECT_ID);
+
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER))
+            .thenReturn(ProjectHeader.of(testProject));
+        when(messageRepository.findLatest(eq(PROJECT_ID), any(Pageable.class))).thenReturn(List.of(existing));
+        when(messageRepository.save(any(Message.class))).thenReturn(sent);
+
+        // First read seeds the ring, the send appends to it
+        projectService.getMessages(PROJECT_ID, null, null, VALID_AUTH_HEADER);
+        projectService.sendChatMessage(PROJECT_ID, VALID_AUTH_HEADER, new MessageRegister());
+        List<Message> result = projectService.getMessages(PROJECT_ID, null, 10, VALID_AUTH_HEADER);
+
+        assertEquals(2, result.size());
+        assertEquals("message-123", result.get(0).getId());
+        assertEquals("message-456", result.get(1).getId());
+        verify(messageRepository, times(1)).findLatest(eq(PROJECT_ID), any(Pageable.class));
+    }
+
+    @Test
+    public void getMessages_before_pagesFromCursorOldestFirst() {
+        LocalDateTime now = LocalDateTime.now();
+        Message cursor = new Message();
+        cursor.setId("message-300");
+        cursor.setProjectId(PROJECT_ID);
+        cursor.setCreatedAt(now);
+        Message newer = new Message();
+        newer.setId("message-200");
+        Message older = new Message();
+        older.setId("message-100");
+
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER))
+            .thenReturn(ProjectHeader.of(testProject));
+        when(messageRepository.findById("message-300")).thenReturn(Optional.of(cursor));
+        when(messageRepository.findPageBefore(PROJECT_ID, now, "message-300", PageRequest.of(0, 200)))
+            .thenReturn(List.of(newer, older));
+
+        List<Message> result = projectService.getMessages(PROJECT_ID, "message-300", 1000, VALID_AUTH_HEADER);
+
+        assertEquals("message-100", result.get(0).getId());
+        assertEquals("message-200", result.get(1).getId());
+    }
+
+    @Test
+    public void getMessages_cursorFromOtherProject_badRequest() {
+        Message cursor = new Message();
+        cursor.setId("message-300");
+        cursor.setProjectId("other-project");
+
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER))
+            .thenReturn(ProjectHeader.of(testProject));
+        when(messageRepository.findById("message-300")).thenReturn(Optional.of(cursor));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> projectService.getMessages(PROJECT_ID, "message-300", null, VALID_AUTH_HEADER));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
     
     @Test
     public void generateReport_success() {
@@ -428,18 +553,32 @@ public class ProjectServiceTest {
         
         String geminiResponse = "<h2>Project Report</h2><p>This is a test report</p>";
         
-        when(projectAuthorizationService.authenticateProject(PROJECT_ID, VALID_AUTH_HEADER))
-            .thenReturn(testProject);
-        when(messageRepository.findByProjectIdOrderByCreatedAtAsc(PROJECT_ID)).thenReturn(messages);
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, VALID_AUTH_HEADER))
+            .thenReturn(ProjectHeader.of(testProject));
+        when(messageRepository.streamByProjectIdOrderByCreatedAtDescIdDesc(PROJECT_ID)).thenReturn(messages.stream());
         when(ideaRepository.findByProjectId(PROJECT_ID)).thenReturn(ideas);
-        when(commentService.getCommentsByIdeaId("idea-123")).thenReturn(comments);
-        when(aiService.generateContent(any())).thenReturn(geminiResponse);
+        when(commentService.streamNewestByProjectId(PROJECT_ID)).thenReturn(comments.stream());
+        when(aiService.generateContent(any(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.getArgument(1, Runnable.class).run();
+            return geminiResponse;
+        });
+        when(reportService.createReport(any(ReportRegister.class), eq(USER_ID), eq(PROJECT_ID))).thenAnswer(invocation -> {
+            Report report = new Report();
+            report.setReportContent(invocation.getArgument(0, ReportRegister.class).getReportContent());
+            return report;
+        });
         
         String result = projectService.generateReport(PROJECT_ID, VALID_AUTH_HEADER);
         
         assertNotNull(result);
         assertEquals("<h2>Project Report</h2><p>This is a test report</p>", result);
-        
+
+        ArgumentCaptor<String> prompt = ArgumentCaptor.forClass(String.class);
+        verify(aiService).generateContent(prompt.capture(), any(Runnable.class));
+        verify(aiRateLimiter, times(1)).acquire(USER_ID, PROJECT_ID);
+        assertTrue(prompt.getValue().contains("Comment: Test comment\nOn Idea: Test Idea"));
+        assertTrue(prompt.getValue().contains("Message: Test message"));
+        verify(commentService, never()).getCommentsByIdeaId(any());
         verify(reportService, times(1)).createReport(any(ReportRegister.class), eq(USER_ID), eq(PROJECT_ID));
     }    
 }
@@ -0,0 +1,111 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import tracko.models.messages.Message;
+import tracko.repository.MessageRepository;
+import tracko.service.ChatMessageWriter;
+import tracko.service.RecentMessageBuffer;
+
+public class RecentMessageBufferTest {
+
+    private MessageRepository messageRepository;
+    private ChatMessageWriter chatMessageWriter;
+
+    @BeforeEach
+    public void setup() {
+        messageRepository = mock(MessageRepository.class);
+        chatMessageWriter = mock(ChatMessageWriter.class);
+    }
+
+    private Message message(String id) {
+        Message message = new Message();
+        message.setId(id);
+        message.setProjectId("project-123");
+        return message;
+    }
+
+    // Repository pages are newest first
+    private List<Message> newestFirst(int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = count; i >= 1; i--) {
+            messages.add(message("m" + i));
+        }
+        return messages;
+    }
+
+    @Test
+    public void latest_coldStart_seedsOnceFromRepository() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(messageRepository, chatMessageWriter, true, 5, 10, 30);
+        when(messageRepository.findLatest("project-123", PageRequest.of(0, 5))).thenReturn(newestFirst(3));
+
+        List<Message> first = buffer.latest("project-123", 2).orElseThrow();
+        List<Message> all = buffer.latest("project-123", 50).orElseThrow();
+
+        assertEquals(List.of("m2", "m3"), first.stream().map(Message::getId).toList());
+        // Fewer messages than the ring holds, so the ring has all of them
+        assertEquals(3, all.size());
+        verify(messageRepository, times(1)).findLatest(eq("project-123"), any(Pageable.class));
+    }
+
+    @Test
+    public void append_fullRing_dropsOldestAndDefersLargerPages() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(messageRepository, chatMessageWriter, true, 3, 10, 30);
+        when(messageRepository.findLatest("project-123", PageRequest.of(0, 3))).thenReturn(newestFirst(2));
+        buffer.latest("project-123", 1);
+
+        buffer.append(message("m3"));
+        buffer.append(message("m4"));
+        buffer.append(message("m4")); // already held
+
+        assertEquals(List.of("m2", "m3", "m4"),
+            buffer.latest("project-123", 3).orElseThrow().stream().map(Message::getId).toList());
+        assertTrue(buffer.latest("project-123", 4).isEmpty());
+    }
+
+    @Test
+    public void append_withoutRing_doesNotCreateOne() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(messageRepository, chatMessageWriter, true, 3, 10, 30);
+        when(messageRepository.findLatest("project-123", PageRequest.of(0, 3))).thenReturn(newestFirst(2));
+
+        buffer.append(message("m2"));
+        List<Message> page = buffer.latest("project-123", 3).orElseThrow();
+
+        assertEquals(List.of("m1", "m2"), page.stream().map(Message::getId).toList());
+    }
+
+    @Test
+    public void latest_disabled_neverReadsRepository() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(messageRepository, chatMessageWriter, false, 3, 10, 30);
+
+        assertTrue(buffer.latest("project-123", 3).isEmpty());
+        verify(messageRepository, never()).findLatest(any(), any());
+    }
+
+    @Test
+    public void latest_seedIncludesMessagesNotStoredYet() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(messageRepository, chatMessageWriter, true, 5, 10, 30);
+        when(chatMessageWriter.pending("project-123")).thenReturn(List.of(message("m3")));
+        when(messageRepository.findLatest("project-123", PageRequest.of(0, 5))).thenReturn(newestFirst(2));
+
+        List<Message> page = buffer.latest("project-123", 5).orElseThrow();
+
+        assertEquals(List.of("m1", "m2", "m3"), page.stream().map(Message::getId).toList());
+    }
+}
@@ -0,0 +1,175 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import tracko.constant.ReportJobStatus;
+import tracko.models.project.ProjectHeader;
+import tracko.models.report.Report;
+import tracko.models.report.ReportJob;
+import tracko.service.AIRateLimiterService;
+import tracko.service.ProjectAuthorizationService;
+import tracko.service.ProjectService;
+import tracko.service.ReportJobService;
+import tracko.service.UserService;
+
+public class ReportJobServiceTest {
+
+    private static final String AUTH_HEADER = "Bearer valid-token";
+    private static final String PROJECT_ID = "project-123";
+    private static final String USER_ID = "user-123";
+
+    private ProjectService projectService;
+    private ProjectAuthorizationService projectAuthorizationService;
+    private UserService userService;
+    private SimpMessagingTemplate messagingTemplate;
+    private AIRateLimiterService aiRateLimiter;
+    private ReportJobService reportJobService;
+
+    private final ProjectHeader project = new ProjectHeader(PROJECT_ID, "Test Project", USER_ID, Set.of());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setup() {
+        projectService = mock(ProjectService.class);
+        projectAuthorizationService = mock(ProjectAuthorizationService.class);
+        userService = mock(UserService.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        aiRateLimiter = mock(AIRateLimiterService.class);
+        reportJobService = new ReportJobService(projectService, projectAuthorizationService, userService,
+            messagingTemplate, aiRateLimiter, 1, 1, 100, 60);
+
+        when(projectAuthorizationService.authorizeMember(PROJECT_ID, AUTH_HEADER)).thenReturn(project);
+        when(projectAuthorizationService.authorizeMember("project-2", AUTH_HEADER))
+            .thenReturn(new ProjectHeader("project-2", "Second", USER_ID, Set.of()));
+        when(projectAuthorizationService.authorizeMember("project-3", AUTH_HEADER))
+            .thenReturn(new ProjectHeader("project-3", "Third", USER_ID, Set.of()));
+        when(userService.getUserIdByToken(AUTH_HEADER)).thenReturn(USER_ID);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        reportJobService.shutdown();
+    }
+
+    private Report report() {
+        Report report = new Report();
+        report.setReportId("report-1");
+        report.setReportContent("<h2>Report</h2>");
+        return report;
+    }
+
+    @Test
+    public void submit_runsJobAndNotifiesProject() {
+        when(projectService.writeReport(project, USER_ID)).thenReturn(report());
+
+        ReportJob job = reportJobService.submit(PROJECT_ID, AUTH_HEADER);
+        assertEquals(ReportJobStatus.QUEUED, job.status());
+
+        ArgumentCaptor<ReportJob> notified = ArgumentCaptor.forClass(ReportJob.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSend(eq("/topic/projects/" + PROJECT_ID + "/reports"), notified.capture());
+        assertEquals(ReportJobStatus.DONE, notified.getValue().status());
+        assertEquals("report-1", notified.getValue().reportId());
+
+        ReportJob polled = reportJobService.getJob(PROJECT_ID, job.jobId(), AUTH_HEADER);
+        assertEquals(ReportJobStatus.DONE, polled.status());
+        assertEquals("<h2>Report</h2>", polled.reportContent());
+    }
+
+    @Test
+    public void submit_whileProjectJobActive_returnsSameJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(projectService.writeReport(project, USER_ID)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return report();
+        });
+
+        ReportJob first = reportJobService.submit(PROJECT_ID, AUTH_HEADER);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        ReportJob second = reportJobService.submit(PROJECT_ID, AUTH_HEADER);
+
+        assertEquals(first.jobId(), second.jobId());
+        assertEquals(ReportJobStatus.RUNNING, second.status());
+
+        release.countDown();
+        verify(messagingTemplate, timeout(2000)).convertAndSend(eq("/topic/projects/" + PROJECT_ID + "/reports"), any(ReportJob.class));
+        verify(projectService, times(1)).writeReport(project, USER_ID);
+        verify(aiRateLimiter, times(1)).acquire(USER_ID, PROJECT_ID);
+    }
+
+    @Test
+    public void submit_queueFull_serviceUnavailable() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(projectService.writeReport(project, USER_ID)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return report();
+        });
+
+        reportJobService.submit(PROJECT_ID, AUTH_HEADER); // running
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        reportJobService.submit("project-2", AUTH_HEADER); // queued
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> reportJobService.submit("project-3", AUTH_HEADER));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+    }
+
+    @Test
+    public void submit_generationFails_jobFailed() {
+        when(projectService.writeReport(project, USER_ID)).thenThrow(new RuntimeException("model down"));
+
+        ReportJob job = reportJobService.submit(PROJECT_ID, AUTH_HEADER);
+
+        ArgumentCaptor<ReportJob> notified = ArgumentCaptor.forClass(ReportJob.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSend(eq("/topic/projects/" + PROJECT_ID + "/reports"), notified.capture());
+        assertEquals(ReportJobStatus.FAILED, notified.getValue().status());
+        assertEquals(ReportJobStatus.FAILED, reportJobService.getJob(PROJECT_ID, job.jobId(), AUTH_HEADER).status());
+    }
+
+    @Test
+    public void submit_generationThrowsError_jobFailedAndProjectFreed() {
+        when(projectService.writeReport(project, USER_ID)).thenThrow(new StackOverflowError());
+
+        ReportJob job = reportJobService.submit(PROJECT_ID, AUTH_HEADER);
+
+        verify(messagingTemplate, timeout(2000)).convertAndSend(eq("/topic/projects/" + PROJECT_ID + "/reports"), any(ReportJob.class));
+        assertEquals(ReportJobStatus.FAILED, reportJobService.getJob(PROJECT_ID, job.jobId(), AUTH_HEADER).status());
+        assertNotEquals(job.jobId(), reportJobService.submit(PROJECT_ID, AUTH_HEADER).jobId());
+    }
+
+    @Test
+    public void getJob_otherProject_notFound() {
+        when(projectService.writeReport(project, USER_ID)).thenReturn(report());
+        ReportJob job = reportJobService.submit(PROJECT_ID, AUTH_HEADER);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> reportJobService.getJob("project-2", job.jobId(), AUTH_HEADER));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+}
@@ -0,0 +1,104 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import tracko.models.comment.Comment;
+import tracko.models.idea.Idea;
+import tracko.models.messages.Message;
+import tracko.service.ReportPromptBuilder;
+
+public class ReportPromptBuilderTest {
+
+    private Idea idea(String id, int upVotes, int comments) {
+        Idea idea = new Idea();
+        idea.setIdeaId(id);
+        idea.setIdeaName("Name " + id);
+        idea.setIdeaDescription("Description " + id);
+        idea.setUpVoteCount(upVotes);
+        idea.setCommentCount(comments);
+        return idea;
+    }
+
+    private Comment comment(String text, String ideaId) {
+        Comment comment = new Comment();
+        comment.setCommentText(text);
+        comment.setIdeaId(ideaId);
+        return comment;
+    }
+
+    private Message message(int i) {
+        Message message = new Message();
+        message.setContent("message " + i);
+        message.setCreatedAt(LocalDateTime.of(2025, 3, 1, 10, 0).minusMinutes(i));
+        return message;
+    }
+
+    @Test
+    public void build_ranksIdeasByEngagementThenRecency() {
+        ReportPromptBuilder builder = new ReportPromptBuilder(60000, 15000);
+        String older = "65e000000000000000000001";
+        String newer = "65f000000000000000000001";
+        List<Idea> ideas = List.of(idea(older, 1, 0), idea("busy", 2, 5), idea(newer, 1, 0));
+
+        String prompt = builder.build("Project", ideas, Stream.empty(), Stream.empty());
+
+        int busy = prompt.indexOf("Idea: Name busy");
+        int olderAt = prompt.indexOf("Idea: Name " + older);
+        int newerAt = prompt.indexOf("Idea: Name " + newer);
+        assertTrue(busy >= 0 && busy < newerAt);
+        assertTrue(newerAt < olderAt);
+    }
+
+    @Test
+    public void build_namesTheIdeaOfEachComment() {
+        ReportPromptBuilder builder = new ReportPromptBuilder(60000, 15000);
+
+        String prompt = builder.build("Project", List.of(idea("i1", 0, 1)),
+            Stream.of(comment("Nice", "i1")), Stream.empty());
+
+        assertTrue(prompt.contains("Comment: Nice\nOn Idea: Name i1"));
+    }
+
+    @Test
+    public void build_staysWithinBudgetAndStopsReadingMessages() {
+        ReportPromptBuilder builder = new ReportPromptBuilder(3000, 15000);
+        List<Idea> ideas = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ideas.add(idea("idea-" + i, i, 0));
+        }
+        AtomicInteger read = new AtomicInteger();
+        Stream<Message> endless = Stream.iterate(0, i -> i + 1).peek(i -> read.incrementAndGet()).map(this::message);
+
+        String prompt = builder.build("Project", ideas, Stream.empty(), endless);
+
+        assertTrue(prompt.length() <= 3000);
+        assertTrue(prompt.contains("(less engaged ideas omitted)"));
+        assertTrue(prompt.contains("(older messages omitted)"));
+        assertTrue(prompt.contains("Idea: Name idea-99"));
+        assertFalse(prompt.contains("Idea: Name idea-0\n"));
+        assertTrue(read.get() < 100);
+    }
+
+    @Test
+    public void build_isDeterministic() {
+        ReportPromptBuilder builder = new ReportPromptBuilder(60000, 500);
+        List<Idea> ideas = List.of(idea("a", 3, 1), idea("b", 3, 1), idea("c", 0, 0));
+
+        String first = builder.build("Project", ideas, Stream.of(comment("x", "a")), Stream.of(message(1)));
+        String second = builder.build("Project", ideas, Stream.of(comment("x", "a")), Stream.of(message(1)));
+
+        assertEquals(first, second);
+        assertEquals(2000, builder.getMaxChars());
+        assertTrue(first.length() <= 2000);
+    }
+}
@@ -0,0 +1,77 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tracko.service.StubAIProvider;
+
+public class StubAIProviderTest {
+
+    @Test
+    public void generate_sameAnswerForSamePrompt() {
+        StubAIProvider first = new StubAIProvider(0, 0, 50, 5, 0, 1);
+        StubAIProvider second = new StubAIProvider(0, 0, 50, 5, 0, 2);
+
+        String answer = first.generate("Refine this idea");
+
+        assertEquals(answer, first.generate("Refine this idea"));
+        assertEquals(answer, second.generate("Refine this idea"));
+        assertNotEquals(answer, first.generate("Combine these ideas"));
+    }
+
+    @Test
+    public void stream_chunksMakeUpTheAnswer() {
+        StubAIProvider provider = new StubAIProvider(0, 0, 23, 5, 0, 1);
+
+        List<String> chunks = new ArrayList<>();
+        boolean complete = provider.stream("Prompt", chunks::add);
+
+        assertTrue(complete);
+        assertEquals(5, chunks.size());
+        assertEquals(provider.generate("Prompt"), String.join("", chunks));
+    }
+
+    @Test
+    public void stream_consumerStops_stopsEarly() {
+        StubAIProvider provider = new StubAIProvider(0, 0, 50, 5, 0, 1);
+
+        List<String> chunks = new ArrayList<>();
+        boolean complete = provider.stream("Prompt", chunk -> chunks.add(chunk) && chunks.size() < 2);
+
+        assertFalse(complete);
+        assertEquals(2, chunks.size());
+    }
+
+    @Test
+    public void generate_errorRate_failsThatShareOfCalls() {
+        StubAIProvider always = new StubAIProvider(0, 0, 10, 5, 1, 1);
+        assertThrows(IllegalStateException.class, () -> always.generate("Prompt"));
+
+        StubAIProvider half = new StubAIProvider(0, 0, 10, 5, 0.5, 7);
+        StubAIProvider sameSeed = new StubAIProvider(0, 0, 10, 5, 0.5, 7);
+        int failures = 0;
+        for (int i = 0; i < 200; i++) {
+            boolean failed = fails(half);
+            assertEquals(failed, fails(sameSeed));
+            failures += failed ? 1 : 0;
+        }
+        assertTrue(failures > 60 && failures < 140);
+    }
+
+    private static boolean fails(StubAIProvider provider) {
+        try {
+            provider.generate("Prompt");
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package service;
 
+import tracko.auth.AuthPrincipal;
+import tracko.auth.AuthPrincipalResolver;
 import tracko.auth.JwtUtil;
 import tracko.repository.UserRepository;
 import tracko.constant.LoginStatus;
@@ -62,7 +64,7 @@ public class UserServiceTest {
     public void setup() {
         MockitoAnnotations.openMocks(this);
         
-        userService = new UserService(jwtUtil, projectService, userRepository, changeService);
+        userService = new UserService(jwtUtil, new AuthPrincipalResolver(jwtUtil), projectService, userRepository, changeService);
 
         testUser = new User();
         testUser.setId("1");
@@ -228,8 +230,7 @@ public class UserServiceTest {
     public void getUserByToken_validToken_returnsUser() {
         String token = "valid.jwt.token";
         String authHeader = "Bearer " + token;
-        when(jwtUtil.validateToken(token)).thenReturn(true);
-        when(jwtUtil.extractUserId(token)).thenReturn("1");
+        when(jwtUtil.parsePrincipal(token)).thenReturn(new AuthPrincipal("1", null));
         when(userRepository.findById("1")).thenReturn(Optional.of(testUser));
 
         User result = userService.getUserByToken(authHeader);
@@ -242,7 +243,7 @@ public class UserServiceTest {
     public void getUserByToken_invalidToken_throwsException() {
         String token = "invalid.jwt.token";
         String authHeader = "Bearer " + token;
-        when(jwtUtil.validateToken(token)).thenReturn(false);
+        when(jwtUtil.parsePrincipal(token)).thenReturn(null);
 
         assertThrows(ResponseStatusException.class, () -> {
             userService.getUserByToken(authHeader);
@@ -253,8 +254,7 @@ public class UserServiceTest {
     public void getUserIdByToken_validToken_returnsUserId() {
         String token = "valid.jwt.token";
         String authHeader = "Bearer " + token;
-        when(jwtUtil.validateToken(token)).thenReturn(true);
-        when(jwtUtil.extractUserId(token)).thenReturn("1");
+        when(jwtUtil.parsePrincipal(token)).thenReturn(new AuthPrincipal("1", null));
 
         String userId = userService.getUserIdByToken(authHeader);
         
@@ -265,7 +265,7 @@ public class UserServiceTest {
     public void getUserIdByToken_invalidToken_throwsException() {
         String token = "invalid.jwt.token";
         String authHeader = "Bearer " + token;
-        when(jwtUtil.validateToken(token)).thenReturn(false);
+        when(jwtUtil.parsePrincipal(token)).thenReturn(null);
 
         assertThrows(ResponseStatusException.class, () -> {
             userService.getUserIdByToken(authHeader);
@@ -283,8 +283,7 @@ public class UserServiceTest {
     public void authenticateUser_validToken_success() {
         String token = "valid.jwt.token";
         String authHeader = "Bearer " + token;
-        when(jwtUtil.validateToken(token)).thenReturn(true);
-        when(jwtUtil.extractUserId(token)).thenReturn("1");
+        when(jwtUtil.parsePrincipal(token)).thenReturn(new AuthPrincipal("1", null));
 
         assertDoesNotThrow(() -> {
             userService.authenticateUser("1", authHeader);
@@ -295,8 +294,7 @@ public class UserServiceTest {
     public void authenticateUser_differentUserId_throwsException() {
         String token = "valid.jwt.token";
         String authHeader = "Bearer " + token;
-        when(jwtUtil.validateToken(token)).thenReturn(true);
-        when(jwtUtil.extractUserId(token)).thenReturn("1");
+        when(jwtUtil.parsePrincipal(token)).thenReturn(new AuthPrincipal("1", null));
 
         assertThrows(ResponseStatusException.class, () -> {
             userService.authenticateUser("2", authHeader);